@@ -0,0 +1,80 @@
+package com.bikeemotion.quartz.jobstore.hazelcast.benchmarks;
+
+import com.bikeemotion.quartz.jobstore.hazelcast.HazelcastJobStore;
+import com.hazelcast.config.Config;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.quartz.SchedulerConfigException;
+import org.quartz.SchedulerException;
+import org.quartz.spi.SchedulerSignaler;
+
+/**
+ * A Hazelcast cluster of several members started inside the current JVM, with
+ * an isolated group name and no multicast so concurrent runs never join each
+ * other.
+ *
+ * @author Flavio Ferreira
+ */
+public final class EmbeddedCluster {
+
+  private final List<HazelcastInstance> members = new ArrayList<>();
+
+  private EmbeddedCluster() {
+
+  }
+
+  public static EmbeddedCluster start(int memberCount) {
+
+    final String clusterName = "job-store-benchmark-" + UUID.randomUUID();
+    final EmbeddedCluster cluster = new EmbeddedCluster();
+    for (int i = 0; i < memberCount; i++) {
+      final Config config = new Config();
+      config.getGroupConfig().setName(clusterName);
+      config.getGroupConfig().setPassword("benchmark");
+      config.setProperty("hazelcast.logging.type", "none");
+      config.getNetworkConfig().getJoin().getMulticastConfig().setEnabled(false);
+      config.getNetworkConfig().getJoin().getTcpIpConfig().setEnabled(true).addMember("127.0.0.1");
+      cluster.members.add(Hazelcast.newHazelcastInstance(config));
+    }
+    return cluster;
+  }
+
+  public int size() {
+
+    return members.size();
+  }
+
+  public HazelcastInstance member(int index) {
+
+    return members.get(index);
+  }
+
+  /**
+   * Creates and starts a job store backed by the given member.
+   */
+  public HazelcastJobStore newJobStore(int memberIndex, String instanceId, SchedulerSignaler signaler)
+    throws SchedulerConfigException, SchedulerException {
+
+    HazelcastJobStore.setHazelcastClient(member(memberIndex));
+    final HazelcastJobStore jobStore = new HazelcastJobStore();
+    jobStore.setInstanceId(instanceId);
+    jobStore.setInstanceName(instanceId);
+    jobStore.setShutdownHazelcastOnShutdown(false);
+    jobStore.initialize(null, signaler);
+    jobStore.schedulerStarted();
+    return jobStore;
+  }
+
+  public void shutdown() {
+
+    for (HazelcastInstance member : members) {
+      member.getLifecycleService().shutdown();
+    }
+    members.clear();
+  }
+}
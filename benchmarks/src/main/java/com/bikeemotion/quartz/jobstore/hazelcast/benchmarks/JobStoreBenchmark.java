@@ -0,0 +1,238 @@
+package com.bikeemotion.quartz.jobstore.hazelcast.benchmarks;
+
+import com.bikeemotion.quartz.jobstore.hazelcast.HazelcastJobStore;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+import org.quartz.JobPersistenceException;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+import org.quartz.TriggerBuilder;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.jobs.NoOpJob;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.TriggerFiredResult;
+
+import static org.quartz.SimpleScheduleBuilder.simpleSchedule;
+
+/**
+ * JMH benchmarks of the {@link HazelcastJobStore} hot paths, run against an
+ * embedded cluster of {@code memberCount} members holding
+ * {@code triggerCount} always-due triggers.
+ *
+ * <p>
+ * Triggers repeat every millisecond since an hour ago and ignore misfires, so
+ * every acquisition finds due triggers. Each trigger belongs to one of
+ * {@value #TRIGGER_GROUPS} groups and jobs have {@value #TRIGGERS_PER_JOB}
+ * triggers each.
+ * </p>
+ *
+ * @author Flavio Ferreira
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+@State(Scope.Benchmark)
+public class JobStoreBenchmark {
+
+  static final int TRIGGER_GROUPS = 100;
+
+  static final int TRIGGERS_PER_JOB = 10;
+
+  private static final int STORED_TRIGGER_KEYS = 10000;
+
+  @Param({ "1000", "100000", "1000000" })
+  public int triggerCount;
+
+  @Param({ "1", "10", "50" })
+  public int batchSize;
+
+  @Param({ "1", "3" })
+  public int memberCount;
+
+  EmbeddedCluster cluster;
+
+  HazelcastJobStore jobStore;
+
+  private JobDetail[] jobs;
+
+  private int storedTriggerSequence;
+
+  @Setup(Level.Trial)
+  public void setUp()
+    throws Exception {
+
+    cluster = EmbeddedCluster.start(memberCount);
+    jobStore = cluster.newJobStore(0, "benchmark", new NoOpSchedulerSignaler());
+
+    final long startTime = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1);
+    jobs = new JobDetail[Math.max(1, triggerCount / TRIGGERS_PER_JOB)];
+    for (int i = 0; i < jobs.length; i++) {
+      jobs[i] = JobBuilder.newJob(NoOpJob.class).withIdentity("job-" + i, groupOf(i)).build();
+      jobStore.storeJob(jobs[i], true);
+    }
+    for (int i = 0; i < triggerCount; i++) {
+      jobStore.storeTrigger(newTrigger("trigger-" + i, groupOf(i), jobs[i / TRIGGERS_PER_JOB], startTime), true);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+
+    jobStore.shutdown();
+    cluster.shutdown();
+  }
+
+  static String groupOf(int index) {
+
+    return "group-" + (index % TRIGGER_GROUPS);
+  }
+
+  static OperableTrigger newTrigger(String name, String group, JobDetail job, long startTime) {
+
+    final OperableTrigger trigger = (OperableTrigger) TriggerBuilder.newTrigger()
+        .withIdentity(name, group)
+        .forJob(job)
+        .startAt(new Date(startTime))
+        .withSchedule(simpleSchedule()
+            .withIntervalInMilliseconds(1)
+            .repeatForever()
+            .withMisfireHandlingInstructionIgnoreMisfires())
+        .build();
+    trigger.computeFirstFireTime(null);
+    return trigger;
+  }
+
+  List<OperableTrigger> acquire()
+    throws JobPersistenceException {
+
+    return jobStore.acquireNextTriggers(System.currentTimeMillis(), batchSize, 0L);
+  }
+
+  /**
+   * Triggers acquired before each invocation, whose fires are completed
+   * afterwards, outside of the measured method.
+   */
+  @State(Scope.Thread)
+  public static class AcquiredTriggers {
+
+    List<OperableTrigger> triggers;
+
+    List<TriggerFiredResult> results = Collections.emptyList();
+
+    @Setup(Level.Invocation)
+    public void acquire(JobStoreBenchmark benchmark)
+      throws JobPersistenceException {
+
+      triggers = benchmark.acquire();
+    }
+
+    @TearDown(Level.Invocation)
+    public void complete(JobStoreBenchmark benchmark) {
+
+      for (TriggerFiredResult result : results) {
+        benchmark.jobStore.triggeredJobComplete(result.getTriggerFiredBundle().getTrigger(),
+            result.getTriggerFiredBundle().getJobDetail(),
+            Trigger.CompletedExecutionInstruction.NOOP);
+      }
+      results = Collections.emptyList();
+    }
+  }
+
+  /**
+   * Triggers acquired and fired before each invocation.
+   */
+  @State(Scope.Thread)
+  public static class FiredTriggers {
+
+    List<TriggerFiredResult> results;
+
+    @Setup(Level.Invocation)
+    public void fire(JobStoreBenchmark benchmark)
+      throws JobPersistenceException {
+
+      results = benchmark.jobStore.triggersFired(benchmark.acquire());
+    }
+  }
+
+  @Benchmark
+  public List<OperableTrigger> acquireNextTriggersAndRelease()
+    throws JobPersistenceException {
+
+    final List<OperableTrigger> acquired = acquire();
+    for (OperableTrigger trigger : acquired) {
+      jobStore.releaseAcquiredTrigger(trigger);
+    }
+    return acquired;
+  }
+
+  @Benchmark
+  public List<TriggerFiredResult> triggersFired(AcquiredTriggers acquired)
+    throws JobPersistenceException {
+
+    acquired.results = jobStore.triggersFired(acquired.triggers);
+    return acquired.results;
+  }
+
+  @Benchmark
+  public int triggeredJobComplete(FiredTriggers fired) {
+
+    for (TriggerFiredResult result : fired.results) {
+      jobStore.triggeredJobComplete(result.getTriggerFiredBundle().getTrigger(),
+          result.getTriggerFiredBundle().getJobDetail(),
+          Trigger.CompletedExecutionInstruction.NOOP);
+    }
+    return fired.results.size();
+  }
+
+  @Benchmark
+  public void storeTrigger()
+    throws JobPersistenceException {
+
+    final int index = storedTriggerSequence++ % STORED_TRIGGER_KEYS;
+    jobStore.storeTrigger(newTrigger("stored-" + index, "stored", jobs[index % jobs.length],
+        System.currentTimeMillis()), true);
+  }
+
+  @Benchmark
+  public List<OperableTrigger> getTriggersForJob()
+    throws JobPersistenceException {
+
+    return jobStore.getTriggersForJob(jobs[ThreadLocalRandom.current().nextInt(jobs.length)].getKey());
+  }
+
+  @Benchmark
+  public List<String> pauseAndResumeTriggers()
+    throws JobPersistenceException {
+
+    final GroupMatcher<TriggerKey> matcher = GroupMatcher
+        .triggerGroupEquals(groupOf(ThreadLocalRandom.current().nextInt(TRIGGER_GROUPS)));
+    final List<String> groups = new ArrayList<>(jobStore.pauseTriggers(matcher));
+    final Collection<String> resumed = jobStore.resumeTriggers(matcher);
+    groups.addAll(resumed);
+    return groups;
+  }
+}
@@ -0,0 +1,40 @@
+package com.bikeemotion.quartz.jobstore.hazelcast.benchmarks;
+
+import org.quartz.JobKey;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.spi.SchedulerSignaler;
+
+/**
+ * Signaler that ignores every notification, for driving a job store without a
+ * scheduler.
+ *
+ * @author Flavio Ferreira
+ */
+public class NoOpSchedulerSignaler implements SchedulerSignaler {
+
+  @Override
+  public void notifyTriggerListenersMisfired(Trigger trigger) {
+
+  }
+
+  @Override
+  public void notifySchedulerListenersFinalized(Trigger trigger) {
+
+  }
+
+  @Override
+  public void notifySchedulerListenersJobDeleted(JobKey jobKey) {
+
+  }
+
+  @Override
+  public void signalSchedulingChange(long candidateNewNextFireTime) {
+
+  }
+
+  @Override
+  public void notifySchedulerListenersError(String string, SchedulerException jpe) {
+
+  }
+}
@@ -0,0 +1,270 @@
+package com.bikeemotion.quartz.jobstore.hazelcast.benchmarks;
+
+import com.bikeemotion.quartz.jobstore.hazelcast.HazelcastJobStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.quartz.Job;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.TriggerBuilder;
+import org.quartz.impl.StdSchedulerFactory;
+import org.quartz.spi.OperableTrigger;
+
+import static org.quartz.CronScheduleBuilder.cronSchedule;
+import static org.quartz.SimpleScheduleBuilder.simpleSchedule;
+
+/**
+ * End to end harness running {@code nodes} Quartz schedulers in this JVM, each
+ * one using a {@link HazelcastJobStore} on its own embedded Hazelcast member.
+ * It schedules a mix of simple and cron triggers, lets them fire for a while
+ * and reports fires per second, fire lag percentiles (actual fire time minus
+ * scheduled fire time), duplicated fires and missed fires as JSON.
+ *
+ * <p>
+ * Settings are read from system properties:
+ * </p>
+ * <ul>
+ * <li>{@code nodes} - number of schedulers and members (3)</li>
+ * <li>{@code simpleTriggers} - number of simple triggers (1000)</li>
+ * <li>{@code simpleIntervalMillis} - repeat interval of simple triggers (1000)</li>
+ * <li>{@code cronTriggers} - number of cron triggers (100)</li>
+ * <li>{@code cronExpression} - schedule of cron triggers ("0/5 * * * * ?")</li>
+ * <li>{@code threadCount} - worker threads per scheduler (10)</li>
+ * <li>{@code durationSeconds} - how long triggers are measured (60)</li>
+ * <li>{@code report} - JSON report file (target/scheduling-report.json)</li>
+ * </ul>
+ *
+ * @author Flavio Ferreira
+ */
+public class SchedulingThroughputHarness {
+
+  /** Fires scheduled in the last moments of the run may legitimately not have happened yet. */
+  private static final long GRACE_MILLIS = 2000;
+
+  private static final long START_DELAY_MILLIS = 5000;
+
+  private static final int TRIGGERS_PER_JOB = 10;
+
+  private static final Map<String, AtomicInteger> FIRES = new ConcurrentHashMap<>();
+
+  private static final Map<String, AtomicInteger> FIRES_BY_NODE = new ConcurrentHashMap<>();
+
+  private static final List<Long> LAGS = new ArrayList<>();
+
+  public static void main(String[] args)
+    throws Exception {
+
+    final int nodes = Integer.getInteger("nodes", 3);
+    final int simpleTriggers = Integer.getInteger("simpleTriggers", 1000);
+    final long simpleIntervalMillis = Long.getLong("simpleIntervalMillis", 1000L);
+    final int cronTriggers = Integer.getInteger("cronTriggers", 100);
+    final String cronExpression = System.getProperty("cronExpression", "0/5 * * * * ?");
+    final int threadCount = Integer.getInteger("threadCount", 10);
+    final long durationSeconds = Long.getLong("durationSeconds", 60L);
+    final File report = new File(System.getProperty("report", "target/scheduling-report.json"));
+
+    final EmbeddedCluster cluster = EmbeddedCluster.start(nodes);
+    final List<Scheduler> schedulers = new ArrayList<>();
+    try {
+      for (int i = 0; i < nodes; i++) {
+        schedulers.add(newScheduler(cluster, i, threadCount));
+      }
+
+      // schedule everything through the first node
+      final long startTime = System.currentTimeMillis() + START_DELAY_MILLIS;
+      final List<OperableTrigger> triggers = new ArrayList<>();
+      final Map<JobDetail, Set<? extends Trigger>> jobsAndTriggers = new HashMap<>();
+      for (int i = 0; i < simpleTriggers + cronTriggers; i++) {
+        final TriggerBuilder<Trigger> builder = TriggerBuilder.newTrigger()
+            .withIdentity("trigger-" + i, i < simpleTriggers ? "simple" : "cron")
+            .startAt(new Date(startTime));
+        final OperableTrigger trigger = (OperableTrigger) (i < simpleTriggers
+            ? builder.withSchedule(simpleSchedule().withIntervalInMilliseconds(simpleIntervalMillis).repeatForever())
+                .build()
+            : builder.withSchedule(cronSchedule(cronExpression)).build());
+        triggers.add(trigger);
+      }
+      for (int i = 0; i < triggers.size(); i += TRIGGERS_PER_JOB) {
+        final JobDetail job = JobBuilder.newJob(RecordingJob.class).withIdentity("job-" + i, "harness").build();
+        final Set<Trigger> jobTriggers = new HashSet<>();
+        for (OperableTrigger trigger : triggers.subList(i, Math.min(i + TRIGGERS_PER_JOB, triggers.size()))) {
+          trigger.setJobKey(job.getKey());
+          jobTriggers.add(trigger);
+        }
+        jobsAndTriggers.put(job, jobTriggers);
+      }
+      schedulers.get(0).scheduleJobs(jobsAndTriggers, true);
+
+      for (Scheduler scheduler : schedulers) {
+        scheduler.start();
+      }
+      final long endTime = startTime + TimeUnit.SECONDS.toMillis(durationSeconds);
+      Thread.sleep(endTime - System.currentTimeMillis() + GRACE_MILLIS);
+      for (Scheduler scheduler : schedulers) {
+        scheduler.standby();
+      }
+
+      writeReport(report, nodes, simpleTriggers, cronTriggers, durationSeconds,
+          expectedFires(triggers, startTime, endTime), startTime, endTime);
+    } finally {
+      for (Scheduler scheduler : schedulers) {
+        scheduler.shutdown(true);
+      }
+      cluster.shutdown();
+    }
+  }
+
+  private static Scheduler newScheduler(EmbeddedCluster cluster, int node, int threadCount)
+    throws SchedulerException {
+
+    final Properties props = new Properties();
+    props.setProperty(StdSchedulerFactory.PROP_SCHED_INSTANCE_NAME, "harness-node-" + node);
+    props.setProperty(StdSchedulerFactory.PROP_SCHED_INSTANCE_ID, "node-" + node);
+    props.setProperty(StdSchedulerFactory.PROP_SCHED_SKIP_UPDATE_CHECK, "true");
+    props.setProperty(StdSchedulerFactory.PROP_THREAD_POOL_CLASS, "org.quartz.simpl.SimpleThreadPool");
+    props.setProperty("org.quartz.threadPool.threadCount", String.valueOf(threadCount));
+    props.setProperty(StdSchedulerFactory.PROP_JOB_STORE_CLASS, HazelcastJobStore.class.getName());
+    props.setProperty(StdSchedulerFactory.PROP_JOB_STORE_PREFIX + ".shutdownHazelcastOnShutdown", "false");
+
+    HazelcastJobStore.setHazelcastClient(cluster.member(node));
+    return new StdSchedulerFactory(props).getScheduler();
+  }
+
+  /**
+   * Fire times every trigger should have had between the start and the end of
+   * the run, keyed like the recorded fires.
+   */
+  private static Set<String> expectedFires(List<OperableTrigger> triggers, long startTime, long endTime) {
+
+    final Set<String> expected = new HashSet<>();
+    for (OperableTrigger trigger : triggers) {
+      final OperableTrigger copy = (OperableTrigger) trigger.clone();
+      Date fireTime = copy.computeFirstFireTime(null);
+      while (fireTime != null && fireTime.getTime() <= endTime) {
+        if (fireTime.getTime() >= startTime) {
+          expected.add(fireKey(copy.getKey().toString(), fireTime.getTime()));
+        }
+        fireTime = copy.getFireTimeAfter(fireTime);
+      }
+    }
+    return expected;
+  }
+
+  private static String fireKey(String triggerKey, long scheduledFireTime) {
+
+    return triggerKey + "@" + scheduledFireTime;
+  }
+
+  private static void writeReport(File report, int nodes, int simpleTriggers, int cronTriggers,
+      long durationSeconds, Set<String> expected, long startTime, long endTime)
+    throws IOException {
+
+    long fires = 0;
+    long duplicates = 0;
+    for (AtomicInteger count : FIRES.values()) {
+      fires += count.get();
+      duplicates += count.get() - 1;
+    }
+    long missed = 0;
+    for (String fire : expected) {
+      if (!FIRES.containsKey(fire)) {
+        missed++;
+      }
+    }
+
+    final long[] lags;
+    synchronized (LAGS) {
+      lags = new long[LAGS.size()];
+      for (int i = 0; i < lags.length; i++) {
+        lags[i] = LAGS.get(i);
+      }
+    }
+    Arrays.sort(lags);
+
+    final StringBuilder byNode = new StringBuilder();
+    for (Map.Entry<String, AtomicInteger> e : FIRES_BY_NODE.entrySet()) {
+      byNode.append(byNode.length() == 0 ? "" : ", ")
+          .append('"').append(e.getKey()).append("\": ").append(e.getValue().get());
+    }
+
+    final String json = "{\n"
+        + "  \"nodes\": " + nodes + ",\n"
+        + "  \"simpleTriggers\": " + simpleTriggers + ",\n"
+        + "  \"cronTriggers\": " + cronTriggers + ",\n"
+        + "  \"durationSeconds\": " + durationSeconds + ",\n"
+        + "  \"fires\": " + fires + ",\n"
+        + "  \"firesPerSecond\": " + (fires * 1000.0 / (endTime - startTime)) + ",\n"
+        + "  \"expectedFires\": " + expected.size() + ",\n"
+        + "  \"duplicateFires\": " + duplicates + ",\n"
+        + "  \"missedFires\": " + missed + ",\n"
+        + "  \"fireLagMillis\": {"
+        + "\"p50\": " + percentile(lags, 0.50)
+        + ", \"p90\": " + percentile(lags, 0.90)
+        + ", \"p99\": " + percentile(lags, 0.99)
+        + ", \"p999\": " + percentile(lags, 0.999)
+        + ", \"max\": " + (lags.length == 0 ? 0 : lags[lags.length - 1]) + "},\n"
+        + "  \"firesByNode\": {" + byNode + "}\n"
+        + "}\n";
+
+    if (report.getParentFile() != null) {
+      report.getParentFile().mkdirs();
+    }
+    try (PrintWriter out = new PrintWriter(report, StandardCharsets.UTF_8.name())) {
+      out.print(json);
+    }
+    System.out.print(json);
+  }
+
+  private static long percentile(long[] sorted, double percentile) {
+
+    if (sorted.length == 0) {
+      return 0;
+    }
+    return sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)];
+  }
+
+  /**
+   * Records every fire: how late it happened and on which node.
+   */
+  public static class RecordingJob implements Job {
+
+    @Override
+    public void execute(JobExecutionContext context)
+      throws JobExecutionException {
+
+      final long scheduledFireTime = context.getScheduledFireTime().getTime();
+      FIRES.computeIfAbsent(fireKey(context.getTrigger().getKey().toString(), scheduledFireTime),
+          k -> new AtomicInteger()).incrementAndGet();
+      synchronized (LAGS) {
+        LAGS.add(context.getFireTime().getTime() - scheduledFireTime);
+      }
+      try {
+        FIRES_BY_NODE.computeIfAbsent(context.getScheduler().getSchedulerName(), k -> new AtomicInteger())
+            .incrementAndGet();
+      } catch (SchedulerException ex) {
+        throw new JobExecutionException(ex);
+      }
+    }
+  }
+}
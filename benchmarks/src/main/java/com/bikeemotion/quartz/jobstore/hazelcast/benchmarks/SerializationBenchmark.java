@@ -0,0 +1,62 @@
+package com.bikeemotion.quartz.jobstore.hazelcast.benchmarks;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of serializing and deserializing every {@link StoredEntity}.
+ * Run with {@code -prof gc} to get the allocation per operation
+ * ({@code gc.alloc.rate.norm}).
+ *
+ * @author Flavio Ferreira
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SerializationBenchmark {
+
+  @Param({ "SIMPLE_TRIGGER", "CRON_TRIGGER", "CALENDAR_INTERVAL_TRIGGER", "DAILY_TIME_INTERVAL_TRIGGER",
+      "JOB_EMPTY_DATA", "JOB_SMALL_DATA", "JOB_LARGE_DATA" })
+  public StoredEntity entity;
+
+  private Serializable value;
+
+  private byte[] bytes;
+
+  @Setup
+  public void setUp()
+    throws Exception {
+
+    value = entity.create();
+    bytes = StoredEntity.serialize(value);
+  }
+
+  @Benchmark
+  public byte[] serialize()
+    throws Exception {
+
+    return StoredEntity.serialize(value);
+  }
+
+  @Benchmark
+  public Object deserialize()
+    throws Exception {
+
+    return StoredEntity.deserialize(bytes);
+  }
+}
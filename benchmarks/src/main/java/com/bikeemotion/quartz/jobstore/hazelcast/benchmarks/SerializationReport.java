@@ -0,0 +1,83 @@
+package com.bikeemotion.quartz.jobstore.hazelcast.benchmarks;
+
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Prints, for every {@link StoredEntity}, the serialized size together with a
+ * quick measure of the serialize and deserialize cost and of the bytes
+ * allocated per operation. It is meant as a baseline when comparing codecs,
+ * {@link SerializationBenchmark} gives the more precise timings.
+ *
+ * <p>
+ * The number of measured operations is read from the {@code iterations} system
+ * property (100000).
+ * </p>
+ *
+ * @author Flavio Ferreira
+ */
+public class SerializationReport {
+
+  private static final int WARMUP_ITERATIONS = 20000;
+
+  public static void main(String[] args)
+    throws Exception {
+
+    final int iterations = Integer.getInteger("iterations", 100000);
+
+    System.out.println(String.format("%-28s %10s %14s %14s %16s %16s",
+        "entity", "bytes", "ser ns/op", "deser ns/op", "ser B/op", "deser B/op"));
+    for (StoredEntity entity : StoredEntity.values()) {
+      final Serializable value = entity.create();
+      final byte[] bytes = StoredEntity.serialize(value);
+
+      measureSerialize(value, WARMUP_ITERATIONS);
+      measureDeserialize(bytes, WARMUP_ITERATIONS);
+      final long serializeAllocated = allocatedBytes();
+      final long serializeNanos = measureSerialize(value, iterations);
+      final long deserializeAllocated = allocatedBytes();
+      final long deserializeNanos = measureDeserialize(bytes, iterations);
+      final long endAllocated = allocatedBytes();
+
+      System.out.println(String.format("%-28s %10d %14d %14d %16d %16d",
+          entity, bytes.length,
+          serializeNanos / iterations,
+          deserializeNanos / iterations,
+          (deserializeAllocated - serializeAllocated) / iterations,
+          (endAllocated - deserializeAllocated) / iterations));
+    }
+  }
+
+  private static long measureSerialize(Serializable value, int iterations)
+    throws Exception {
+
+    final long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      StoredEntity.serialize(value);
+    }
+    return System.nanoTime() - start;
+  }
+
+  private static long measureDeserialize(byte[] bytes, int iterations)
+    throws Exception {
+
+    final long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      StoredEntity.deserialize(bytes);
+    }
+    return System.nanoTime() - start;
+  }
+
+  /**
+   * Bytes allocated so far by the current thread, or 0 when the JVM does not
+   * track it.
+   */
+  private static long allocatedBytes() {
+
+    final java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return 0;
+  }
+}
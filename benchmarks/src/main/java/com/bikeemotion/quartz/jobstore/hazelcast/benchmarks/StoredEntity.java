@@ -0,0 +1,138 @@
+package com.bikeemotion.quartz.jobstore.hazelcast.benchmarks;
+
+import com.bikeemotion.quartz.jobstore.hazelcast.TriggerWrapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Date;
+
+import org.quartz.JobBuilder;
+import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.TriggerBuilder;
+import org.quartz.jobs.NoOpJob;
+import org.quartz.spi.OperableTrigger;
+
+import static org.quartz.CalendarIntervalScheduleBuilder.calendarIntervalSchedule;
+import static org.quartz.CronScheduleBuilder.cronSchedule;
+import static org.quartz.DailyTimeIntervalScheduleBuilder.dailyTimeIntervalSchedule;
+import static org.quartz.SimpleScheduleBuilder.simpleSchedule;
+
+/**
+ * The values the job store keeps in the grid, built the way a typical
+ * application would build them. They are serialized the way Hazelcast stores
+ * plain {@link Serializable} values, that is with Java serialization.
+ *
+ * @author Flavio Ferreira
+ */
+public enum StoredEntity {
+
+  SIMPLE_TRIGGER {
+    @Override
+    Serializable create() {
+
+      return wrap(TriggerBuilder.newTrigger()
+          .withSchedule(simpleSchedule().withIntervalInMinutes(1).repeatForever()));
+    }
+  },
+  CRON_TRIGGER {
+    @Override
+    Serializable create() {
+
+      return wrap(TriggerBuilder.newTrigger().withSchedule(cronSchedule("0 0/5 * * * ?")));
+    }
+  },
+  CALENDAR_INTERVAL_TRIGGER {
+    @Override
+    Serializable create() {
+
+      return wrap(TriggerBuilder.newTrigger().withSchedule(calendarIntervalSchedule().withIntervalInMinutes(5)));
+    }
+  },
+  DAILY_TIME_INTERVAL_TRIGGER {
+    @Override
+    Serializable create() {
+
+      return wrap(TriggerBuilder.newTrigger().withSchedule(dailyTimeIntervalSchedule().withIntervalInMinutes(5)));
+    }
+  },
+  JOB_EMPTY_DATA {
+    @Override
+    Serializable create() {
+
+      return job(new JobDataMap());
+    }
+  },
+  JOB_SMALL_DATA {
+    @Override
+    Serializable create() {
+
+      return job(jobData(5, 16));
+    }
+  },
+  JOB_LARGE_DATA {
+    @Override
+    Serializable create() {
+
+      return job(jobData(200, 256));
+    }
+  };
+
+  abstract Serializable create();
+
+  private static TriggerWrapper wrap(TriggerBuilder<?> builder) {
+
+    final OperableTrigger trigger = (OperableTrigger) builder
+        .withIdentity("customer-42-reminder", "reminders")
+        .forJob(new JobKey("send-reminder", "notifications"))
+        .startAt(new Date())
+        .build();
+    trigger.computeFirstFireTime(null);
+    return TriggerWrapper.newTriggerWrapper(trigger);
+  }
+
+  private static JobDetail job(JobDataMap jobData) {
+
+    return JobBuilder.newJob(NoOpJob.class)
+        .withIdentity("send-reminder", "notifications")
+        .usingJobData(jobData)
+        .storeDurably()
+        .build();
+  }
+
+  private static JobDataMap jobData(int entries, int valueLength) {
+
+    final StringBuilder value = new StringBuilder(valueLength);
+    for (int i = 0; i < valueLength; i++) {
+      value.append((char) ('a' + i % 26));
+    }
+    final JobDataMap jobData = new JobDataMap();
+    for (int i = 0; i < entries; i++) {
+      jobData.put("key-" + i, value.toString());
+    }
+    return jobData;
+  }
+
+  static byte[] serialize(Object value)
+    throws IOException {
+
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(value);
+    }
+    return bytes.toByteArray();
+  }
+
+  static Object deserialize(byte[] bytes)
+    throws IOException, ClassNotFoundException {
+
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      return in.readObject();
+    }
+  }
+}
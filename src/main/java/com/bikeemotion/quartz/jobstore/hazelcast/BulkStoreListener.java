@@ -0,0 +1,15 @@
+package com.bikeemotion.quartz.jobstore.hazelcast;
+
+/**
+ * Progress of
+ * {@link HazelcastJobStore#storeJobsAndTriggersInBulk(java.util.Iterator, boolean, BulkStoreListener)},
+ * told after every batch.
+ */
+public interface BulkStoreListener {
+
+  /**
+   * @param jobsStored jobs stored so far
+   * @param triggersStored triggers stored so far
+   */
+  void batchStored(long jobsStored, long triggersStored);
+}
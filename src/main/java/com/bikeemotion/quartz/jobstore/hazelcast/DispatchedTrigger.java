@@ -0,0 +1,70 @@
+package com.bikeemotion.quartz.jobstore.hazelcast;
+
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.DataSerializable;
+
+import java.io.IOException;
+
+import org.quartz.TriggerKey;
+
+/**
+ * A trigger acquired by the dispatch leader and waiting in the dispatch queue
+ * for a store to take it, see {@link LeaderDispatcher}.
+ */
+public class DispatchedTrigger implements DataSerializable {
+
+  private String triggerName;
+
+  private String triggerGroup;
+
+  private String fireInstanceId;
+
+  public DispatchedTrigger() {
+
+  }
+
+  public DispatchedTrigger(TriggerKey triggerKey, String fireInstanceId) {
+
+    this.triggerName = triggerKey.getName();
+    this.triggerGroup = triggerKey.getGroup();
+    this.fireInstanceId = fireInstanceId;
+  }
+
+  public TriggerKey getTriggerKey() {
+
+    return new TriggerKey(triggerName, triggerGroup);
+  }
+
+  public String getFireInstanceId() {
+
+    return fireInstanceId;
+  }
+
+  @Override
+  public void writeData(ObjectDataOutput out)
+    throws IOException {
+
+    out.writeUTF(triggerName);
+    out.writeUTF(triggerGroup);
+    out.writeUTF(fireInstanceId);
+  }
+
+  @Override
+  public void readData(ObjectDataInput in)
+    throws IOException {
+
+    triggerName = in.readUTF();
+    triggerGroup = in.readUTF();
+    fireInstanceId = in.readUTF();
+  }
+
+  @Override
+  public String toString() {
+
+    return "DispatchedTrigger{"
+        + "trigger=" + triggerGroup + "." + triggerName
+        + ", fireInstanceId=" + fireInstanceId
+        + '}';
+  }
+}
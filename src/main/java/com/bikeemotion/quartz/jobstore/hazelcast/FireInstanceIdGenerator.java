@@ -0,0 +1,24 @@
+package com.bikeemotion.quartz.jobstore.hazelcast;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates fire instance ids without locking: a fixed prefix, unique in the
+ * cluster, followed by a local atomic counter.
+ */
+class FireInstanceIdGenerator {
+
+  private final String prefix;
+
+  private final AtomicLong counter = new AtomicLong();
+
+  FireInstanceIdGenerator(String prefix) {
+
+    this.prefix = prefix;
+  }
+
+  String next() {
+
+    return prefix.concat(Long.toString(counter.incrementAndGet(), Character.MAX_RADIX));
+  }
+}
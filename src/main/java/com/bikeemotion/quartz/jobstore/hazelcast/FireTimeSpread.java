@@ -0,0 +1,96 @@
+package com.bikeemotion.quartz.jobstore.hazelcast;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.quartz.TriggerKey;
+import org.quartz.spi.OperableTrigger;
+
+/**
+ * Delays the fire times of triggers by an offset derived from their key,
+ * within a window per trigger group, so triggers sharing a schedule, like
+ * thousands of hourly crons, don't all become due in the same millisecond.
+ * Every fire time of a trigger is shifted by the same offset, which keeps its
+ * period, and the offset is smaller than the period, which keeps its order.
+ */
+class FireTimeSpread {
+
+  private volatile long windowMillis;
+
+  private volatile Map<String, Long> windowMillisByTriggerGroup = new HashMap<>();
+
+  void setWindowMillis(long windowMillis) {
+
+    this.windowMillis = windowMillis;
+  }
+
+  /**
+   * @param windows comma separated group=millis pairs
+   */
+  void setWindowMillisByTriggerGroup(String windows) {
+
+    final Map<String, Long> parsed = new HashMap<>();
+    for (String window : windows.split(",")) {
+      if (window.trim().isEmpty()) {
+        continue;
+      }
+      final int separator = window.lastIndexOf('=');
+      if (separator <= 0) {
+        throw new IllegalArgumentException("Expected group=millis, got " + window.trim());
+      }
+      parsed.put(window.substring(0, separator).trim(), Long.parseLong(window.substring(separator + 1).trim()));
+    }
+    this.windowMillisByTriggerGroup = parsed;
+  }
+
+  long getWindowMillis(String triggerGroup) {
+
+    final Long window = windowMillisByTriggerGroup.get(triggerGroup);
+    return window != null
+        ? window
+        : windowMillis;
+  }
+
+  /**
+   * @return the offset of the trigger within the window, the same on every
+   *         member
+   */
+  static long offsetMillis(TriggerKey triggerKey, long windowMillis) {
+
+    // TriggerKey hash codes are the same on every JVM, mixed for a uniform spread
+    long h = triggerKey.getName().hashCode() * 31L + triggerKey.getGroup().hashCode();
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    return Math.floorMod(h, windowMillis);
+  }
+
+  /**
+   * Shifts the next fire time of a trigger whose fire time was just computed,
+   * when it is stored or after it fired, unless it was shifted already.
+   */
+  void apply(OperableTrigger trigger) {
+
+    final Date nextFireTime = trigger.getNextFireTime();
+    if (nextFireTime == null) {
+      return;
+    }
+    final long window = getWindowMillis(trigger.getKey().getGroup());
+    if (window <= 0) {
+      return;
+    }
+    // already shifted, e.g. a trigger read from the store and stored again
+    if (!nextFireTime.equals(trigger.getFireTimeAfter(new Date(nextFireTime.getTime() - 1)))) {
+      return;
+    }
+    long offset = offsetMillis(trigger.getKey(), window);
+    final Date followingFireTime = trigger.getFireTimeAfter(nextFireTime);
+    if (followingFireTime != null) {
+      offset %= followingFireTime.getTime() - nextFireTime.getTime();
+    }
+    if (offset > 0) {
+      trigger.setNextFireTime(new Date(nextFireTime.getTime() + offset));
+    }
+  }
+}
@@ -0,0 +1,200 @@
+package com.bikeemotion.quartz.jobstore.hazelcast;
+
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.DataSerializable;
+
+import java.io.IOException;
+
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.TriggerKey;
+import org.quartz.spi.OperableTrigger;
+
+/**
+ * Record of a trigger that has been fired and whose job is still executing. One
+ * is written per fire in {@link HazelcastJobStore#triggersFired(java.util.List)}
+ * and removed again when the job completes, so it is kept as small as possible.
+ * <p>
+ * Records of cluster members are recovered once their member leaves the
+ * cluster. Hazelcast clients are not members, so the records of their stores
+ * carry a lease instead, renewed while the store runs and recovered once it
+ * expires.
+ * </p>
+ */
+public class FiredTriggerRecord implements DataSerializable {
+
+  private String fireInstanceId;
+
+  private String instanceId;
+
+  private String memberUuid;
+
+  private String triggerName;
+
+  private String triggerGroup;
+
+  private String jobName;
+
+  private String jobGroup;
+
+  private long firedTime;
+
+  private long scheduledFireTime;
+
+  private int priority;
+
+  private boolean requestsRecovery;
+
+  private boolean concurrentExecutionDisallowed;
+
+  private long leaseExpiresAt;
+
+  public FiredTriggerRecord() {
+
+  }
+
+  public FiredTriggerRecord(String instanceId, String memberUuid,
+      OperableTrigger trigger, JobDetail job, long firedTime) {
+
+    this.fireInstanceId = trigger.getFireInstanceId();
+    this.instanceId = instanceId;
+    this.memberUuid = memberUuid;
+    this.triggerName = trigger.getKey().getName();
+    this.triggerGroup = trigger.getKey().getGroup();
+    this.jobName = job.getKey().getName();
+    this.jobGroup = job.getKey().getGroup();
+    this.firedTime = firedTime;
+    this.scheduledFireTime = trigger.getPreviousFireTime() == null
+        ? firedTime
+        : trigger.getPreviousFireTime().getTime();
+    this.priority = trigger.getPriority();
+    this.requestsRecovery = job.requestsRecovery();
+    this.concurrentExecutionDisallowed = job.isConcurrentExectionDisallowed();
+  }
+
+  /**
+   * A record of a Hazelcast client store, owned until the lease expires.
+   */
+  public FiredTriggerRecord(String instanceId, OperableTrigger trigger, JobDetail job, long firedTime,
+      long leaseExpiresAt) {
+
+    this(instanceId, null, trigger, job, firedTime);
+    this.leaseExpiresAt = leaseExpiresAt;
+  }
+
+  public String getFireInstanceId() {
+
+    return fireInstanceId;
+  }
+
+  public String getInstanceId() {
+
+    return instanceId;
+  }
+
+  public String getMemberUuid() {
+
+    return memberUuid;
+  }
+
+  public TriggerKey getTriggerKey() {
+
+    return new TriggerKey(triggerName, triggerGroup);
+  }
+
+  public JobKey getJobKey() {
+
+    return new JobKey(jobName, jobGroup);
+  }
+
+  public long getFiredTime() {
+
+    return firedTime;
+  }
+
+  public long getScheduledFireTime() {
+
+    return scheduledFireTime;
+  }
+
+  public int getPriority() {
+
+    return priority;
+  }
+
+  public boolean isRequestsRecovery() {
+
+    return requestsRecovery;
+  }
+
+  public boolean isConcurrentExecutionDisallowed() {
+
+    return concurrentExecutionDisallowed;
+  }
+
+  /**
+   * @return when the lease of a client store's record expires, 0 for the
+   *         records of cluster members
+   */
+  public long getLeaseExpiresAt() {
+
+    return leaseExpiresAt;
+  }
+
+  void setLeaseExpiresAt(long leaseExpiresAt) {
+
+    this.leaseExpiresAt = leaseExpiresAt;
+  }
+
+  @Override
+  public void writeData(ObjectDataOutput out)
+    throws IOException {
+
+    out.writeUTF(fireInstanceId);
+    out.writeUTF(instanceId);
+    out.writeUTF(memberUuid);
+    out.writeUTF(triggerName);
+    out.writeUTF(triggerGroup);
+    out.writeUTF(jobName);
+    out.writeUTF(jobGroup);
+    out.writeLong(firedTime);
+    out.writeLong(scheduledFireTime);
+    out.writeInt(priority);
+    out.writeBoolean(requestsRecovery);
+    out.writeBoolean(concurrentExecutionDisallowed);
+    out.writeLong(leaseExpiresAt);
+  }
+
+  @Override
+  public void readData(ObjectDataInput in)
+    throws IOException {
+
+    fireInstanceId = in.readUTF();
+    instanceId = in.readUTF();
+    memberUuid = in.readUTF();
+    triggerName = in.readUTF();
+    triggerGroup = in.readUTF();
+    jobName = in.readUTF();
+    jobGroup = in.readUTF();
+    firedTime = in.readLong();
+    scheduledFireTime = in.readLong();
+    priority = in.readInt();
+    requestsRecovery = in.readBoolean();
+    concurrentExecutionDisallowed = in.readBoolean();
+    leaseExpiresAt = in.readLong();
+  }
+
+  @Override
+  public String toString() {
+
+    return "FiredTriggerRecord{"
+        + "fireInstanceId=" + fireInstanceId
+        + ", instanceId=" + instanceId
+        + ", trigger=" + triggerGroup + "." + triggerName
+        + ", job=" + jobGroup + "." + jobName
+        + ", firedTime=" + firedTime
+        + ", scheduledFireTime=" + scheduledFireTime
+        + '}';
+  }
+}
@@ -0,0 +1,395 @@
+package com.bikeemotion.quartz.jobstore.hazelcast;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.HazelcastInstanceAware;
+import com.hazelcast.core.IExecutorService;
+import com.hazelcast.core.IMap;
+import com.hazelcast.core.MultiMap;
+import com.hazelcast.query.PagingPredicate;
+import com.hazelcast.query.Predicate;
+import com.hazelcast.query.Predicates;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.quartz.JobPersistenceException;
+import org.quartz.impl.matchers.StringMatcher.StringOperatorName;
+import org.quartz.utils.Key;
+
+/**
+ * The keys of the jobs or triggers of every group, either kept in a separate
+ * MultiMap, updated after every store and remove, or read from an index on the
+ * group attribute of the map holding them.
+ */
+abstract class GroupIndex<K extends Key<K>> {
+
+  /**
+   * Orders groups like {@link Key#compareTo(Key)}, the default group first.
+   */
+  static final Comparator<String> GROUP_ORDER = Comparator
+      .comparing((String group) -> !Key.DEFAULT_GROUP.equals(group))
+      .thenComparing(Comparator.naturalOrder());
+
+  /**
+   * Keys kept in a MultiMap by group, the default.
+   */
+  static <K extends Key<K>> GroupIndex<K> multiMap(MultiMap<String, K> keysByGroup) {
+
+    return new MultiMapGroupIndex<>(keysByGroup);
+  }
+
+  /**
+   * Keys queried from the indexed group attribute of the map holding them,
+   * with group names collected by every member from its own entries.
+   */
+  static <K extends Key<K>> GroupIndex<K> attribute(IMap<K, ?> map, String mapName,
+      IExecutorService executor) {
+
+    map.addIndex("group", false);
+    return new AttributeGroupIndex<>(map, mapName, executor);
+  }
+
+  /**
+   * Called after a key was stored in its map.
+   */
+  abstract void add(K key);
+
+  /**
+   * Called after a key was removed from its map.
+   */
+  abstract void remove(K key);
+
+  /**
+   * @return the keys of the groups matching the operator
+   */
+  abstract Set<K> getKeys(StringOperatorName operator, String compareTo)
+    throws JobPersistenceException;
+
+  /**
+   * @return up to limit keys of the groups matching the operator following the
+   *         given key, or the first ones when it is null, sorted
+   */
+  abstract List<K> getKeys(StringOperatorName operator, String compareTo, K after, int limit);
+
+  abstract Set<String> getGroups()
+    throws JobPersistenceException;
+
+  /**
+   * @return up to limit group names following the given one, sorted
+   */
+  abstract List<String> getGroups(String after, int limit)
+    throws JobPersistenceException;
+
+  abstract void clear();
+
+  /**
+   * Adds a group to the first limit groups following the given one, holding no
+   * more than limit groups.
+   */
+  static void addBounded(TreeSet<String> groups, String group, String after, int limit) {
+
+    if (after != null && group.compareTo(after) <= 0) {
+      return;
+    }
+    groups.add(group);
+    if (groups.size() > limit) {
+      groups.pollLast();
+    }
+  }
+}
+
+class MultiMapGroupIndex<K extends Key<K>> extends GroupIndex<K> {
+
+  private final MultiMap<String, K> keysByGroup;
+
+  MultiMapGroupIndex(MultiMap<String, K> keysByGroup) {
+
+    this.keysByGroup = keysByGroup;
+  }
+
+  @Override
+  void add(K key) {
+
+    keysByGroup.put(key.getGroup(), key);
+  }
+
+  @Override
+  void remove(K key) {
+
+    keysByGroup.remove(key.getGroup(), key);
+  }
+
+  @Override
+  Set<K> getKeys(StringOperatorName operator, String compareTo) {
+
+    final Set<K> keys = new HashSet<>();
+    switch (operator) {
+      case EQUALS:
+        addAll(keysByGroup.get(compareTo), keys);
+        break;
+      default:
+        for (String group : keysByGroup.keySet()) {
+          if (operator.evaluate(group, compareTo)) {
+            addAll(keysByGroup.get(group), keys);
+          }
+        }
+    }
+    return keys;
+  }
+
+  /**
+   * Reads the matching groups one at a time, in key order, so a page costs the
+   * groups it spans rather than a scan of every entry.
+   */
+  @Override
+  List<K> getKeys(StringOperatorName operator, String compareTo, K after, int limit) {
+
+    final List<String> groups = new ArrayList<>();
+    if (operator == StringOperatorName.EQUALS) {
+      groups.add(compareTo);
+    } else {
+      for (String group : keysByGroup.keySet()) {
+        if (operator.evaluate(group, compareTo)) {
+          groups.add(group);
+        }
+      }
+      Collections.sort(groups, GROUP_ORDER);
+    }
+
+    final List<K> keys = new ArrayList<>();
+    for (String group : groups) {
+      if (after != null && GROUP_ORDER.compare(group, after.getGroup()) < 0) {
+        continue;
+      }
+      final List<K> groupKeys = new ArrayList<>();
+      final Collection<K> allGroupKeys = keysByGroup.get(group);
+      if (allGroupKeys != null) {
+        for (K key : allGroupKeys) {
+          if (key != null && (after == null || key.compareTo(after) > 0)) {
+            groupKeys.add(key);
+          }
+        }
+      }
+      Collections.sort(groupKeys);
+      keys.addAll(groupKeys.subList(0, Math.min(groupKeys.size(), limit - keys.size())));
+      if (keys.size() == limit) {
+        break;
+      }
+    }
+    return keys;
+  }
+
+  private void addAll(Collection<K> groupKeys, Set<K> keys) {
+
+    if (groupKeys != null) {
+      for (K key : groupKeys) {
+        if (key != null) {
+          keys.add(key);
+        }
+      }
+    }
+  }
+
+  @Override
+  Set<String> getGroups() {
+
+    return keysByGroup.keySet();
+  }
+
+  @Override
+  List<String> getGroups(String after, int limit) {
+
+    final TreeSet<String> groups = new TreeSet<>();
+    for (String group : keysByGroup.keySet()) {
+      addBounded(groups, group, after, limit);
+    }
+    return new ArrayList<>(groups);
+  }
+
+  @Override
+  void clear() {
+
+    keysByGroup.clear();
+  }
+}
+
+class AttributeGroupIndex<K extends Key<K>> extends GroupIndex<K> {
+
+  private final IMap<K, ?> map;
+
+  private final String mapName;
+
+  private final IExecutorService executor;
+
+  AttributeGroupIndex(IMap<K, ?> map, String mapName, IExecutorService executor) {
+
+    this.map = map;
+    this.mapName = mapName;
+    this.executor = executor;
+  }
+
+  @Override
+  void add(K key) {
+
+    // the stored entry is indexed with it
+  }
+
+  @Override
+  void remove(K key) {
+
+    // the removed entry is unindexed with it
+  }
+
+  @Override
+  Set<K> getKeys(StringOperatorName operator, String compareTo) {
+
+    return new HashSet<>(map.keySet(getPredicate(operator, compareTo, null)));
+  }
+
+  /**
+   * Only EQUALS matchers read their group through the index, every page of the
+   * other operators scans the whole map.
+   */
+  @Override
+  List<K> getKeys(StringOperatorName operator, String compareTo, K after, int limit) {
+
+    final List<K> keys = new ArrayList<>(map.keySet(new PagingPredicate(getPredicate(operator, compareTo, after),
+        new KeyComparator(), limit)));
+    Collections.sort(keys);
+    return keys;
+  }
+
+  private Predicate getPredicate(StringOperatorName operator, String compareTo, K after) {
+
+    final Predicate keyGroup = new KeyGroupPredicate<>(operator, compareTo, after);
+    if (operator != StringOperatorName.EQUALS) {
+      return keyGroup;
+    }
+    return after == null
+        ? Predicates.equal("group", compareTo)
+        : Predicates.and(Predicates.equal("group", compareTo), keyGroup);
+  }
+
+  @Override
+  Set<String> getGroups()
+    throws JobPersistenceException {
+
+    return new HashSet<>(getGroups(null, Integer.MAX_VALUE));
+  }
+
+  @Override
+  List<String> getGroups(String after, int limit)
+    throws JobPersistenceException {
+
+    final TreeSet<String> groups = new TreeSet<>();
+    try {
+      for (Future<TreeSet<String>> memberGroups : executor
+          .submitToAllMembers(new LocalGroupsTask(mapName, after, limit)).values()) {
+        for (String group : memberGroups.get()) {
+          addBounded(groups, group, after, limit);
+        }
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new JobPersistenceException("Interrupted while listing the groups of " + mapName, ex);
+    } catch (ExecutionException ex) {
+      throw new JobPersistenceException("Unable to list the groups of " + mapName, ex.getCause());
+    }
+    return new ArrayList<>(groups);
+  }
+
+  @Override
+  void clear() {
+
+    // cleared with the map
+  }
+}
+
+/**
+ * Matches the entries whose key's group matches an operator, and that follow
+ * a key when given one, evaluated on the members without reading the values.
+ */
+class KeyGroupPredicate<K extends Key<K>> implements Predicate<K, Object> {
+
+  private final StringOperatorName operator;
+
+  private final String compareTo;
+
+  private final K after;
+
+  public KeyGroupPredicate(StringOperatorName operator, String compareTo, K after) {
+
+    this.operator = operator;
+    this.compareTo = compareTo;
+    this.after = after;
+  }
+
+  @Override
+  public boolean apply(Entry<K, Object> entry) {
+
+    return operator.evaluate(entry.getKey().getGroup(), compareTo)
+        && (after == null || entry.getKey().compareTo(after) > 0);
+  }
+}
+
+/**
+ * Sorts query results by job or trigger key.
+ */
+class KeyComparator implements Comparator<Entry>, Serializable {
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public int compare(Entry o1, Entry o2) {
+
+    return ((Key) o1.getKey()).compareTo((Key) o2.getKey());
+  }
+}
+
+/**
+ * The first groups following a given one of the keys a member owns in a map.
+ */
+class LocalGroupsTask implements Callable<TreeSet<String>>, HazelcastInstanceAware, Serializable {
+
+  private final String mapName;
+
+  private final String after;
+
+  private final int limit;
+
+  private transient HazelcastInstance hazelcastInstance;
+
+  public LocalGroupsTask(String mapName, String after, int limit) {
+
+    this.mapName = mapName;
+    this.after = after;
+    this.limit = limit;
+  }
+
+  @Override
+  public void setHazelcastInstance(HazelcastInstance hazelcastInstance) {
+
+    this.hazelcastInstance = hazelcastInstance;
+  }
+
+  @Override
+  public TreeSet<String> call() {
+
+    final IMap<Key<?>, Object> map = hazelcastInstance.getMap(mapName);
+    final TreeSet<String> groups = new TreeSet<>();
+    for (Key<?> key : map.localKeySet()) {
+      GroupIndex.addBounded(groups, key.getGroup(), after, limit);
+    }
+    return groups;
+  }
+}
@@ -1,17 +1,29 @@
 package com.bikeemotion.quartz.jobstore.hazelcast;
 
+import com.bikeemotion.quartz.jobstore.hazelcast.jfr.JobStoreEvents;
+import com.bikeemotion.quartz.jobstore.hazelcast.metrics.JobStoreMetrics;
+import com.bikeemotion.quartz.jobstore.hazelcast.metrics.JobStoreOperation;
+import com.bikeemotion.quartz.jobstore.hazelcast.metrics.MetricsExporter;
 import com.hazelcast.core.Hazelcast;
 import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.HazelcastInstanceAware;
 import com.hazelcast.core.IMap;
 import com.hazelcast.core.ISet;
+import com.hazelcast.core.Member;
 import com.hazelcast.core.MultiMap;
+import com.hazelcast.map.AbstractEntryProcessor;
+import com.hazelcast.query.PagingPredicate;
 import com.hazelcast.query.Predicate;
+import com.hazelcast.query.Predicates;
+import javax.management.JMException;
+
 import org.quartz.Calendar;
-import org.quartz.DateBuilder;
+import org.quartz.JobDataMap;
 import org.quartz.JobDetail;
 import org.quartz.JobKey;
 import org.quartz.JobPersistenceException;
 import org.quartz.ObjectAlreadyExistsException;
+import org.quartz.Scheduler;
 import org.quartz.SchedulerConfigException;
 import org.quartz.SchedulerException;
 import org.quartz.Trigger;
@@ -19,12 +31,14 @@ import org.quartz.Trigger.CompletedExecutionInstruction;
 import org.quartz.TriggerKey;
 import org.quartz.impl.matchers.GroupMatcher;
 import org.quartz.impl.matchers.StringMatcher;
+import org.quartz.impl.triggers.SimpleTriggerImpl;
 import org.quartz.spi.ClassLoadHelper;
 import org.quartz.spi.JobStore;
 import org.quartz.spi.OperableTrigger;
 import org.quartz.spi.SchedulerSignaler;
 import org.quartz.spi.TriggerFiredBundle;
 import org.quartz.spi.TriggerFiredResult;
+import org.quartz.utils.Key;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,20 +46,34 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.bikeemotion.quartz.jobstore.hazelcast.TriggerState.*;
 import static com.bikeemotion.quartz.jobstore.hazelcast.TriggerWrapper.newTriggerWrapper;
 import static com.google.common.collect.Lists.newArrayList;
-import static com.google.common.collect.Sets.newHashSet;
 
 /**
  *
@@ -71,20 +99,64 @@ public class HazelcastJobStore implements JobStore, Serializable {
   private final String HC_JOB_STORE_PAUSED_TRIGGER_GROUPS = "job-paused-trigger-groups";
   private final String HC_JOB_STORE_PAUSED_JOB_GROUPS = "job-paused-job-groups";
   private final String HC_JOB_CALENDAR_MAP = "job-calendar-map";
-
-  private static long ftrCtr = System.currentTimeMillis();
+  private final String HC_JOB_STORE_FIRED_TRIGGERS_MAP = "job-store-fired-triggers-map";
+  private final String HC_JOB_STORE_FIRE_INSTANCE_ID_GENERATOR = "job-store-fire-instance-id-generator";
+  private final String HC_JOB_STORE_CAPACITY_MAP = "job-store-capacity-map";
+  private final String HC_JOB_STORE_STEAL_EXECUTOR = "job-store-steal-executor";
+  private final String HC_JOB_STORE_GROUP_AFFINITY_MAP = "job-store-group-affinity-map";
+  private final String HC_JOB_STORE_RATE_LIMIT_MAP = "job-store-rate-limit-map";
+  private final String HC_JOB_STORE_GROUP_EXECUTOR = "job-store-group-executor";
 
   private SchedulerSignaler schedSignaler;
+  private HazelcastInstance hazelcastInstance;
   private IMap<JobKey, JobDetail> jobsByKey;
   private IMap<TriggerKey, TriggerWrapper> triggersByKey;
-  private MultiMap<String, JobKey> jobsByGroup;
-  private MultiMap<String, TriggerKey> triggersByGroup;
+  private GroupIndex<JobKey> jobsByGroup;
+  private GroupIndex<TriggerKey> triggersByGroup;
   private IMap<String, Calendar> calendarsByName;
   private ISet<String> pausedTriggerGroups;
   private ISet<String> pausedJobGroups;
+  private IMap<String, FiredTriggerRecord> firedTriggerRecords;
+  private IMap<String, StoreCapacity> capacities;
+  private IMap<String, HashSet<String>> jobGroupAffinities;
+  private IMap<String, JobGroupRateLimit> rateLimits;
+  private Set<Member> knownMembers = Collections.emptySet();
+  private String memberUuid;
+  private long nextLeaseCheck;
+  private ScheduledExecutorService leaseRenewer;
+  private FireInstanceIdGenerator fireInstanceIdGenerator;
   private volatile boolean schedulerRunning = false;
   private long misfireThreshold = 5000;
   private long triggerReleaseThreshold = 60000;
+  private JobStoreClock clock = JobStoreClock.SYSTEM;
+  private int acquireCandidatePageSize = 0;
+  private final JobStoreMetrics metrics = new JobStoreMetrics();
+  private String metricsExporterClass;
+  private long metricsExportIntervalMillis = 60000;
+  private boolean jmxEnabled = true;
+  private TriggerStateCounts triggerStateCounts;
+  private HazelcastJobStoreStatistics statistics;
+  private boolean jfrEventsEnabled = false;
+  private JobStoreEvents events = JobStoreEvents.disabled();
+  private final SlowOperationLog slowOperations = new SlowOperationLog();
+  private final ReleaseAndAcquireEstimate releaseAndAcquireEstimate = new ReleaseAndAcquireEstimate();
+  private final FireTimeSpread fireTimeSpread = new FireTimeSpread();
+  private int threadPoolSize = 0;
+  private final Set<String> acquiredFireInstanceIds = ConcurrentHashMap.newKeySet();
+  private final Set<String> executingFireInstanceIds = ConcurrentHashMap.newKeySet();
+  private StoreCapacity publishedCapacity;
+  private boolean leaderDispatchEnabled = false;
+  private int dispatchQueueCapacity = 100;
+  private long dispatchLookaheadMillis = 2000;
+  private long dispatchIntervalMillis = 100;
+  private LeaderDispatcher dispatcher;
+  private boolean partitionLocalAcquisitionEnabled = false;
+  private int stealBatchSize = 10;
+  private long stealTimeoutMillis = 200;
+  private volatile int localBacklog;
+  private Set<String> tags = Collections.emptySet();
+  private int bulkStoreBatchSize = 1000;
+  private boolean groupIndexEnabled = false;
 
   private String instanceId;
   private String instanceName;
@@ -102,18 +174,66 @@ public class HazelcastJobStore implements JobStore, Serializable {
       LOG.warn("Starting new local hazelcast client since not hazelcast instance setted before starting scheduler.");
       hazelcastClient = Hazelcast.newHazelcastInstance();
     }
+    // keep our own reference, several stores may share this JVM
+    hazelcastInstance = hazelcastClient;
+
+    slowOperations.setInstanceId(instanceId);
 
     // initializing hazelcast maps
     LOG.debug("Initializing hazelcast maps...");
     jobsByKey = getMap(HC_JOB_STORE_MAP_JOB);
     triggersByKey = getMap(HC_JOB_STORE_TRIGGER_BY_KEY_MAP);
-    jobsByGroup = getMultiMap(HC_JOB_STORE_MAP_JOB_BY_GROUP_MAP);
-    triggersByGroup = getMultiMap(HC_JOB_STORE_TRIGGER_KEY_BY_GROUP_MAP);
+    if (groupIndexEnabled) {
+      jobsByGroup = GroupIndex.attribute(jobsByKey, HC_JOB_STORE_MAP_JOB,
+          hazelcastInstance.getExecutorService(HC_JOB_STORE_GROUP_EXECUTOR));
+      triggersByGroup = GroupIndex.attribute(triggersByKey, HC_JOB_STORE_TRIGGER_BY_KEY_MAP,
+          hazelcastInstance.getExecutorService(HC_JOB_STORE_GROUP_EXECUTOR));
+    } else {
+      jobsByGroup = GroupIndex.multiMap(
+          getMultiMap(HC_JOB_STORE_MAP_JOB_BY_GROUP_MAP));
+      triggersByGroup = GroupIndex.multiMap(
+          getMultiMap(HC_JOB_STORE_TRIGGER_KEY_BY_GROUP_MAP));
+    }
     pausedTriggerGroups = getSet(HC_JOB_STORE_PAUSED_TRIGGER_GROUPS);
     pausedJobGroups = getSet(HC_JOB_STORE_PAUSED_JOB_GROUPS);
     calendarsByName = getMap(HC_JOB_CALENDAR_MAP);
+    firedTriggerRecords = getMap(HC_JOB_STORE_FIRED_TRIGGERS_MAP);
+    capacities = getMap(HC_JOB_STORE_CAPACITY_MAP);
+    jobGroupAffinities = getMap(HC_JOB_STORE_GROUP_AFFINITY_MAP);
+    rateLimits = getMap(HC_JOB_STORE_RATE_LIMIT_MAP);
 
     triggersByKey.addIndex("nextFireTime", true);
+    firedTriggerRecords.addIndex("firedTime", true);
+    firedTriggerRecords.addIndex("instanceId", false);
+
+    memberUuid = getLocalMemberUuid();
+    if (partitionLocalAcquisitionEnabled && memberUuid == null) {
+      throw new SchedulerConfigException("Partition local acquisition needs a Hazelcast member, "
+          + "a client owns no partitions");
+    }
+    fireInstanceIdGenerator = newFireInstanceIdGenerator();
+    if (memberUuid == null) {
+      startLeaseRenewer();
+    }
+
+    if (metricsExporterClass != null) {
+      metrics.addExporter(newMetricsExporter(loadHelper));
+      metrics.startExporting(metricsExportIntervalMillis);
+    }
+
+    events = JobStoreEvents.create(jfrEventsEnabled, instanceId);
+
+    if (jmxEnabled) {
+      triggerStateCounts = new TriggerStateCounts(hazelcastInstance);
+      try {
+        statistics = new HazelcastJobStoreStatistics(instanceName, instanceId, metrics, triggerStateCounts,
+            triggersByKey::values, releaseAndAcquireEstimate::getMillis, this::getClusterCapacity,
+            this::getJobGroupRateLimitTokens, slowOperations);
+        statistics.register();
+      } catch (JMException ex) {
+        LOG.warn("Unable to register the job store MBean", ex);
+      }
+    }
 
     LOG.debug("Hazelcast Job Store Initialized.");
   }
@@ -124,26 +244,63 @@ public class HazelcastJobStore implements JobStore, Serializable {
 
     LOG.info("Hazelcast Job Store started successfully");
     schedulerRunning = true;
+
+    if (leaderDispatchEnabled && dispatcher == null) {
+      dispatcher = new LeaderDispatcher(hazelcastInstance, instanceId,
+          // pinned job groups are left to the stores they are pinned to
+          (noLaterThan, maxCount, claimed) -> schedulerRunning
+              ? claimTriggers(new AcquisitionCandidates(noLaterThan,
+                  JobGroupFilter.excluding(jobGroupAffinities.keySet())), noLaterThan, 0, maxCount, claimed)
+              : 0,
+          clock, schedSignaler::signalSchedulingChange,
+          dispatchQueueCapacity, dispatchLookaheadMillis, dispatchIntervalMillis);
+      dispatcher.start();
+    }
   }
 
   @Override
   public void schedulerPaused() {
 
     schedulerRunning = false;
-
+    // a paused leader would keep the leadership without dispatching anything
+    if (dispatcher != null) {
+      dispatcher.stop();
+    }
   }
 
   @Override
   public void schedulerResumed() {
 
     schedulerRunning = true;
+    if (dispatcher != null) {
+      dispatcher.start();
+    }
   }
 
   @Override
   public void shutdown() {
 
-    if (shutdownHazelcastOnShutdown) {
-      hazelcastClient.shutdown();
+    metrics.stopExporting();
+    if (leaseRenewer != null) {
+      leaseRenewer.shutdownNow();
+    }
+    if (dispatcher != null) {
+      dispatcher.stop();
+    }
+    if ((threadPoolSize > 0 || partitionLocalAcquisitionEnabled) && capacities != null) {
+      try {
+        capacities.delete(instanceId);
+      } catch (RuntimeException ex) {
+        // e.g. the hazelcast instance is already down, the entry expires anyway
+        LOG.debug("Error removing the capacity of " + instanceId, ex);
+      }
+    }
+    if (statistics != null) {
+      statistics.unregister();
+    }
+    // our own member, the static client may have been replaced by another store since
+    if (shutdownHazelcastOnShutdown && hazelcastInstance != null) {
+      hazelcastInstance.shutdown();
     }
   }
 
@@ -156,7 +313,7 @@ public class HazelcastJobStore implements JobStore, Serializable {
   @Override
   public long getEstimatedTimeToReleaseAndAcquireTrigger() {
 
-    return 25;
+    return releaseAndAcquireEstimate.getMillis();
   }
 
   @Override
@@ -179,24 +336,30 @@ public class HazelcastJobStore implements JobStore, Serializable {
   public void storeJob(final JobDetail job, boolean replaceExisting)
     throws ObjectAlreadyExistsException, JobPersistenceException {
 
-    final JobDetail newJob = (JobDetail) job.clone();
-    final JobKey newJobKey = newJob.getKey();
-
-    if (jobsByKey.containsKey(newJobKey) && !replaceExisting) {
-      throw new ObjectAlreadyExistsException(newJob);
-    }
+    timed(JobStoreOperation.STORE, "storeJob", () -> {
+      final JobDetail newJob = (JobDetail) job.clone();
+      final JobKey newJobKey = newJob.getKey();
 
-    jobsByKey.lock(newJobKey, 5, TimeUnit.SECONDS);
-    try {
-      jobsByKey.set(newJobKey, newJob);
-      jobsByGroup.put(newJobKey.getGroup(), newJobKey);
-    } finally {
-      try {
-        jobsByKey.unlock(newJobKey);
-      } catch (IllegalMonitorStateException ex) {
-        LOG.warn("Error unlocking since it is already released.", ex);
+      final JobDetail previous;
+      if (replaceExisting) {
+        // the job data of a replaced job may be being updated by a completed
+        // execution, so under its lock
+        lockJob(newJobKey);
+        try {
+          previous = jobsByKey.put(newJobKey, newJob);
+        } finally {
+          unlockJob(newJobKey);
+        }
+      } else {
+        previous = jobsByKey.putIfAbsent(newJobKey, newJob);
+        if (previous != null) {
+          throw new ObjectAlreadyExistsException(newJob);
+        }
       }
-    }
+      if (previous == null) {
+        jobsByGroup.add(newJobKey);
+      }
+    });
   }
 
   @Override
@@ -206,74 +369,75 @@ public class HazelcastJobStore implements JobStore, Serializable {
     throws ObjectAlreadyExistsException,
     JobPersistenceException {
 
-    if (!replace) {
-
-      // validate if anything already exists
-      for (final Entry<JobDetail, Set<? extends Trigger>> e : triggersAndJobs
-          .entrySet()) {
-        final JobDetail jobDetail = e.getKey();
-        if (checkExists(jobDetail.getKey())) {
-          throw new ObjectAlreadyExistsException(jobDetail);
-        }
-        for (final Trigger trigger : e.getValue()) {
-          if (checkExists(trigger.getKey())) {
-            throw new ObjectAlreadyExistsException(trigger);
+    timed(null, "storeJobsAndTriggers", () -> {
+      if (!replace) {
+        // validate if anything already exists, a batch at a time
+        final Set<JobKey> jobKeys = new HashSet<>();
+        final Set<TriggerKey> triggerKeys = new HashSet<>();
+        final Iterator<Entry<JobDetail, Set<? extends Trigger>>> it = triggersAndJobs.entrySet().iterator();
+        while (it.hasNext()) {
+          final Entry<JobDetail, Set<? extends Trigger>> e = it.next();
+          jobKeys.add(e.getKey().getKey());
+          for (final Trigger trigger : e.getValue()) {
+            triggerKeys.add(trigger.getKey());
+          }
+          if (jobKeys.size() + triggerKeys.size() >= bulkStoreBatchSize || !it.hasNext()) {
+            for (JobDetail existing : jobsByKey.getAll(jobKeys).values()) {
+              throw new ObjectAlreadyExistsException(existing);
+            }
+            for (TriggerWrapper existing : triggersByKey.getAll(triggerKeys).values()) {
+              throw new ObjectAlreadyExistsException(existing.trigger);
+            }
+            jobKeys.clear();
+            triggerKeys.clear();
           }
         }
       }
-    }
-    // do bulk add...
-    for (final Entry<JobDetail, Set<? extends Trigger>> e : triggersAndJobs
-        .entrySet()) {
-      storeJob(e.getKey(), true);
-      for (final Trigger trigger : e.getValue()) {
-        storeTrigger((OperableTrigger) trigger, true);
-      }
-    }
-
+      storeJobsAndTriggersInBulk(triggersAndJobs.entrySet().iterator(), true, null);
+    });
   }
 
   @Override
   public boolean removeJob(final JobKey jobKey)
     throws JobPersistenceException {
 
-    boolean removed = false;
-    if (jobsByKey.containsKey(jobKey)) {
-      final List<OperableTrigger> triggersForJob = getTriggersForJob(jobKey);
+    return timed(JobStoreOperation.REMOVE, "removeJob", () -> {
+      boolean removed = false;
+      if (jobsByKey.containsKey(jobKey)) {
+        final List<OperableTrigger> triggersForJob = getTriggersForJob(jobKey);
 
-      for (final OperableTrigger trigger : triggersForJob) {
-        if (!removeTrigger(trigger.getKey(), false)) {
-          LOG.warn("Error deleting trigger [{}] of job [{}] .", trigger, jobKey);
-          return false;
+        for (final OperableTrigger trigger : triggersForJob) {
+          if (!removeTrigger(trigger.getKey(), false)) {
+            LOG.warn("Error deleting trigger [{}] of job [{}] .", trigger, jobKey);
+            return false;
+          }
         }
-      }
 
-      jobsByKey.lock(jobKey, 5, TimeUnit.MILLISECONDS);
-      try {
-        jobsByGroup.remove(jobKey.getGroup(), jobKey);
-        removed = jobsByKey.remove(jobKey) != null;
-      } finally {
+        lockJob(jobKey);
         try {
-          jobsByKey.unlock(jobKey);
-        } catch (IllegalMonitorStateException ex) {
-          LOG.warn("Error unlocking since it is already released.", ex);
+          jobsByGroup.remove(jobKey);
+          removed = jobsByKey.remove(jobKey) != null;
+        } finally {
+          unlockJob(jobKey);
         }
       }
-    }
-    return removed;
+      return removed;
+    });
   }
 
   @Override
   public boolean removeJobs(final List<JobKey> jobKeys)
     throws JobPersistenceException {
 
-    boolean allRemoved = true;
+    return timed(null, "removeJobs", () -> {
+      boolean allRemoved = true;
 
-    for (final JobKey key : jobKeys) {
-      allRemoved = removeJob(key) && allRemoved;
-    }
+      for (final JobKey key : jobKeys) {
+        allRemoved = removeJob(key) && allRemoved;
+      }
 
-    return allRemoved;
+      return allRemoved;
+    });
   }
 
   @Override
@@ -293,17 +457,12 @@ public class HazelcastJobStore implements JobStore, Serializable {
   public void storeTrigger(OperableTrigger trigger, boolean replaceExisting)
     throws ObjectAlreadyExistsException, JobPersistenceException {
 
-    final OperableTrigger newTrigger = (OperableTrigger) trigger.clone();
-    final TriggerKey triggerKey = newTrigger.getKey();
-
-    triggersByKey.lock(triggerKey, 5, TimeUnit.SECONDS);
-    try {
-      boolean containsKey = triggersByKey.containsKey(triggerKey);
-      if (containsKey && !replaceExisting) {
-        throw new ObjectAlreadyExistsException(newTrigger);
-      }
+    timed(JobStoreOperation.STORE, "storeTrigger", () -> {
+      final OperableTrigger newTrigger = (OperableTrigger) trigger.clone();
+      final TriggerKey triggerKey = newTrigger.getKey();
+      fireTimeSpread.apply(newTrigger);
 
-      if (retrieveJob(newTrigger.getJobKey()) == null) {
+      if (!jobsByKey.containsKey(newTrigger.getJobKey())) {
         throw new JobPersistenceException("The job (" + newTrigger.getJobKey()
             + ") referenced by the trigger does not exist.");
       }
@@ -313,36 +472,196 @@ public class HazelcastJobStore implements JobStore, Serializable {
       final TriggerState state = shouldBePaused
           ? PAUSED
           : NORMAL;
+      final TriggerWrapper newTriggerWrapper = newTriggerWrapper(newTrigger, state, clock);
 
-      final TriggerWrapper newTriggerWrapper = newTriggerWrapper(newTrigger, state);
-      triggersByKey.set(newTriggerWrapper.key, newTriggerWrapper);
-      triggersByGroup.put(triggerKey.getGroup(), triggerKey);
-    } finally {
-      try {
-        triggersByKey.unlock(triggerKey);
-      } catch (IllegalMonitorStateException ex) {
-        LOG.warn("Error unlocking since it is already released.", ex);
+      final TriggerState previous;
+      if (replaceExisting) {
+        // a replaced trigger may be being acquired or fired, so under its lock
+        lockTrigger(triggerKey);
+        try {
+          previous = storeTriggerWrapper(newTriggerWrapper, true);
+        } finally {
+          unlockTrigger(triggerKey);
+        }
+      } else {
+        previous = storeTriggerWrapper(newTriggerWrapper, false);
+        if (previous != null) {
+          throw new ObjectAlreadyExistsException(newTrigger);
+        }
+      }
+      if (previous == null) {
+        triggersByGroup.add(triggerKey);
+      }
+    });
+  }
+
+  /**
+   * Stores jobs with their triggers in batches of
+   * {@link #setBulkStoreBatchSize(int)} entries, holding no more than a batch
+   * in memory. New jobs and triggers are written only if still absent, with one
+   * call per map, batch and member owning them; existing ones are replaced one
+   * by one, under their locks, as
+   * {@link #storeJob(JobDetail, boolean)} and
+   * {@link #storeTrigger(OperableTrigger, boolean)} do. Meant for loading
+   * large schedules: it isn't atomic, batches stored before a failure stay
+   * stored.
+   *
+   * @param jobsAndTriggers jobs and the triggers of each job
+   * @param replace whether to replace existing jobs and triggers or to fail
+   * @param listener told after every batch, may be null
+   * @return the number of triggers stored
+   */
+  public long storeJobsAndTriggersInBulk(
+      Iterator<? extends Entry<JobDetail, ? extends Collection<? extends Trigger>>> jobsAndTriggers,
+      boolean replace, BulkStoreListener listener)
+    throws ObjectAlreadyExistsException, JobPersistenceException {
+
+    return timed(null, "storeJobsAndTriggersInBulk", () -> {
+      final Set<String> pausedJobGroupNames = new HashSet<>(pausedJobGroups);
+      final Set<String> pausedTriggerGroupNames = new HashSet<>(pausedTriggerGroups);
+      final Map<JobKey, JobDetail> jobs = new HashMap<>();
+      final Map<TriggerKey, TriggerWrapper> triggers = new HashMap<>();
+      long jobsStored = 0;
+      long triggersStored = 0;
+      while (jobsAndTriggers.hasNext()) {
+        final Entry<JobDetail, ? extends Collection<? extends Trigger>> e = jobsAndTriggers.next();
+        final JobDetail job = (JobDetail) e.getKey().clone();
+        jobs.put(job.getKey(), job);
+        for (final Trigger trigger : e.getValue()) {
+          final OperableTrigger newTrigger = (OperableTrigger) ((OperableTrigger) trigger).clone();
+          if (!job.getKey().equals(newTrigger.getJobKey())) {
+            throw new JobPersistenceException("The trigger (" + newTrigger.getKey() + ") is not a trigger of the job ("
+                + job.getKey() + ") it is stored with.");
+          }
+          fireTimeSpread.apply(newTrigger);
+          final boolean shouldBePaused = pausedJobGroupNames.contains(job.getKey().getGroup())
+              || pausedTriggerGroupNames.contains(newTrigger.getKey().getGroup());
+          triggers.put(newTrigger.getKey(), newTriggerWrapper(newTrigger, shouldBePaused ? PAUSED : NORMAL, clock));
+        }
+
+        if (jobs.size() + triggers.size() >= bulkStoreBatchSize || !jobsAndTriggers.hasNext()) {
+          storeBatch(jobs, triggers, replace);
+          jobsStored += jobs.size();
+          triggersStored += triggers.size();
+          jobs.clear();
+          triggers.clear();
+          if (listener != null) {
+            listener.batchStored(jobsStored, triggersStored);
+          }
+        }
+      }
+      return triggersStored;
+    });
+  }
+
+  /**
+   * @see #storeJobsAndTriggersInBulk(Iterator, boolean, BulkStoreListener)
+   */
+  public long storeJobsAndTriggersInBulk(
+      Stream<? extends Entry<JobDetail, ? extends Collection<? extends Trigger>>> jobsAndTriggers,
+      boolean replace, BulkStoreListener listener)
+    throws ObjectAlreadyExistsException, JobPersistenceException {
+
+    return storeJobsAndTriggersInBulk(jobsAndTriggers.iterator(), replace, listener);
+  }
+
+  private void storeBatch(Map<JobKey, JobDetail> jobs, Map<TriggerKey, TriggerWrapper> triggers, boolean replace)
+    throws ObjectAlreadyExistsException, JobPersistenceException {
+
+    final Map<JobKey, JobDetail> existingJobs = jobsByKey.getAll(jobs.keySet());
+    final Map<TriggerKey, TriggerWrapper> existingTriggers = triggersByKey.getAll(triggers.keySet());
+    if (!replace) {
+      for (JobDetail existing : existingJobs.values()) {
+        throw new ObjectAlreadyExistsException(existing);
+      }
+      for (TriggerWrapper existing : existingTriggers.values()) {
+        throw new ObjectAlreadyExistsException(existing.trigger);
+      }
+    }
+
+    // jobs first, triggers must not refer to missing jobs
+    final Map<JobKey, JobDetail> newJobs = new HashMap<>(jobs);
+    newJobs.keySet().removeAll(existingJobs.keySet());
+    // stored concurrently since the check
+    final Set<JobKey> presentJobs = putAllIfAbsent(jobsByKey, newJobs);
+    if (!replace && !presentJobs.isEmpty()) {
+      throw new ObjectAlreadyExistsException(jobs.get(presentJobs.iterator().next()));
+    }
+    for (JobKey jobKey : newJobs.keySet()) {
+      if (!presentJobs.contains(jobKey)) {
+        jobsByGroup.add(jobKey);
+      }
+    }
+    presentJobs.addAll(existingJobs.keySet());
+    for (JobKey jobKey : presentJobs) {
+      storeJob(jobs.get(jobKey), true);
+    }
+
+    final Map<TriggerKey, TriggerWrapper> newTriggers = new HashMap<>(triggers);
+    newTriggers.keySet().removeAll(existingTriggers.keySet());
+    final Set<TriggerKey> presentTriggers = putAllIfAbsent(triggersByKey, newTriggers);
+    for (TriggerWrapper tw : newTriggers.values()) {
+      if (!presentTriggers.contains(tw.key)) {
+        triggersByGroup.add(tw.key);
+        if (triggerStateCounts != null) {
+          triggerStateCounts.transition(null, tw.getState());
+        }
+      }
+    }
+    if (!replace && !presentTriggers.isEmpty()) {
+      throw new ObjectAlreadyExistsException(triggers.get(presentTriggers.iterator().next()).trigger);
+    }
+    presentTriggers.addAll(existingTriggers.keySet());
+    for (TriggerKey triggerKey : presentTriggers) {
+      storeTrigger(triggers.get(triggerKey).trigger, true);
+    }
+  }
+
+  /**
+   * Stores the entries not stored yet, with one call per member owning some.
+   *
+   * @return the keys of the entries that were stored already, left unchanged
+   */
+  private <K, V> Set<K> putAllIfAbsent(IMap<K, V> map, Map<K, V> entries) {
+
+    final Map<Member, HashMap<K, V>> entriesByOwner = new HashMap<>();
+    for (Entry<K, V> entry : entries.entrySet()) {
+      entriesByOwner.computeIfAbsent(hazelcastInstance.getPartitionService().getPartition(entry.getKey()).getOwner(),
+          owner -> new HashMap<>()).put(entry.getKey(), entry.getValue());
+    }
+    final Set<K> present = new HashSet<>(entries.keySet());
+    for (HashMap<K, V> ownerEntries : entriesByOwner.values()) {
+      // owners may change meanwhile, the processor holds every value it may need
+      final Map<K, Object> stored = map.executeOnKeys(ownerEntries.keySet(), new PutIfAbsentProcessor<>(ownerEntries));
+      slowOperations.recordWrite(ownerEntries.size());
+      for (Entry<K, Object> result : stored.entrySet()) {
+        if (Boolean.TRUE.equals(result.getValue())) {
+          present.remove(result.getKey());
+        }
       }
     }
+    return present;
   }
 
   @Override
   public boolean removeTrigger(TriggerKey triggerKey)
     throws JobPersistenceException {
 
-    return removeTrigger(triggerKey, true);
+    return timed(JobStoreOperation.REMOVE, "removeTrigger", () -> removeTrigger(triggerKey, true));
   }
 
   @Override
   public boolean removeTriggers(final List<TriggerKey> triggerKeys)
     throws JobPersistenceException {
 
-    boolean allRemoved = true;
-    for (TriggerKey key : triggerKeys) {
-      allRemoved = removeTrigger(key) && allRemoved;
-    }
+    return timed(null, "removeTriggers", () -> {
+      boolean allRemoved = true;
+      for (TriggerKey key : triggerKeys) {
+        allRemoved = removeTrigger(key) && allRemoved;
+      }
 
-    return allRemoved;
+      return allRemoved;
+    });
   }
 
   @Override
@@ -350,9 +669,11 @@ public class HazelcastJobStore implements JobStore, Serializable {
       final OperableTrigger newTrigger)
     throws JobPersistenceException {
 
-    newTrigger.setKey(triggerKey);
-    storeTrigger(newTrigger, true);
-    return true;
+    return timed(null, "replaceTrigger", () -> {
+      newTrigger.setKey(triggerKey);
+      storeTrigger(newTrigger, true);
+      return true;
+    });
   }
 
   @Override
@@ -390,6 +711,10 @@ public class HazelcastJobStore implements JobStore, Serializable {
     calendarsByName.clear();
     pausedTriggerGroups.clear();
     pausedJobGroups.clear();
+    firedTriggerRecords.clear();
+    if (triggerStateCounts != null) {
+      triggerStateCounts.clear();
+    }
   }
 
   @Override
@@ -398,11 +723,11 @@ public class HazelcastJobStore implements JobStore, Serializable {
     throws ObjectAlreadyExistsException, JobPersistenceException {
 
     final Calendar calendar = (Calendar) cal.clone();
-    if (calendarsByName.containsKey(calName) && !replaceExisting) {
+    if (replaceExisting) {
+      calendarsByName.set(calName, calendar);
+    } else if (calendarsByName.putIfAbsent(calName, calendar) != null) {
       throw new ObjectAlreadyExistsException("Calendar with name '" + calName
           + "' already exists.");
-    } else {
-      calendarsByName.set(calName, calendar);
     }
   }
 
@@ -458,94 +783,121 @@ public class HazelcastJobStore implements JobStore, Serializable {
   public Set<JobKey> getJobKeys(final GroupMatcher<JobKey> matcher)
     throws JobPersistenceException {
 
-    Set<JobKey> outList = null;
-    final StringMatcher.StringOperatorName operator = matcher
-        .getCompareWithOperator();
-    final String groupNameCompareValue = matcher.getCompareToValue();
-
-    switch (operator) {
-      case EQUALS:
-        final Collection<JobKey> jobKeys = jobsByGroup.get(groupNameCompareValue);
-        if (jobKeys != null) {
-          outList = new HashSet<>();
-          for (JobKey jobKey : jobKeys) {
-            if (jobKey != null) {
-              outList.add(jobKey);
-            }
-          }
-        }
-        break;
-      default:
-        for (String groupName : jobsByGroup.keySet()) {
-          if (operator.evaluate(groupName, groupNameCompareValue)) {
-            if (outList == null) {
-              outList = new HashSet<>();
-            }
-            for (JobKey jobKey : jobsByGroup.get(groupName)) {
-              if (jobKey != null) {
-                outList.add(jobKey);
-              }
-            }
-          }
-        }
-    }
-    return outList == null
-        ? java.util.Collections.<JobKey> emptySet()
-        : outList;
+    return jobsByGroup.getKeys(matcher.getCompareWithOperator(), matcher.getCompareToValue());
   }
 
   @Override
   public Set<TriggerKey> getTriggerKeys(GroupMatcher<TriggerKey> matcher)
     throws JobPersistenceException {
 
-    Set<TriggerKey> outList = null;
-    StringMatcher.StringOperatorName operator = matcher
-        .getCompareWithOperator();
-    String groupNameCompareValue = matcher.getCompareToValue();
-    switch (operator) {
-      case EQUALS:
-        Collection<TriggerKey> triggerKeys = triggersByGroup
-            .get(groupNameCompareValue);
-        if (triggerKeys != null) {
-          outList = newHashSet();
-          for (TriggerKey triggerKey : triggerKeys) {
-            if (triggerKey != null) {
-              outList.add(triggerKey);
-            }
-          }
-        }
-        break;
-      default:
-        for (String groupName : triggersByGroup.keySet()) {
-          if (operator.evaluate(groupName, groupNameCompareValue)) {
-            if (outList == null) {
-              outList = newHashSet();
-            }
-            for (TriggerKey triggerKey : triggersByGroup.get(groupName)) {
-              if (triggerKey != null) {
-                outList.add(triggerKey);
-              }
-            }
-          }
-        }
-    }
-    return outList == null
-        ? java.util.Collections.<TriggerKey> emptySet()
-        : outList;
+    return triggersByGroup.getKeys(matcher.getCompareWithOperator(), matcher.getCompareToValue());
   }
 
   @Override
   public List<String> getJobGroupNames()
     throws JobPersistenceException {
 
-    return newArrayList(jobsByGroup.keySet());
+    return newArrayList(jobsByGroup.getGroups());
   }
 
   @Override
   public List<String> getTriggerGroupNames()
     throws JobPersistenceException {
 
-    return new LinkedList<>(triggersByGroup.keySet());
+    return new LinkedList<>(triggersByGroup.getGroups());
+  }
+
+  /**
+   * Returns a page of the keys of the jobs in the matching groups, sorted by
+   * key, read one group at a time from the group index. A page only reads the
+   * groups it spans rather than every job, so streaming is linear in the
+   * matching jobs unless a single group spans many pages. With the group index
+   * enabled only EQUALS matchers are read through the index: every page of
+   * the other operators scans all the jobs.
+   *
+   * @param after
+   *          the last key of the previous page, null for the first page
+   * @param pageSize
+   *          maximum number of keys in the page
+   */
+  public List<JobKey> getJobKeys(GroupMatcher<JobKey> matcher, JobKey after, int pageSize) {
+
+    return getKeys(jobsByGroup, matcher, after, pageSize);
+  }
+
+  /**
+   * Streams the keys of the jobs in the matching groups, sorted by key, read
+   * lazily a page at a time with {@link #getJobKeys(GroupMatcher, JobKey, int)}.
+   */
+  public Stream<JobKey> streamJobKeys(GroupMatcher<JobKey> matcher, int pageSize) {
+
+    return PageIterator.stream((after, size) -> getJobKeys(matcher, after, size), pageSize);
+  }
+
+  /**
+   * Same as {@link #getJobKeys(GroupMatcher, JobKey, int)} for trigger keys.
+   */
+  public List<TriggerKey> getTriggerKeys(GroupMatcher<TriggerKey> matcher, TriggerKey after, int pageSize) {
+
+    return getKeys(triggersByGroup, matcher, after, pageSize);
+  }
+
+  /**
+   * Same as {@link #streamJobKeys(GroupMatcher, int)} for trigger keys.
+   */
+  public Stream<TriggerKey> streamTriggerKeys(GroupMatcher<TriggerKey> matcher, int pageSize) {
+
+    return PageIterator.stream((after, size) -> getTriggerKeys(matcher, after, size), pageSize);
+  }
+
+  /**
+   * Returns a page of the job group names, sorted.
+   *
+   * @param after
+   *          the last group of the previous page, null for the first page
+   * @param pageSize
+   *          maximum number of groups in the page
+   */
+  public List<String> getJobGroupNames(String after, int pageSize)
+    throws JobPersistenceException {
+
+    return jobsByGroup.getGroups(after, pageSize);
+  }
+
+  /**
+   * Streams the job group names, sorted, read lazily a page at a time with
+   * {@link #getJobGroupNames(String, int)}.
+   */
+  public Stream<String> streamJobGroupNames(int pageSize) {
+
+    return PageIterator.stream(this::getJobGroupNames, pageSize);
+  }
+
+  /**
+   * Same as {@link #getJobGroupNames(String, int)} for trigger groups.
+   */
+  public List<String> getTriggerGroupNames(String after, int pageSize)
+    throws JobPersistenceException {
+
+    return triggersByGroup.getGroups(after, pageSize);
+  }
+
+  /**
+   * Same as {@link #streamJobGroupNames(int)} for trigger groups.
+   */
+  public Stream<String> streamTriggerGroupNames(int pageSize) {
+
+    return PageIterator.stream(this::getTriggerGroupNames, pageSize);
+  }
+
+  private <K extends Key<K>> List<K> getKeys(GroupIndex<K> groupIndex, GroupMatcher<K> matcher, K after,
+      int pageSize) {
+
+    final long queryStartNanos = slowOperations.start();
+    final List<K> keys = groupIndex.getKeys(matcher.getCompareWithOperator(), matcher.getCompareToValue(), after,
+        pageSize);
+    slowOperations.recordQuery(queryStartNanos, keys.size());
+    return keys;
   }
 
   @Override
@@ -559,38 +911,43 @@ public class HazelcastJobStore implements JobStore, Serializable {
   public List<OperableTrigger> getTriggersForJob(final JobKey jobKey)
     throws JobPersistenceException {
 
-    if (jobKey == null) {
-      return Collections.emptyList();
-    }
+    return timed(null, "getTriggersForJob", () -> {
+      if (jobKey == null) {
+        return Collections.emptyList();
+      }
 
-    return triggersByKey.values(new TriggerByJobPredicate(jobKey))
-        .stream()
-        .map(v -> (OperableTrigger) v.getTrigger())
-        .collect(Collectors.toList());
+      return triggersByKey.values(new TriggerByJobPredicate(jobKey))
+          .stream()
+          .map(v -> (OperableTrigger) v.getTrigger())
+          .collect(Collectors.toList());
+    });
   }
 
   @Override
   public void pauseTrigger(TriggerKey triggerKey)
     throws JobPersistenceException {
 
-    triggersByKey.lock(triggerKey, 5, TimeUnit.SECONDS);
-    try {
-      final TriggerWrapper newTrigger = newTriggerWrapper(triggersByKey.get(triggerKey), PAUSED);
-      triggersByKey.set(triggerKey, newTrigger);
-    } finally {
+    timed(JobStoreOperation.PAUSE, "pauseTrigger", () -> {
+      lockTrigger(triggerKey);
       try {
-        triggersByKey.unlock(triggerKey);
-      } catch (IllegalMonitorStateException ex) {
-        LOG.warn("Error unlocking since it is already released.", ex);
+        final TriggerWrapper tw = triggersByKey.get(triggerKey);
+        if (tw == null) {
+          return;
+        }
+        final TriggerWrapper newTrigger = newTriggerWrapper(tw,
+            tw.getState() == BLOCKED ? PAUSED_BLOCKED : PAUSED, clock);
+        storeTriggerWrapper(newTrigger);
+      } finally {
+        unlockTrigger(triggerKey);
       }
-    }
+    });
   }
 
   @Override
   public org.quartz.Trigger.TriggerState getTriggerState(TriggerKey triggerKey)
     throws JobPersistenceException {
 
-    triggersByKey.lock(triggerKey, 5, TimeUnit.SECONDS);
+    lockTrigger(triggerKey);
     org.quartz.Trigger.TriggerState result = org.quartz.Trigger.TriggerState.NONE;
     try {
       TriggerWrapper tw = triggersByKey.get(triggerKey);
@@ -598,11 +955,7 @@ public class HazelcastJobStore implements JobStore, Serializable {
         result = toClassicTriggerState(tw.getState());
       }
     } finally {
-      try {
-        triggersByKey.unlock(triggerKey);
-      } catch (IllegalMonitorStateException ex) {
-        LOG.warn("Error unlocking since it is already released.", ex);
-      }
+      unlockTrigger(triggerKey);
     }
     return result;
   }
@@ -611,165 +964,173 @@ public class HazelcastJobStore implements JobStore, Serializable {
   public void resumeTrigger(TriggerKey triggerKey)
     throws JobPersistenceException {
 
-    triggersByKey.lock(triggerKey, 5, TimeUnit.SECONDS);
-    try {
-      if (schedulerRunning) {
-        final TriggerWrapper newTrigger = newTriggerWrapper(triggersByKey.get(triggerKey), NORMAL);
-        triggersByKey.set(newTrigger.key, newTrigger);
-      }
-    } finally {
+    timed(JobStoreOperation.RESUME, "resumeTrigger", () -> {
+      lockTrigger(triggerKey);
       try {
-        triggersByKey.unlock(triggerKey);
-      } catch (IllegalMonitorStateException ex) {
-        LOG.warn("Error unlocking since it is already released.", ex);
+        final TriggerWrapper tw = triggersByKey.get(triggerKey);
+        // only paused triggers are resumed, a blocked one stays blocked until its
+        // job completes
+        if (schedulerRunning && tw != null) {
+          if (tw.getState() == PAUSED) {
+            storeTriggerWrapper(newTriggerWrapper(tw, NORMAL, clock));
+          } else if (tw.getState() == PAUSED_BLOCKED) {
+            storeTriggerWrapper(newTriggerWrapper(tw, BLOCKED, clock));
+          }
+        }
+      } finally {
+        unlockTrigger(triggerKey);
       }
-    }
+    });
   }
 
   @Override
   public Collection<String> pauseTriggers(GroupMatcher<TriggerKey> matcher)
     throws JobPersistenceException {
 
-    List<String> pausedGroups = new LinkedList<>();
-    StringMatcher.StringOperatorName operator = matcher.getCompareWithOperator();
-    switch (operator) {
-      case EQUALS:
-        if (pausedTriggerGroups.add(matcher.getCompareToValue())) {
-          pausedGroups.add(matcher.getCompareToValue());
-        }
-        break;
-      default:
-        for (String group : triggersByGroup.keySet()) {
-          if (operator.evaluate(group, matcher.getCompareToValue())) {
-            if (pausedTriggerGroups.add(matcher.getCompareToValue())) {
-              pausedGroups.add(group);
+    return timed(null, "pauseTriggers", () -> {
+      List<String> pausedGroups = new LinkedList<>();
+      StringMatcher.StringOperatorName operator = matcher.getCompareWithOperator();
+      switch (operator) {
+        case EQUALS:
+          if (pausedTriggerGroups.add(matcher.getCompareToValue())) {
+            pausedGroups.add(matcher.getCompareToValue());
+          }
+          break;
+        default:
+          for (String group : triggersByGroup.getGroups()) {
+            if (operator.evaluate(group, matcher.getCompareToValue())) {
+              if (pausedTriggerGroups.add(matcher.getCompareToValue())) {
+                pausedGroups.add(group);
+              }
             }
           }
-        }
-    }
+      }
 
-    for (String pausedGroup : pausedGroups) {
-      Set<TriggerKey> keys = getTriggerKeys(GroupMatcher.triggerGroupEquals(pausedGroup));
-      for (TriggerKey key : keys) {
-        pauseTrigger(key);
+      for (String pausedGroup : pausedGroups) {
+        Set<TriggerKey> keys = getTriggerKeys(GroupMatcher.triggerGroupEquals(pausedGroup));
+        for (TriggerKey key : keys) {
+          pauseTrigger(key);
+        }
       }
-    }
-    return pausedGroups;
+      return pausedGroups;
+    });
   }
 
   @Override
   public Collection<String> resumeTriggers(GroupMatcher<TriggerKey> matcher)
     throws JobPersistenceException {
 
-    Set<String> resumeGroups = new HashSet<>();
-    Set<TriggerKey> keys = getTriggerKeys(matcher);
-    for (TriggerKey triggerKey : keys) {
-      resumeGroups.add(triggerKey.getGroup());
-      TriggerWrapper tw = triggersByKey.get(triggerKey);
-      OperableTrigger trigger = tw.getTrigger();
-      String jobGroup = trigger.getJobKey().getGroup();
-      if (pausedJobGroups.contains(jobGroup)) {
-        continue;
+    return timed(null, "resumeTriggers", () -> {
+      Set<String> resumeGroups = new HashSet<>();
+      Set<TriggerKey> keys = getTriggerKeys(matcher);
+      for (TriggerKey triggerKey : keys) {
+        resumeGroups.add(triggerKey.getGroup());
+        TriggerWrapper tw = triggersByKey.get(triggerKey);
+        OperableTrigger trigger = tw.getTrigger();
+        String jobGroup = trigger.getJobKey().getGroup();
+        if (pausedJobGroups.contains(jobGroup)) {
+          continue;
+        }
+        resumeTrigger(triggerKey);
       }
-      resumeTrigger(triggerKey);
-    }
-    for (String group : resumeGroups) {
-      pausedTriggerGroups.remove(group);
-    }
-    return new ArrayList<>(resumeGroups);
+      for (String group : resumeGroups) {
+        pausedTriggerGroups.remove(group);
+      }
+      return new ArrayList<>(resumeGroups);
+    });
   }
 
   @Override
   public void pauseJob(JobKey jobKey)
     throws JobPersistenceException {
 
-    boolean found = jobsByKey.containsKey(jobKey);
-    if (!found) {
-      return;
-    }
-    jobsByKey.lock(jobKey, 5, TimeUnit.SECONDS);
-    try {
-      List<OperableTrigger> triggersForJob = getTriggersForJob(jobKey);
-      for (OperableTrigger trigger : triggersForJob) {
-        pauseTrigger(trigger.getKey());
+    timed(null, "pauseJob", () -> {
+      boolean found = jobsByKey.containsKey(jobKey);
+      if (!found) {
+        return;
       }
-    } finally {
+      lockJob(jobKey);
       try {
-        jobsByKey.unlock(jobKey);
-      } catch (IllegalMonitorStateException ex) {
-        LOG.warn("Error unlocking since it is already released.", ex);
+        List<OperableTrigger> triggersForJob = getTriggersForJob(jobKey);
+        for (OperableTrigger trigger : triggersForJob) {
+          pauseTrigger(trigger.getKey());
+        }
+      } finally {
+        unlockJob(jobKey);
       }
-    }
+    });
   }
 
   @Override
   public void resumeJob(JobKey jobKey)
     throws JobPersistenceException {
 
-    boolean found = jobsByKey.containsKey(jobKey);
-    if (!found) {
-      return;
-    }
-    jobsByKey.lock(jobKey, 5, TimeUnit.SECONDS);
-    try {
-      List<OperableTrigger> triggersForJob = getTriggersForJob(jobKey);
-      for (OperableTrigger trigger : triggersForJob) {
-        resumeTrigger(trigger.getKey());
+    timed(null, "resumeJob", () -> {
+      boolean found = jobsByKey.containsKey(jobKey);
+      if (!found) {
+        return;
       }
-    } finally {
+      lockJob(jobKey);
       try {
-        jobsByKey.unlock(jobKey);
-      } catch (IllegalMonitorStateException ex) {
-        LOG.warn("Error unlocking since it is already released.", ex);
+        List<OperableTrigger> triggersForJob = getTriggersForJob(jobKey);
+        for (OperableTrigger trigger : triggersForJob) {
+          resumeTrigger(trigger.getKey());
+        }
+      } finally {
+        unlockJob(jobKey);
       }
-    }
+    });
   }
 
   @Override
   public Collection<String> pauseJobs(GroupMatcher<JobKey> groupMatcher)
     throws JobPersistenceException {
 
-    List<String> pausedGroups = new LinkedList<>();
-    StringMatcher.StringOperatorName operator = groupMatcher
-        .getCompareWithOperator();
-    switch (operator) {
-      case EQUALS:
-        if (pausedJobGroups.add(groupMatcher.getCompareToValue())) {
-          pausedGroups.add(groupMatcher.getCompareToValue());
-        }
-        break;
-      default:
-        for (String jobGroup : jobsByGroup.keySet()) {
-          if (operator.evaluate(jobGroup, groupMatcher.getCompareToValue())) {
-            if (pausedJobGroups.add(jobGroup)) {
-              pausedGroups.add(jobGroup);
+    return timed(null, "pauseJobs", () -> {
+      List<String> pausedGroups = new LinkedList<>();
+      StringMatcher.StringOperatorName operator = groupMatcher
+          .getCompareWithOperator();
+      switch (operator) {
+        case EQUALS:
+          if (pausedJobGroups.add(groupMatcher.getCompareToValue())) {
+            pausedGroups.add(groupMatcher.getCompareToValue());
+          }
+          break;
+        default:
+          for (String jobGroup : jobsByGroup.getGroups()) {
+            if (operator.evaluate(jobGroup, groupMatcher.getCompareToValue())) {
+              if (pausedJobGroups.add(jobGroup)) {
+                pausedGroups.add(jobGroup);
+              }
             }
           }
-        }
-    }
+      }
 
-    for (String groupName : pausedGroups) {
-      for (JobKey jobKey : getJobKeys(GroupMatcher.jobGroupEquals(groupName))) {
-        pauseJob(jobKey);
+      for (String groupName : pausedGroups) {
+        for (JobKey jobKey : getJobKeys(GroupMatcher.jobGroupEquals(groupName))) {
+          pauseJob(jobKey);
+        }
       }
-    }
-    return pausedGroups;
+      return pausedGroups;
+    });
   }
 
   @Override
   public Collection<String> resumeJobs(GroupMatcher<JobKey> matcher)
     throws JobPersistenceException {
 
-    Set<String> resumeGroups = new HashSet<>();
-    Set<JobKey> jobKeys = getJobKeys(matcher);
-    for (JobKey jobKey : jobKeys) {
-      resumeGroups.add(jobKey.getGroup());
-      resumeJob(jobKey);
-    }
-    resumeGroups.stream().forEach((group) -> {
-      pausedJobGroups.remove(group);
+    return timed(null, "resumeJobs", () -> {
+      Set<String> resumeGroups = new HashSet<>();
+      Set<JobKey> jobKeys = getJobKeys(matcher);
+      for (JobKey jobKey : jobKeys) {
+        resumeGroups.add(jobKey.getGroup());
+        resumeJob(jobKey);
+      }
+      resumeGroups.stream().forEach((group) -> {
+        pausedJobGroups.remove(group);
+      });
+      return new ArrayList<>(resumeGroups);
     });
-    return new ArrayList<>(resumeGroups);
   }
 
   @Override
@@ -783,19 +1144,23 @@ public class HazelcastJobStore implements JobStore, Serializable {
   public void pauseAll()
     throws JobPersistenceException {
 
-    for (String triggerGroup : triggersByGroup.keySet()) {
-      pauseTriggers(GroupMatcher.triggerGroupEquals(triggerGroup));
-    }
+    timed(null, "pauseAll", () -> {
+      for (String triggerGroup : triggersByGroup.getGroups()) {
+        pauseTriggers(GroupMatcher.triggerGroupEquals(triggerGroup));
+      }
+    });
   }
 
   @Override
   public void resumeAll()
     throws JobPersistenceException {
 
-    List<String> triggerGroupNames = getTriggerGroupNames();
-    for (String triggerGroup : triggerGroupNames) {
-      resumeTriggers(GroupMatcher.triggerGroupEquals(triggerGroup));
-    }
+    timed(null, "resumeAll", () -> {
+      List<String> triggerGroupNames = getTriggerGroupNames();
+      for (String triggerGroup : triggerGroupNames) {
+        resumeTriggers(GroupMatcher.triggerGroupEquals(triggerGroup));
+      }
+    });
   }
 
   /**
@@ -817,108 +1182,353 @@ public class HazelcastJobStore implements JobStore, Serializable {
       int maxCount, long timeWindow)
     throws JobPersistenceException {
 
-    if (triggersByKey.isEmpty()) {
-      return Collections.EMPTY_LIST;
-    }
+    return timed(JobStoreOperation.ACQUIRE, "acquireNextTriggers", () -> {
+      final JobStoreEvents.Acquisition acquisition = events.acquisitionStarted(maxCount);
+      final long acquireStartNanos = System.nanoTime();
+      recoverFiredTriggersOfLostMembers();
+      publishCapacity();
 
-    long limit = noLaterThan + timeWindow;
-    
-    List<OperableTrigger> result = new ArrayList<>();
-    Set<JobKey> acquiredJobKeysForNoConcurrentExec = new HashSet<>();
+      if (triggersByKey.isEmpty()) {
+        localBacklog = 0;
+        return Collections.EMPTY_LIST;
+      }
 
-    // ordering triggers to try to ensure firetime order
-    List<TriggerWrapper> orderedTriggers = new ArrayList<>(triggersByKey.values(new TriggersPredicate(limit)));
-    Collections.sort(orderedTriggers, (o1, o2) -> o1.getNextFireTime().compareTo(o2.getNextFireTime()));
+      // the scheduler already asks for no more than its free threads
+      final int claimLimit = maxCount;
+
+      final List<OperableTrigger> result = new ArrayList<>();
+      final long limit = noLaterThan + timeWindow;
+      int scanned;
+      if (dispatcher != null) {
+        scanned = takeDispatchedTriggers(limit, claimLimit, result);
+        final JobGroupFilter pinnedHere = eligibleJobGroups(true);
+        if (result.size() < claimLimit && !pinnedHere.isEmpty()) {
+          scanned += claimTriggers(new AcquisitionCandidates(limit, pinnedHere), limit, timeWindow, claimLimit,
+              result);
+        }
+      } else if (partitionLocalAcquisitionEnabled) {
+        scanned = claimLocalTriggers(limit, timeWindow, claimLimit, eligibleJobGroups(false), result);
+      } else {
+        scanned = claimTriggers(new AcquisitionCandidates(limit, eligibleJobGroups(false)), limit, timeWindow,
+            claimLimit, result);
+      }
+      for (OperableTrigger trig : result) {
+        acquiredFireInstanceIds.add(trig.getFireInstanceId());
+      }
 
-    for (int i = 0; i < orderedTriggers.size(); i++) {
-      TriggerWrapper tw = orderedTriggers.get(i);
-      // proced after the other jobstore already not blocked
-      triggersByKey.lock(tw.key, 5, TimeUnit.SECONDS);
-      try {
+      metrics.recordAcquisition(scanned, result.size());
+      acquisition.done(scanned, result.size());
+      // empty stores return early and don't tell what an acquisition costs
+      releaseAndAcquireEstimate.recordAcquire(acquireStartNanos);
+      return result;
+    });
+  }
 
-        // when the trigger was in acquired state for to much time
-        if (tw.getState() == ACQUIRED && (tw.getAcquiredAt() == null
-            || tw.getAcquiredAt() + triggerReleaseThreshold + timeWindow < limit)) {
-          LOG.warn("Found a lost trigger [{}] that should be released at [{}]", tw, limit);
-          releaseAcquiredTrigger(tw.trigger);
-          tw = triggersByKey.get(tw.key);
-        }
+  /**
+   * Acquires due triggers among the given candidates, which are ordered to try
+   * to ensure fire time and priority order.
+   *
+   * @param limit latest fire time of the acquired triggers
+   * @param claimLimit maximum number of triggers in the result
+   * @param result where the acquired triggers are added
+   * @return the number of candidates looked at
+   */
+  private int claimTriggers(Iterator<TriggerWrapper> orderedTriggers, long limit, long timeWindow, int claimLimit,
+      List<OperableTrigger> result)
+    throws JobPersistenceException {
 
-        if (tw.getState() != NORMAL && tw.getState() != WAITING) {
-          continue;
-        }
+    // includes the jobs of triggers acquired before, e.g. when stealing
+    Set<JobKey> acquiredJobKeysForNoConcurrentExec = result.stream()
+        .map(OperableTrigger::getJobKey)
+        .collect(Collectors.toSet());
 
-        if (tw.trigger.getNextFireTime() == null) {
+    int scanned = 0;
+    final RateLimitTokens tokens = new RateLimitTokens(rateLimits, clock);
+    try {
+      while (orderedTriggers.hasNext()) {
+        final TriggerWrapper candidate = orderedTriggers.next();
+        final TriggerKey triggerKey = candidate.key;
+        scanned++;
+        // its job group is out of tokens, stays waiting
+        if (tokens.isExhausted(candidate.jobKey.getGroup())) {
+          metrics.recordTriggerRateLimited(candidate.jobKey.getGroup());
           continue;
         }
-
-        if (applyMisfire(tw)) {
-          LOG.debug("Misfire applied {}", tw);
-          if (tw.trigger.getNextFireTime() != null) {
-            tw = newTriggerWrapper(tw, NORMAL);
-          } else {
-            continue;
-          }
+        if (claimTrigger(triggerKey, limit, timeWindow, claimLimit, tokens, acquiredJobKeysForNoConcurrentExec,
+            result)) {
+          break;
         }
+      }
+    } finally {
+      tokens.giveBack();
+    }
+    return scanned;
+  }
 
-        if (tw.getTrigger().getNextFireTime().getTime() > limit) {
-          storeTriggerWrapper(newTriggerWrapper(tw, NORMAL));
-          continue;
-        }
+  /**
+   * Acquires a candidate unless it was acquired, fired, paused or removed
+   * since it was queried.
+   *
+   * @return whether the result is full
+   */
+  private boolean claimTrigger(TriggerKey triggerKey, long limit, long timeWindow, int claimLimit,
+      RateLimitTokens tokens, Set<JobKey> acquiredJobKeysForNoConcurrentExec, List<OperableTrigger> result)
+    throws JobPersistenceException {
 
-        final JobKey jobKey = tw.trigger.getJobKey();
-        final JobDetail job = jobsByKey.get(tw.trigger.getJobKey());
+    // proced after the other jobstore already not blocked
+    lockTrigger(triggerKey);
+    try {
 
-        // If trigger's job is set as @DisallowConcurrentExecution, and it has
-        // already been added to result, then
-        // put it back into the timeTriggers set and continue to search for next
-        // trigger.
-        if (job == null) {
-          LOG.debug("Job not found");
-          continue;
-        } else if (job.isConcurrentExectionDisallowed()) {
-          if (acquiredJobKeysForNoConcurrentExec.contains(jobKey)) {
-            continue; // go to next trigger in queue.
-          } else {
-            acquiredJobKeysForNoConcurrentExec.add(jobKey);
-          }
+      // the candidate may have been acquired, fired or removed by another
+      // member between the query and the lock
+      TriggerWrapper tw = triggersByKey.get(triggerKey);
+      if (tw == null) {
+        return false;
+      }
+
+      // when the trigger was in acquired state for to much time
+      if (tw.getState() == ACQUIRED && (tw.getAcquiredAt() == null
+          || tw.getAcquiredAt() + triggerReleaseThreshold + timeWindow < limit)) {
+        LOG.warn("Found a lost trigger [{}] that should be released at [{}]", tw, limit);
+        metrics.recordLostTriggerReleased();
+        events.lostTriggerReleased(tw.key, tw.trigger.getFireInstanceId(),
+            tw.getAcquiredAt() == null ? 0 : tw.getAcquiredAt());
+        releaseAcquiredTrigger(tw.trigger);
+        tw = triggersByKey.get(tw.key);
+      }
+
+      if (tw.getState() != NORMAL && tw.getState() != WAITING) {
+        return false;
+      }
+
+      if (tw.trigger.getNextFireTime() == null) {
+        return false;
+      }
+
+      // triggers deferred by the rate limit of their job group are late on
+      // purpose, so they are only late from the last token denial
+      if (applyMisfire(tw, tokens.getDeniedAt(tw.jobKey.getGroup()))) {
+        LOG.debug("Misfire applied {}", tw);
+        if (tw.trigger.getNextFireTime() != null) {
+          tw = newTriggerWrapper(tw, NORMAL, clock);
+        } else {
+          return false;
         }
+      }
+
+      if (tw.getTrigger().getNextFireTime().getTime() > limit) {
+        storeTriggerWrapper(newTriggerWrapper(tw, NORMAL, clock));
+        return false;
+      }
+
+      final JobKey jobKey = tw.trigger.getJobKey();
+      final JobDetail job = jobsByKey.get(tw.trigger.getJobKey());
+
+      // If trigger's job is set as @DisallowConcurrentExecution, and it has
+      // already been added to result, then
+      // put it back into the timeTriggers set and continue to search for next
+      // trigger.
+      if (job == null) {
+        LOG.debug("Job not found");
+        return false;
+      } else if (job.isConcurrentExectionDisallowed() && acquiredJobKeysForNoConcurrentExec.contains(jobKey)) {
+        return false; // go to next trigger in queue.
+      }
+
+      if (!tokens.take(jobKey.getGroup(), claimLimit - result.size())) {
+        metrics.recordTriggerRateLimited(jobKey.getGroup());
+        return false;
+      }
+      if (job.isConcurrentExectionDisallowed()) {
+        acquiredJobKeysForNoConcurrentExec.add(jobKey);
+      }
+
+      OperableTrigger trig = (OperableTrigger) tw.trigger.clone();
+      trig.setFireInstanceId(fireInstanceIdGenerator.next());
+      storeTriggerWrapper(newTriggerWrapper(trig, ACQUIRED, clock));
+
+      result.add(trig);
+      return result.size() == claimLimit;
+    } finally {
+      unlockTrigger(triggerKey);
+    }
+  }
+
+  /**
+   * Acquires the due triggers of the partitions owned by this member, then,
+   * with threads to spare and nothing left to claim locally, steals from the
+   * most backlogged member, or from a member running no store.
+   *
+   * @return the number of candidates looked at
+   */
+  private int claimLocalTriggers(long limit, long timeWindow, int claimLimit, JobGroupFilter jobGroups,
+      List<OperableTrigger> result)
+    throws JobPersistenceException {
+
+    final long queryStartNanos = slowOperations.start();
+    final Set<TriggerKey> localKeys = triggersByKey.localKeySet(new TriggersPredicate(limit, jobGroups));
+    final List<TriggerWrapper> candidates = new ArrayList<>(triggersByKey.getAll(localKeys).values());
+    Collections.sort(candidates, TriggerWrapperComparator.INSTANCE);
+    slowOperations.recordQuery(queryStartNanos, candidates.size());
+
+    int scanned = claimTriggers(candidates.iterator(), limit, timeWindow, claimLimit, result);
+    localBacklog = candidates.size() - scanned;
+    if (localBacklog == 0 && result.size() < claimLimit && stealBatchSize > 0) {
+      scanned += stealTriggers(limit, timeWindow, claimLimit, jobGroups, result);
+    }
+    return scanned;
+  }
+
+  /**
+   * Asks the member of the instance with the largest backlog, then fire lag,
+   * for a bounded batch of its due triggers, and acquires them. When no store
+   * is behind, asks one of the members running no store instead: they publish
+   * no capacity, and nobody else acquires the triggers of their partitions.
+   *
+   * @return the number of candidates looked at
+   */
+  private int stealTriggers(long limit, long timeWindow, int claimLimit, JobGroupFilter jobGroups,
+      List<OperableTrigger> result)
+    throws JobPersistenceException {
+
+    final Collection<StoreCapacity> stores = capacities.values();
+    final StoreCapacity victim = stores.stream()
+        .filter(c -> c.getBacklog() > 0 && !memberUuid.equals(c.getMemberUuid()))
+        .max(Comparator.comparingInt(StoreCapacity::getBacklog)
+            .thenComparingLong(StoreCapacity::getFireLagP99Micros))
+        .orElse(null);
+    final Set<String> storeMembers = stores.stream()
+        .map(StoreCapacity::getMemberUuid)
+        .collect(Collectors.toSet());
+    final List<Member> members = hazelcastInstance.getCluster().getMembers().stream()
+        .filter(m -> victim != null
+            ? m.getUuid().equals(victim.getMemberUuid())
+            : !m.getUuid().equals(memberUuid) && !storeMembers.contains(m.getUuid()))
+        .collect(Collectors.toList());
+    if (members.isEmpty()) {
+      return 0;
+    }
+    // spreads the stores over the members running none
+    final Member member = members.get(ThreadLocalRandom.current().nextInt(members.size()));
+    final String victimName = victim != null
+        ? victim.getInstanceId()
+        : "store-less member " + member.getUuid();
+
+    List<TriggerWrapper> candidates = Collections.emptyList();
+    final long queryStartNanos = slowOperations.start();
+    Future<List<TriggerWrapper>> stolen = null;
+    try {
+      stolen = hazelcastInstance.getExecutorService(HC_JOB_STORE_STEAL_EXECUTOR)
+          .submitToMember(new LocalDueTriggersTask(HC_JOB_STORE_TRIGGER_BY_KEY_MAP, limit, jobGroups,
+              Math.min(stealBatchSize, claimLimit - result.size())), member);
+      // a slow victim must not hold up this store's own acquisitions
+      candidates = stolen.get(stealTimeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return 0;
+    } catch (TimeoutException ex) {
+      stolen.cancel(true);
+      LOG.debug("Timed out stealing triggers from " + victimName);
+      return 0;
+    } catch (ExecutionException | RuntimeException ex) {
+      LOG.debug("Unable to steal triggers from " + victimName, ex);
+      return 0;
+    } finally {
+      slowOperations.recordQuery(queryStartNanos, candidates.size());
+    }
+
+    final int acquiredBefore = result.size();
+    final int scanned = claimTriggers(candidates.iterator(), limit, timeWindow, claimLimit, result);
+    metrics.recordTriggersStolen(result.size() - acquiredBefore);
+    LOG.debug("Stole {} triggers from {}", result.size() - acquiredBefore, victimName);
+    return scanned;
+  }
+
+  /**
+   * @param pinnedOnly whether to only return the job groups pinned to this
+   *          store
+   * @return the job groups this store may acquire triggers of, all but the
+   *         ones pinned to other stores or just the ones pinned to this store
+   */
+  private JobGroupFilter eligibleJobGroups(boolean pinnedOnly) {
+
+    final Set<String> pinnedHere = new HashSet<>();
+    final Set<String> pinnedElsewhere = new HashSet<>();
+    for (Map.Entry<String, HashSet<String>> e : jobGroupAffinities.entrySet()) {
+      (isEligible(e.getValue()) ? pinnedHere : pinnedElsewhere).add(e.getKey());
+    }
+    return pinnedOnly
+        ? JobGroupFilter.only(pinnedHere)
+        : JobGroupFilter.excluding(pinnedElsewhere);
+  }
+
+  private boolean isEligible(Set<String> instancesOrTags) {
 
-        OperableTrigger trig = (OperableTrigger) tw.trigger.clone();
-        trig.setFireInstanceId(getFiredTriggerRecordId());
-        storeTriggerWrapper(newTriggerWrapper(trig, ACQUIRED));
+    return instancesOrTags.contains(instanceId)
+        || instancesOrTags.contains(instanceName)
+        || !Collections.disjoint(instancesOrTags, tags);
+  }
 
-        result.add(trig);
+  /**
+   * Takes triggers dispatched by the leader, skipping the ones that were
+   * paused, removed or released since. The leader dispatches ahead of the
+   * fire time, so triggers due after the limit are put back in the queue.
+   *
+   * @param limit latest fire time of the acquired triggers
+   * @return the number of dispatched triggers looked at
+   */
+  private int takeDispatchedTriggers(long limit, int claimLimit, List<OperableTrigger> result) {
 
-        if (result.size() == maxCount) {
+    int scanned = 0;
+    final List<DispatchedTrigger> notDueYet = new ArrayList<>();
+    try {
+      while (result.size() < claimLimit) {
+        final List<DispatchedTrigger> dispatched = dispatcher.take(claimLimit - result.size());
+        if (dispatched.isEmpty()) {
           break;
         }
-      } finally {
-        try {
-          triggersByKey.unlock(tw.key);
-        } catch (IllegalMonitorStateException ex) {
-          LOG.warn("Error unlocking since it is already released.", ex);
+        for (DispatchedTrigger d : dispatched) {
+          scanned++;
+          final TriggerWrapper tw = triggersByKey.get(d.getTriggerKey());
+          if (tw == null || tw.getState() != ACQUIRED
+              || !d.getFireInstanceId().equals(tw.trigger.getFireInstanceId())) {
+            continue;
+          }
+          if (tw.getNextFireTime() != null && tw.getNextFireTime() > limit) {
+            notDueYet.add(d);
+          } else {
+            result.add((OperableTrigger) tw.trigger.clone());
+          }
         }
       }
+    } finally {
+      // only once done taking, so they aren't taken again right away
+      dispatcher.requeue(notDueYet);
     }
-
-    return result;
+    return scanned;
   }
 
   @Override
   public void releaseAcquiredTrigger(OperableTrigger trigger) {
 
-    TriggerKey triggerKey = trigger.getKey();
-    triggersByKey.lock(triggerKey, 5, TimeUnit.SECONDS);
-    try {
-      storeTriggerWrapper(newTriggerWrapper(trigger, WAITING));
-    } finally {
+    timed(JobStoreOperation.RELEASE, "releaseAcquiredTrigger", () -> {
+      final long releaseStartNanos = System.nanoTime();
+      if (trigger.getFireInstanceId() != null) {
+        acquiredFireInstanceIds.remove(trigger.getFireInstanceId());
+      }
+      TriggerKey triggerKey = trigger.getKey();
+      lockTrigger(triggerKey);
       try {
-        triggersByKey.unlock(triggerKey);
-      } catch (IllegalMonitorStateException ex) {
-        LOG.warn("Error unlocking since it is already released.", ex);
+        // leave it alone if it was paused, blocked or removed since acquired
+        final TriggerWrapper tw = triggersByKey.get(triggerKey);
+        if (tw != null && tw.getState() == ACQUIRED) {
+          storeTriggerWrapper(newTriggerWrapper(trigger, WAITING, clock));
+        }
+      } finally {
+        unlockTrigger(triggerKey);
       }
-    }
+      releaseAndAcquireEstimate.recordRelease(releaseStartNanos);
+    });
   }
 
   @Override
@@ -926,85 +1536,110 @@ public class HazelcastJobStore implements JobStore, Serializable {
       List<OperableTrigger> firedTriggers)
     throws JobPersistenceException {
 
-    List<TriggerFiredResult> results = new ArrayList<>();
+    return timed(JobStoreOperation.FIRED, "triggersFired", () -> {
+      List<TriggerFiredResult> results = new ArrayList<>();
 
-    for (OperableTrigger trigger : firedTriggers) {
+      for (OperableTrigger trigger : firedTriggers) {
 
-      triggersByKey.lock(trigger.getKey(), 5, TimeUnit.SECONDS);
-      try {
-        TriggerWrapper tw = triggersByKey.get(trigger.getKey());
-        // was the trigger deleted since being acquired?
-        if (tw == null || tw.trigger == null) {
-          continue;
-        }
-        // was the trigger completed, paused, blocked, etc. since being acquired?
-        if (tw.getState() != ACQUIRED) {
-          continue;
+        final JobStoreEvents.Fire fire = events.fireStarted();
+        if (trigger.getFireInstanceId() != null) {
+          acquiredFireInstanceIds.remove(trigger.getFireInstanceId());
         }
 
-        Calendar cal = null;
-        if (tw.trigger.getCalendarName() != null) {
-          cal = retrieveCalendar(tw.trigger.getCalendarName());
-          if (cal == null) {
+        // triggers of a non-concurrent job are fired under the job lock (taken
+        // before the trigger lock, like pauseJob does) so that two members can't
+        // start the job at the same time
+        final JobDetail firedJob = jobsByKey.get(trigger.getJobKey());
+        final JobKey lockedJobKey = firedJob != null && firedJob.isConcurrentExectionDisallowed()
+            ? firedJob.getKey()
+            : null;
+        if (lockedJobKey != null) {
+          lockJob(lockedJobKey);
+        }
+        lockTrigger(trigger.getKey());
+        try {
+          TriggerWrapper tw = triggersByKey.get(trigger.getKey());
+          // was the trigger deleted since being acquired?
+          if (tw == null || tw.trigger == null) {
+            continue;
+          }
+          // was the trigger completed, paused, blocked, etc. since being acquired?
+          if (tw.getState() != ACQUIRED) {
+            continue;
+          }
+          // was the trigger released and acquired again by someone else?
+          if (trigger.getFireInstanceId() != null
+              && !trigger.getFireInstanceId().equals(tw.trigger.getFireInstanceId())) {
             continue;
           }
-        }
-        Date prevFireTime = trigger.getPreviousFireTime();
-        // call triggered on our copy, and the scheduler's copy
-        tw.trigger.triggered(cal);
-        trigger.triggered(cal);
-
-        JobDetail job = retrieveJob(tw.jobKey);
-
-        if (job.isConcurrentExectionDisallowed()) {
-
-          ArrayList<TriggerWrapper> trigs = getTriggerWrappersForJob(job.getKey());
-          for (TriggerWrapper ttw : trigs) {
-            // Block all triggers
 
-            if (ttw.getState() == WAITING) {
-              ttw = newTriggerWrapper(ttw, BLOCKED);
-            } else if (ttw.getState() == PAUSED) {
-              ttw = newTriggerWrapper(ttw, PAUSED_BLOCKED);
+          Calendar cal = null;
+          if (tw.trigger.getCalendarName() != null) {
+            cal = retrieveCalendar(tw.trigger.getCalendarName());
+            if (cal == null) {
+              continue;
             }
-            storeTriggerWrapper(ttw);
-
           }
+          Date prevFireTime = trigger.getPreviousFireTime();
+          // call triggered on our copy, and the scheduler's copy
+          tw.trigger.triggered(cal);
+          trigger.triggered(cal);
+          fireTimeSpread.apply(trigger);
 
-          tw = newTriggerWrapper(trigger, ACQUIRED);
+          JobDetail job = retrieveJob(tw.jobKey);
 
-        } else if (!tw.trigger.mayFireAgain()) {
+          if (job.isConcurrentExectionDisallowed()) {
 
-          tw = newTriggerWrapper(trigger, COMPLETE);
+            blockTriggersOfJob(job.getKey(), tw.key);
 
-        } else {
+            // blocked as well until the job completes, so it can't be released
+            // as a lost acquisition, or resumed, while the job is still running.
+            // Unblocked on completion, or when the fire is recovered as lost
+            tw = newTriggerWrapper(trigger, BLOCKED, clock);
 
-          tw = newTriggerWrapper(trigger, WAITING);
-        }
+          } else if (!tw.trigger.mayFireAgain()) {
 
-        storeTriggerWrapper(tw);
+            tw = newTriggerWrapper(trigger, COMPLETE, clock);
 
-        TriggerFiredBundle bndle = new TriggerFiredBundle(
-            retrieveJob(tw.jobKey),
-            trigger,
-            cal,
-            false,
-            new Date(),
-            trigger.getPreviousFireTime(),
-            prevFireTime,
-            trigger.getNextFireTime());
+          } else {
 
-        results.add(new TriggerFiredResult(bndle));
-      } finally {
-        try {
-          triggersByKey.unlock(trigger.getKey());
-        } catch (IllegalMonitorStateException ex) {
-          LOG.warn("Error unlocking since it is already released.", ex);
+            tw = newTriggerWrapper(trigger, WAITING, clock);
+          }
+
+          storeTriggerWrapper(tw);
+
+          final Date firedTime = new Date(clock.currentTimeMillis());
+          firedTriggerRecords.set(trigger.getFireInstanceId(), memberUuid != null
+              ? new FiredTriggerRecord(instanceId, memberUuid, trigger, job, firedTime.getTime())
+              : new FiredTriggerRecord(instanceId, trigger, job, firedTime.getTime(),
+                  firedTime.getTime() + triggerReleaseThreshold));
+
+          TriggerFiredBundle bndle = new TriggerFiredBundle(
+              job,
+              trigger,
+              cal,
+              Scheduler.DEFAULT_RECOVERY_GROUP.equals(trigger.getKey().getGroup()),
+              firedTime,
+              trigger.getPreviousFireTime(),
+              prevFireTime,
+              trigger.getNextFireTime());
+
+          final long scheduledFireTime = trigger.getPreviousFireTime().getTime();
+          final long lagMicros = clock.currentTimeMicros() - TimeUnit.MILLISECONDS.toMicros(scheduledFireTime);
+          metrics.recordFireLag(job.getKey().getGroup(), lagMicros);
+          fire.done(trigger.getKey(), job.getKey(), trigger.getFireInstanceId(), scheduledFireTime, lagMicros);
+          executingFireInstanceIds.add(trigger.getFireInstanceId());
+          results.add(new TriggerFiredResult(bndle));
+        } finally {
+          unlockTrigger(trigger.getKey());
+          if (lockedJobKey != null) {
+            unlockJob(lockedJobKey);
+          }
         }
       }
-    }
 
-    return results;
+      return results;
+    });
   }
 
   @Override
@@ -1013,73 +1648,117 @@ public class HazelcastJobStore implements JobStore, Serializable {
       JobDetail jobDetail,
       Trigger.CompletedExecutionInstruction triggerInstCode) {
 
-    TriggerWrapper tw = triggersByKey.get(trigger.getKey());
-
-    if (jobDetail.isPersistJobDataAfterExecution()) {
-      JobKey jobKey = jobDetail.getKey();
-      jobsByKey.lock(jobKey, 5, TimeUnit.SECONDS);
-      try {
-        jobsByKey.set(jobKey, jobDetail);
-        jobsByGroup.put(jobKey.getGroup(), jobKey);
-      } finally {
-        try {
-          jobsByKey.unlock(jobKey);
-        } catch (IllegalMonitorStateException ex) {
-          LOG.warn("Error unlocking since it is already released.", ex);
-        }
+    timed(JobStoreOperation.COMPLETE, "triggeredJobComplete", () -> {
+      if (trigger.getFireInstanceId() != null) {
+        firedTriggerRecords.delete(trigger.getFireInstanceId());
+        executingFireInstanceIds.remove(trigger.getFireInstanceId());
       }
-    } else if (jobDetail.isConcurrentExectionDisallowed()) {
 
-      ArrayList<TriggerWrapper> trigs = getTriggerWrappersForJob(jobDetail.getKey());
+      TriggerWrapper tw = triggersByKey.get(trigger.getKey());
 
-      for (TriggerWrapper ttw : trigs) {
-        // unblock all triggers
-        if (ttw.getState() == BLOCKED || ttw.getState() == ACQUIRED) {
-          storeTriggerWrapper(newTriggerWrapper(ttw, WAITING));
-        } else if (ttw.getState() == PAUSED_BLOCKED) {
-          storeTriggerWrapper(newTriggerWrapper(ttw, PAUSED));
+      if (jobDetail.isPersistJobDataAfterExecution()) {
+        JobKey jobKey = jobDetail.getKey();
+        lockJob(jobKey);
+        try {
+          jobsByKey.set(jobKey, jobDetail);
+          jobsByGroup.add(jobKey);
+        } finally {
+          unlockJob(jobKey);
         }
       }
-      schedSignaler.signalSchedulingChange(0L);
-    }
+      if (jobDetail.isConcurrentExectionDisallowed()) {
+        unblockTriggersOfJob(jobDetail.getKey());
+        schedSignaler.signalSchedulingChange(0L);
+      }
+
+      // check for trigger deleted during execution...
+      if (tw != null) {
+        if (triggerInstCode == CompletedExecutionInstruction.DELETE_TRIGGER) {
 
-    // check for trigger deleted during execution...
-    if (tw != null) {
-      if (triggerInstCode == CompletedExecutionInstruction.DELETE_TRIGGER) {
+          try {
+            if (trigger.getNextFireTime() == null) {
+              // double check for possible reschedule within job 
+              // execution, which would cancel the need to delete...
+              if (tw.getTrigger().getNextFireTime() == null) {
 
-        try {
-          if (trigger.getNextFireTime() == null) {
-            // double check for possible reschedule within job 
-            // execution, which would cancel the need to delete...
-            if (tw.getTrigger().getNextFireTime() == null) {
+                removeTrigger(trigger.getKey());
 
+              }
+            } else {
               removeTrigger(trigger.getKey());
-
+              schedSignaler.signalSchedulingChange(0L);
             }
-          } else {
-            removeTrigger(trigger.getKey());
-            schedSignaler.signalSchedulingChange(0L);
+          } catch (JobPersistenceException ex) {
+            LOG.error("Error removing trigger", ex);
           }
-        } catch (JobPersistenceException ex) {
-          LOG.error("Error removing trigger", ex);
+        } else if (triggerInstCode == CompletedExecutionInstruction.SET_TRIGGER_COMPLETE) {
+          storeTriggerWrapper(newTriggerWrapper(tw, STATE_COMPLETED, clock));
+          schedSignaler.signalSchedulingChange(0L);
+        } else if (triggerInstCode == CompletedExecutionInstruction.SET_TRIGGER_ERROR) {
+          LOG.warn("Trigger " + trigger.getKey() + " set to ERROR state.");
+          storeTriggerWrapper(newTriggerWrapper(tw, BLOCKED, clock));
+          schedSignaler.signalSchedulingChange(0L);
+        } else if (triggerInstCode == CompletedExecutionInstruction.SET_ALL_JOB_TRIGGERS_ERROR) {
+          LOG.info("All triggers of Job "
+              + trigger.getJobKey() + " set to ERROR state.");
+          storeTriggerWrapper(newTriggerWrapper(tw, BLOCKED, clock));
+          schedSignaler.signalSchedulingChange(0L);
+        } else if (triggerInstCode == CompletedExecutionInstruction.SET_ALL_JOB_TRIGGERS_COMPLETE) {
+          storeTriggerWrapper(newTriggerWrapper(tw, STATE_COMPLETED, clock));
+          schedSignaler.signalSchedulingChange(0L);
         }
-      } else if (triggerInstCode == CompletedExecutionInstruction.SET_TRIGGER_COMPLETE) {
-        storeTriggerWrapper(newTriggerWrapper(tw, STATE_COMPLETED));
-        schedSignaler.signalSchedulingChange(0L);
-      } else if (triggerInstCode == CompletedExecutionInstruction.SET_TRIGGER_ERROR) {
-        LOG.warn("Trigger " + trigger.getKey() + " set to ERROR state.");
-        storeTriggerWrapper(newTriggerWrapper(tw, BLOCKED));
-        schedSignaler.signalSchedulingChange(0L);
-      } else if (triggerInstCode == CompletedExecutionInstruction.SET_ALL_JOB_TRIGGERS_ERROR) {
-        LOG.info("All triggers of Job "
-            + trigger.getJobKey() + " set to ERROR state.");
-        storeTriggerWrapper(newTriggerWrapper(tw, BLOCKED));
-        schedSignaler.signalSchedulingChange(0L);
-      } else if (triggerInstCode == CompletedExecutionInstruction.SET_ALL_JOB_TRIGGERS_COMPLETE) {
-        storeTriggerWrapper(newTriggerWrapper(tw, STATE_COMPLETED));
-        schedSignaler.signalSchedulingChange(0L);
       }
+    });
+  }
+
+  /**
+   * Returns the triggers currently executing in the whole cluster fired after
+   * the last record of the previous page, oldest fire first. The firedTime
+   * index skips the records before it and every member sends at most one
+   * page, so the cost of a page doesn't grow with its depth.
+   *
+   * @param instanceId
+   *          the scheduler instance id whose fires to return, null for all
+   * @param after
+   *          the last record of the previous page, null for the first page
+   * @param pageSize
+   *          maximum number of records in the page
+   */
+  public List<FiredTriggerRecord> getCurrentlyExecutingTriggers(String instanceId, FiredTriggerRecord after,
+      int pageSize) {
+
+    final List<Predicate> predicates = new ArrayList<>();
+    if (instanceId != null) {
+      predicates.add(Predicates.equal("instanceId", instanceId));
     }
+    if (after != null) {
+      predicates.add(Predicates.greaterEqual("firedTime", after.getFiredTime()));
+      predicates.add(new FiredAfterPredicate(after.getFiredTime(), after.getFireInstanceId()));
+    }
+    final Comparator<Entry> comparator = new FiredTriggerRecordByFiredTimeComparator();
+    final PagingPredicate pagingPredicate = predicates.isEmpty()
+        ? new PagingPredicate(comparator, pageSize)
+        : new PagingPredicate(Predicates.and(predicates.toArray(new Predicate[predicates.size()])), comparator,
+            pageSize);
+    return new ArrayList<>(firedTriggerRecords.values(pagingPredicate));
+  }
+
+  /**
+   * Streams the triggers currently executing in the whole cluster, oldest fire
+   * first, read lazily a page at a time with
+   * {@link #getCurrentlyExecutingTriggers(String, FiredTriggerRecord, int)}.
+   */
+  public Stream<FiredTriggerRecord> streamCurrentlyExecutingTriggers(String instanceId, int pageSize) {
+
+    return PageIterator.stream((after, size) -> getCurrentlyExecutingTriggers(instanceId, after, size), pageSize);
+  }
+
+  /**
+   * @return number of triggers currently executing in the whole cluster
+   */
+  public int getNumberOfCurrentlyExecutingTriggers() {
+
+    return firedTriggerRecords.size();
   }
 
   @Override
@@ -1092,6 +1771,9 @@ public class HazelcastJobStore implements JobStore, Serializable {
   public void setInstanceId(String instanceId) {
 
     this.instanceId = instanceId;
+    if (fireInstanceIdGenerator != null) {
+      fireInstanceIdGenerator = newFireInstanceIdGenerator();
+    }
   }
 
   public void setShutdownHazelcastOnShutdown(boolean shutdownHazelcastOnShutdown) {
@@ -1099,6 +1781,17 @@ public class HazelcastJobStore implements JobStore, Serializable {
     this.shutdownHazelcastOnShutdown = shutdownHazelcastOnShutdown;
   }
 
+  /**
+   * Set the time source used to stamp acquired triggers, detect misfires and
+   * record fire times. Defaults to {@link JobStoreClock#SYSTEM}.
+   *
+   * @param clock
+   */
+  public void setClock(JobStoreClock clock) {
+
+    this.clock = clock;
+  }
+
   public long getMisfireThreshold() {
 
     return misfireThreshold;
@@ -1112,101 +1805,873 @@ public class HazelcastJobStore implements JobStore, Serializable {
   @Override
   public void setThreadPoolSize(int poolSize) {
 
-    // not need
+    this.threadPoolSize = poolSize;
   }
 
-  private ArrayList<TriggerWrapper> getTriggerWrappersForJob(JobKey jobKey) {
+  /**
+   * Let a single store of the cluster, the dispatch leader, acquire the due
+   * triggers and hand them to the others through a shared queue, instead of
+   * every store querying and locking triggers, see {@link LeaderDispatcher}.
+   * Disabled by default; has to be the same on every member.
+   *
+   * @param leaderDispatchEnabled
+   */
+  public void setLeaderDispatchEnabled(boolean leaderDispatchEnabled) {
 
-    ArrayList<TriggerWrapper> trigList = new ArrayList<>();
+    this.leaderDispatchEnabled = leaderDispatchEnabled;
+  }
 
-    triggersByKey.values().stream().filter((trigger) -> (trigger.jobKey.equals(jobKey))).forEach((trigger) -> {
-      trigList.add(trigger);
-    });
+  /**
+   * Set how many dispatched triggers the leader keeps queued at most, 100 by
+   * default.
+   *
+   * @param dispatchQueueCapacity
+   */
+  public void setDispatchQueueCapacity(int dispatchQueueCapacity) {
 
-    return trigList;
+    this.dispatchQueueCapacity = dispatchQueueCapacity;
   }
 
-  private boolean applyMisfire(TriggerWrapper tw)
-    throws JobPersistenceException {
+  /**
+   * Set how long before their fire time the leader dispatches triggers, 2
+   * seconds by default.
+   *
+   * @param dispatchLookaheadMillis
+   */
+  public void setDispatchLookaheadMillis(long dispatchLookaheadMillis) {
 
-    long misfireTime = DateBuilder.newDate().build().getTime();
-    if (misfireThreshold > 0) {
-      misfireTime -= misfireThreshold;
-    }
+    this.dispatchLookaheadMillis = dispatchLookaheadMillis;
+  }
 
-    Date tnft = tw.trigger.getNextFireTime();
+  /**
+   * Set how often the leader looks for due triggers, every 100 milliseconds by
+   * default.
+   *
+   * @param dispatchIntervalMillis
+   */
+  public void setDispatchIntervalMillis(long dispatchIntervalMillis) {
 
-    if (tnft == null
-        || tnft.getTime() > misfireTime
-        || tw.trigger.getMisfireInstruction() == Trigger.MISFIRE_INSTRUCTION_IGNORE_MISFIRE_POLICY) {
-      return false;
-    }
+    this.dispatchIntervalMillis = dispatchIntervalMillis;
+  }
 
-    Calendar cal = null;
-    if (tw.trigger.getCalendarName() != null) {
-      cal = retrieveCalendar(tw.trigger.getCalendarName());
-    }
+  /**
+   * Only look for due triggers in the partitions owned by this member, see
+   * {@link #setStealBatchSize(int)}. Disabled by default; needs the store to
+   * run on a Hazelcast member, not a client.
+   *
+   * @param partitionLocalAcquisitionEnabled
+   */
+  public void setPartitionLocalAcquisitionEnabled(boolean partitionLocalAcquisitionEnabled) {
 
-    this.schedSignaler
-        .notifyTriggerListenersMisfired((OperableTrigger) tw.trigger.clone());
+    this.partitionLocalAcquisitionEnabled = partitionLocalAcquisitionEnabled;
+  }
 
-    tw.trigger.updateAfterMisfire(cal);
+  /**
+   * With partition local acquisition, set how many due triggers a store with
+   * free threads and nothing due locally may take at once from the member with
+   * the largest backlog, 10 by default. 0 disables work stealing.
+   *
+   * @param stealBatchSize
+   */
+  public void setStealBatchSize(int stealBatchSize) {
 
-    if (tw.trigger.getNextFireTime() == null) {
-      storeTriggerWrapper(newTriggerWrapper(tw, STATE_COMPLETED));
-      schedSignaler.notifySchedulerListenersFinalized(tw.trigger);
+    this.stealBatchSize = stealBatchSize;
+  }
 
-    } else if (tnft.equals(tw.trigger.getNextFireTime())) {
-      return false;
-    }
+  /**
+   * Set how long a store waits for the due triggers of the member it steals
+   * from, 200 ms by default, before giving up and cancelling the request.
+   *
+   * @param stealTimeoutMillis
+   */
+  public void setStealTimeoutMillis(long stealTimeoutMillis) {
 
-    return true;
+    this.stealTimeoutMillis = stealTimeoutMillis;
   }
 
-  private synchronized String getFiredTriggerRecordId() {
+  /**
+   * @return whether this store is the one acquiring triggers for the cluster,
+   *         in leader dispatch mode
+   */
+  public boolean isDispatchLeader() {
 
-    return instanceId + ftrCtr++;
+    return dispatcher != null && dispatcher.isLeader();
   }
 
-  private boolean removeTrigger(TriggerKey key, boolean removeOrphanedJob)
-    throws JobPersistenceException {
+  /**
+   * @return how many more triggers this store can run: the thread pool size
+   *         less the triggers it acquired and hasn't fired yet and the jobs it
+   *         is running, as shared with the cluster
+   */
+  public int getFreeCapacity() {
 
-    boolean removed = false;
+    return Math.max(0, threadPoolSize - acquiredFireInstanceIds.size() - executingFireInstanceIds.size());
+  }
 
-    // remove from triggers by FQN map
-    triggersByKey.lock(key, 5, TimeUnit.SECONDS);
-    try {
-      final TriggerWrapper tw = triggersByKey.remove(key);
-      removed = tw != null;
-      if (removed) {
-        // remove from triggers by group
-        triggersByGroup.remove(key.getGroup(), key);
-        //        triggers.remove(tw);
+  /**
+   * Set the tags of this store, comma separated, e.g. "batch,gpu". Job groups
+   * can be pinned to tags with {@link #setJobGroupAffinity(String, Set)}.
+   *
+   * @param tags
+   */
+  public void setTags(String tags) {
 
-        if (removeOrphanedJob) {
-          JobDetail job = jobsByKey.get(tw.jobKey);
-          List<OperableTrigger> trigs = getTriggersForJob(tw.jobKey);
-          if ((trigs == null || trigs.isEmpty()) && (job != null && !job.isDurable())) {
-            if (removeJob(job.getKey())) {
-              schedSignaler.notifySchedulerListenersJobDeleted(job.getKey());
-            }
-          }
+    final Set<String> parsed = new HashSet<>();
+    for (String tag : tags.split(",")) {
+      if (!tag.trim().isEmpty()) {
+        parsed.add(tag.trim());
+      }
+    }
+    this.tags = parsed;
+  }
+
+  /**
+   * Pins a job group to the stores with one of the given instance ids,
+   * instance names or tags: other stores won't query, lock or acquire the
+   * triggers of its jobs. The affinity is kept in the grid, so it applies to
+   * every store of the cluster right away.
+   *
+   * @param jobGroup
+   * @param instancesOrTags instance ids, instance names or tags of the eligible
+   *          stores, null or empty to unpin the group
+   */
+  public void setJobGroupAffinity(String jobGroup, Set<String> instancesOrTags) {
+
+    if (instancesOrTags == null || instancesOrTags.isEmpty()) {
+      jobGroupAffinities.delete(jobGroup);
+    } else {
+      jobGroupAffinities.set(jobGroup, new HashSet<>(instancesOrTags));
+    }
+  }
+
+  /**
+   * @return the instance ids, instance names or tags each pinned job group is
+   *         pinned to
+   */
+  public Map<String, Set<String>> getJobGroupAffinities() {
+
+    return new TreeMap<>(jobGroupAffinities);
+  }
+
+  /**
+   * Limits how many triggers of a job group are acquired per second across the
+   * cluster, with a token bucket kept in the grid. Due triggers over the limit
+   * stay waiting until tokens are available, and only misfire when they are
+   * still waiting misfireThreshold after the last trigger denied a token.
+   * Applies to every store of the cluster right away.
+   *
+   * @param jobGroup
+   * @param permitsPerSecond triggers acquired per second, 0 or less to remove
+   *          the limit
+   * @param burst triggers that may be acquired at once after an idle period
+   */
+  public void setJobGroupRateLimit(String jobGroup, double permitsPerSecond, int burst) {
+
+    if (permitsPerSecond <= 0) {
+      rateLimits.delete(jobGroup);
+    } else {
+      rateLimits.executeOnKey(jobGroup, new ReplaceRateLimitProcessor(permitsPerSecond, Math.max(1, burst),
+          clock.currentTimeMillis()));
+    }
+  }
+
+  /**
+   * @return the rate limit of every rate limited job group
+   */
+  public Map<String, JobGroupRateLimit> getJobGroupRateLimits() {
+
+    return new TreeMap<>(rateLimits);
+  }
+
+  private Map<String, Double> getJobGroupRateLimitTokens() {
+
+    final long now = clock.currentTimeMillis();
+    final Map<String, Double> tokens = new TreeMap<>();
+    for (Map.Entry<String, JobGroupRateLimit> e : rateLimits.entrySet()) {
+      tokens.put(e.getKey(), e.getValue().getTokens(now));
+    }
+    return tokens;
+  }
+
+  /**
+   * @return the capacity of every scheduler instance of the cluster that
+   *         reported its thread pool size, by instance id
+   */
+  public Map<String, StoreCapacity> getClusterCapacity() {
+
+    return new TreeMap<>(capacities);
+  }
+
+  /**
+   * Delay the fire times of triggers by up to the given window, by an offset
+   * derived from the trigger key, to flatten the load of triggers sharing a
+   * schedule. 0, the default, disables it. Must be the same on every store.
+   *
+   * @param fireTimeSpreadMillis
+   */
+  public void setFireTimeSpreadMillis(long fireTimeSpreadMillis) {
+
+    fireTimeSpread.setWindowMillis(fireTimeSpreadMillis);
+  }
+
+  /**
+   * Set fire time spread windows of trigger groups, overriding
+   * {@link #setFireTimeSpreadMillis(long)}, as comma separated group=millis
+   * pairs, e.g. "tenants=300000,reports=0".
+   *
+   * @param fireTimeSpreadMillisByTriggerGroup
+   */
+  public void setFireTimeSpreadMillisByTriggerGroup(String fireTimeSpreadMillisByTriggerGroup) {
+
+    fireTimeSpread.setWindowMillisByTriggerGroup(fireTimeSpreadMillisByTriggerGroup);
+  }
+
+  /**
+   * Set how many jobs and triggers
+   * {@link #storeJobsAndTriggersInBulk(Iterator, boolean, BulkStoreListener)}
+   * writes at once, 1000 by default.
+   *
+   * @param bulkStoreBatchSize
+   */
+  public void setBulkStoreBatchSize(int bulkStoreBatchSize) {
+
+    this.bulkStoreBatchSize = bulkStoreBatchSize;
+  }
+
+  /**
+   * Set whether job and trigger groups are read from an index on the group
+   * attribute of the job and trigger maps, instead of the separate group
+   * MultiMaps updated after every store and remove. Must be the same on every
+   * member.
+   *
+   * @param groupIndexEnabled
+   */
+  public void setGroupIndexEnabled(boolean groupIndexEnabled) {
+
+    this.groupIndexEnabled = groupIndexEnabled;
+  }
+
+  /**
+   * Set how many acquisition candidates are fetched per query. With the default
+   * of 0 every due trigger is fetched at once and sorted locally; a positive
+   * value sorts on the members and fetches the best candidates page by page
+   * until the batch is full, which keeps acquisition cheap when far more
+   * triggers are due than can be acquired.
+   *
+   * @param acquireCandidatePageSize
+   */
+  public void setAcquireCandidatePageSize(int acquireCandidatePageSize) {
+
+    this.acquireCandidatePageSize = acquireCandidatePageSize;
+  }
+
+  /**
+   * Enable the operation metrics, see {@link #getMetrics()}. Disabled by
+   * default.
+   *
+   * @param metricsEnabled
+   */
+  public void setMetricsEnabled(boolean metricsEnabled) {
+
+    metrics.setEnabled(metricsEnabled);
+  }
+
+  /**
+   * Set a {@link MetricsExporter} implementation the metrics are periodically
+   * exported to.
+   *
+   * @param metricsExporterClass
+   */
+  public void setMetricsExporterClass(String metricsExporterClass) {
+
+    this.metricsExporterClass = metricsExporterClass;
+  }
+
+  /**
+   * Set how often the metrics are exported to the configured exporter, every
+   * minute by default.
+   *
+   * @param metricsExportIntervalMillis
+   */
+  public void setMetricsExportIntervalMillis(long metricsExportIntervalMillis) {
+
+    this.metricsExportIntervalMillis = metricsExportIntervalMillis;
+  }
+
+  public JobStoreMetrics getMetrics() {
+
+    return metrics;
+  }
+
+  /**
+   * Set how many job groups get their own fire lag histogram, 100 by default.
+   *
+   * @param maxFireLagJobGroups
+   */
+  public void setMaxFireLagJobGroups(int maxFireLagJobGroups) {
+
+    metrics.setMaxFireLagJobGroups(maxFireLagJobGroups);
+  }
+
+  /**
+   * Register the job store MBean, see {@link HazelcastJobStoreMXBean}. Enabled
+   * by default; trigger state counts are only right when every member of the
+   * cluster has it enabled.
+   *
+   * @param jmxEnabled
+   */
+  public void setJmxEnabled(boolean jmxEnabled) {
+
+    this.jmxEnabled = jmxEnabled;
+  }
+
+  /**
+   * Emit Java Flight Recorder events for acquisitions, fires, misfires, lost
+   * trigger releases and lock waits, see {@link JobStoreEvents}. Disabled by
+   * default, and ignored on JVMs without Flight Recorder.
+   *
+   * @param jfrEventsEnabled
+   */
+  public void setJfrEventsEnabled(boolean jfrEventsEnabled) {
+
+    this.jfrEventsEnabled = jfrEventsEnabled;
+  }
+
+  /**
+   * Log job store operations taking longer than the given time, with a
+   * breakdown of query time, lock waits, misfire handling, remote calls and
+   * entries touched, see {@link SlowOperationLog}. Disabled (0) by default;
+   * may be changed while the store runs, also through the MBean.
+   *
+   * @param slowOperationThresholdMillis
+   */
+  public void setSlowOperationThresholdMillis(long slowOperationThresholdMillis) {
+
+    slowOperations.setThresholdMillis(slowOperationThresholdMillis);
+  }
+
+  /**
+   * Set the lowest value {@link #getEstimatedTimeToReleaseAndAcquireTrigger()}
+   * returns, 0 by default.
+   *
+   * @param estimatedTimeToReleaseAndAcquireTriggerFloorMillis
+   */
+  public void setEstimatedTimeToReleaseAndAcquireTriggerFloorMillis(
+      long estimatedTimeToReleaseAndAcquireTriggerFloorMillis) {
+
+    releaseAndAcquireEstimate.setFloorMillis(estimatedTimeToReleaseAndAcquireTriggerFloorMillis);
+  }
+
+  /**
+   * Set the highest value {@link #getEstimatedTimeToReleaseAndAcquireTrigger()}
+   * returns, unbounded (0) by default.
+   *
+   * @param estimatedTimeToReleaseAndAcquireTriggerCeilingMillis
+   */
+  public void setEstimatedTimeToReleaseAndAcquireTriggerCeilingMillis(
+      long estimatedTimeToReleaseAndAcquireTriggerCeilingMillis) {
+
+    releaseAndAcquireEstimate.setCeilingMillis(estimatedTimeToReleaseAndAcquireTriggerCeilingMillis);
+  }
+
+  /**
+   * Due triggers in acquisition order, either fully fetched and sorted locally
+   * or fetched lazily in pages sorted on the members.
+   */
+  private class AcquisitionCandidates implements Iterator<TriggerWrapper> {
+
+    private final PagingPredicate pagingPredicate;
+
+    private Iterator<TriggerWrapper> page;
+
+    private boolean lastPage;
+
+    AcquisitionCandidates(long noLaterThanWithTimeWindow, JobGroupFilter jobGroups) {
+
+      final TriggersPredicate predicate = new TriggersPredicate(noLaterThanWithTimeWindow, jobGroups);
+      if (acquireCandidatePageSize > 0) {
+        pagingPredicate = new PagingPredicate(predicate, new TriggerWrapperComparator.ByEntry(),
+            acquireCandidatePageSize);
+        fetchPage();
+      } else {
+        pagingPredicate = null;
+        final long queryStartNanos = slowOperations.start();
+        final List<TriggerWrapper> candidates = new ArrayList<>(triggersByKey.values(predicate));
+        Collections.sort(candidates, TriggerWrapperComparator.INSTANCE);
+        slowOperations.recordQuery(queryStartNanos, candidates.size());
+        page = candidates.iterator();
+        lastPage = true;
+      }
+    }
+
+    private void fetchPage() {
+
+      final long queryStartNanos = slowOperations.start();
+      final Collection<TriggerWrapper> values = triggersByKey.values(pagingPredicate);
+      slowOperations.recordQuery(queryStartNanos, values.size());
+      page = values.iterator();
+      lastPage = values.size() < acquireCandidatePageSize;
+      pagingPredicate.nextPage();
+    }
+
+    @Override
+    public boolean hasNext() {
+
+      if (!page.hasNext() && !lastPage) {
+        fetchPage();
+      }
+      return page.hasNext();
+    }
+
+    @Override
+    public TriggerWrapper next() {
+
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return page.next();
+    }
+  }
+
+  private ArrayList<TriggerWrapper> getTriggerWrappersForJob(JobKey jobKey) {
+
+    ArrayList<TriggerWrapper> trigList = new ArrayList<>();
+
+    triggersByKey.values().stream().filter((trigger) -> (trigger.jobKey.equals(jobKey))).forEach((trigger) -> {
+      trigList.add(trigger);
+    });
+
+    return trigList;
+  }
+
+  /**
+   * @param lateSince when the trigger may have started being late, if after
+   *          its next fire time
+   */
+  private boolean applyMisfire(TriggerWrapper tw, long lateSince)
+    throws JobPersistenceException {
+
+    long misfireTime = clock.currentTimeMillis();
+    if (misfireThreshold > 0) {
+      misfireTime -= misfireThreshold;
+    }
+
+    Date tnft = tw.trigger.getNextFireTime();
+
+    if (tnft == null
+        || Math.max(tnft.getTime(), lateSince) > misfireTime
+        || tw.trigger.getMisfireInstruction() == Trigger.MISFIRE_INSTRUCTION_IGNORE_MISFIRE_POLICY) {
+      return false;
+    }
+
+    Calendar cal = null;
+    if (tw.trigger.getCalendarName() != null) {
+      cal = retrieveCalendar(tw.trigger.getCalendarName());
+    }
+
+    final long misfireStartNanos = slowOperations.start();
+    try {
+      metrics.recordMisfire();
+      this.schedSignaler
+          .notifyTriggerListenersMisfired((OperableTrigger) tw.trigger.clone());
+
+      tw.trigger.updateAfterMisfire(cal);
+      events.misfireApplied(tw.key, tw.trigger.getMisfireInstruction(), tnft.getTime(),
+          tw.trigger.getNextFireTime() == null ? 0 : tw.trigger.getNextFireTime().getTime());
+
+      if (tw.trigger.getNextFireTime() == null) {
+        storeTriggerWrapper(newTriggerWrapper(tw, STATE_COMPLETED, clock));
+        schedSignaler.notifySchedulerListenersFinalized(tw.trigger);
+
+      } else if (tnft.equals(tw.trigger.getNextFireTime())) {
+        return false;
+      }
+
+      return true;
+    } finally {
+      slowOperations.recordMisfire(misfireStartNanos);
+    }
+  }
+
+  /**
+   * Looks for fired trigger records left behind by cluster members that are
+   * gone, or by client stores whose lease expired. Records are claimed
+   * atomically on their owning partitions, so when several survivors run this
+   * concurrently each record is recovered once. Non concurrent jobs get their
+   * blocked triggers released, and jobs that request recovery get a one-shot
+   * trigger in {@link Scheduler#DEFAULT_RECOVERY_GROUP}. A record that can't be
+   * recovered is put back, to be claimed again on the next look.
+   * <p>
+   * Runs when the members change and, for the leases, once every
+   * triggerReleaseThreshold.
+   * </p>
+   */
+  private void recoverFiredTriggersOfLostMembers() {
+
+    final long now = clock.currentTimeMillis();
+    final Set<Member> members = hazelcastInstance.getCluster().getMembers();
+    if (members.equals(knownMembers) && now < nextLeaseCheck) {
+      return;
+    }
+
+    final Set<String> liveMembers = members.stream()
+        .map(Member::getUuid)
+        .collect(Collectors.toCollection(HashSet::new));
+    final Map<String, Object> lost = firedTriggerRecords
+        .executeOnEntries(new ClaimLostFiredTriggersProcessor(liveMembers, now));
+    // only once claimed, a failed claim, e.g. during migrations, is retried
+    knownMembers = members;
+    nextLeaseCheck = now + triggerReleaseThreshold;
+
+    for (Object value : lost.values()) {
+      if (value == null) {
+        continue;
+      }
+      final FiredTriggerRecord record = (FiredTriggerRecord) value;
+      LOG.info("Recovering fired trigger [{}] of lost member [{}]", record, record.getMemberUuid() != null
+          ? record.getMemberUuid()
+          : record.getInstanceId());
+      try {
+        // unblocking is idempotent, so it goes first should storing fail
+        if (record.isConcurrentExecutionDisallowed()) {
+          unblockTriggersOfJob(record.getJobKey());
+        }
+        if (record.isRequestsRecovery() && jobsByKey.containsKey(record.getJobKey())) {
+          storeTrigger(newRecoveryTrigger(record), false);
+        }
+        metrics.recordFiredTriggerRecovered();
+      } catch (JobPersistenceException | RuntimeException ex) {
+        LOG.error("Error recovering fired trigger " + record + ", putting it back", ex);
+        firedTriggerRecords.set(record.getFireInstanceId(), record);
+        knownMembers = Collections.emptySet();
+      }
+    }
+
+    if (!lost.isEmpty()) {
+      schedSignaler.signalSchedulingChange(0L);
+    }
+  }
+
+  /**
+   * Renews the leases of the fired trigger records of a client store, three
+   * times per lease so a late renewal doesn't let them expire.
+   */
+  private void startLeaseRenewer() {
+
+    leaseRenewer = Executors.newSingleThreadScheduledExecutor(r -> {
+      final Thread thread = new Thread(r, "hazelcast-job-store-lease-renewer-" + instanceId);
+      thread.setDaemon(true);
+      return thread;
+    });
+    final long period = Math.max(1, triggerReleaseThreshold / 3);
+    leaseRenewer.scheduleAtFixedRate(this::renewLeases, period, period, TimeUnit.MILLISECONDS);
+  }
+
+  private void renewLeases() {
+
+    if (executingFireInstanceIds.isEmpty()) {
+      return;
+    }
+    try {
+      firedTriggerRecords.executeOnKeys(new HashSet<>(executingFireInstanceIds),
+          new RenewFiredTriggerLeaseProcessor(clock.currentTimeMillis() + triggerReleaseThreshold));
+    } catch (RuntimeException ex) {
+      // e.g. the client is reconnecting, retried on the next run
+      LOG.warn("Error renewing the leases of the fired triggers of " + instanceId, ex);
+    }
+  }
+
+  private OperableTrigger newRecoveryTrigger(FiredTriggerRecord record) {
+
+    final TriggerKey originalKey = record.getTriggerKey();
+    final SimpleTriggerImpl recoveryTrigger = new SimpleTriggerImpl(
+        "recover_" + record.getFireInstanceId(),
+        Scheduler.DEFAULT_RECOVERY_GROUP,
+        new Date(record.getScheduledFireTime()));
+    recoveryTrigger.setJobKey(record.getJobKey());
+    recoveryTrigger.setMisfireInstruction(Trigger.MISFIRE_INSTRUCTION_IGNORE_MISFIRE_POLICY);
+    recoveryTrigger.setPriority(record.getPriority());
+
+    final TriggerWrapper original = triggersByKey.get(originalKey);
+    final JobDataMap jobDataMap = original != null && original.getTrigger().getJobDataMap() != null
+        ? new JobDataMap(original.getTrigger().getJobDataMap())
+        : new JobDataMap();
+    jobDataMap.put(Scheduler.FAILED_JOB_ORIGINAL_TRIGGER_NAME, originalKey.getName());
+    jobDataMap.put(Scheduler.FAILED_JOB_ORIGINAL_TRIGGER_GROUP, originalKey.getGroup());
+    jobDataMap.put(Scheduler.FAILED_JOB_ORIGINAL_TRIGGER_FIRETIME_IN_MILLISECONDS,
+        String.valueOf(record.getFiredTime()));
+    recoveryTrigger.setJobDataMap(jobDataMap);
+    recoveryTrigger.computeFirstFireTime(null);
+    return recoveryTrigger;
+  }
+
+  private String getLocalMemberUuid() {
+
+    try {
+      return hazelcastInstance.getCluster().getLocalMember().getUuid();
+    } catch (UnsupportedOperationException ex) {
+      // hazelcast clients are not members, their fires are recovered by lease
+      return null;
+    }
+  }
+
+  /**
+   * Fire instance ids are prefixed with a cluster wide unique id taken once
+   * from the grid, so stores sharing an instance id never collide.
+   */
+  private FireInstanceIdGenerator newFireInstanceIdGenerator() {
+
+    final long nodeId = hazelcastInstance.getIdGenerator(HC_JOB_STORE_FIRE_INSTANCE_ID_GENERATOR).newId();
+    return new FireInstanceIdGenerator(instanceId + "-" + Long.toString(nodeId, Character.MAX_RADIX) + "-");
+  }
+
+  /**
+   * Shares this store's capacity with the cluster, read to pick the store to
+   * steal from and by {@link #getClusterCapacity()}. Only published when the
+   * free capacity or the backlog changed by a quarter of the pool, or half
+   * of the backlog, went to or from zero, or half of its time to live went
+   * by, so most acquisitions make no remote call for it. Entries of stopped
+   * instances expire after the trigger release threshold.
+   */
+  private void publishCapacity() {
+
+    if (threadPoolSize <= 0 && !partitionLocalAcquisitionEnabled) {
+      return;
+    }
+    final long now = clock.currentTimeMillis();
+    final int acquired = acquiredFireInstanceIds.size();
+    final int executing = executingFireInstanceIds.size();
+    final int backlog = localBacklog;
+    final StoreCapacity published = publishedCapacity;
+    if (published == null
+        || changedSignificantly(published.getFreeCapacity(), getFreeCapacity(), threadPoolSize / 4)
+        || changedSignificantly(published.getBacklog(), backlog, published.getBacklog() / 2)
+        || published.getUpdatedAt() + triggerReleaseThreshold / 2 < now) {
+      final StoreCapacity capacity = new StoreCapacity(instanceId, memberUuid, threadPoolSize, acquired, executing,
+          backlog, metrics.isEnabled() ? metrics.getFireLag().getP99() : 0, now);
+      capacities.set(instanceId, capacity, triggerReleaseThreshold, TimeUnit.MILLISECONDS);
+      publishedCapacity = capacity;
+    }
+  }
+
+  private static boolean changedSignificantly(int published, int current, int step) {
+
+    return (published == 0) != (current == 0) || Math.abs(published - current) >= Math.max(1, step);
+  }
+
+  private MetricsExporter newMetricsExporter(ClassLoadHelper loadHelper)
+    throws SchedulerConfigException {
+
+    try {
+      final Class<?> exporterClass = loadHelper != null
+          ? loadHelper.loadClass(metricsExporterClass)
+          : Class.forName(metricsExporterClass);
+      return (MetricsExporter) exporterClass.newInstance();
+    } catch (ClassNotFoundException | InstantiationException | IllegalAccessException | ClassCastException ex) {
+      throw new SchedulerConfigException("Unable to create metrics exporter " + metricsExporterClass, ex);
+    }
+  }
+
+  /**
+   * Runs a job store operation, recording its latency in the metrics and
+   * tracing it for the slow operation log.
+   *
+   * @param operation the latency to record, null for none
+   * @param name the operation in the slow operation log
+   */
+  private <T, E extends Exception> T timed(JobStoreOperation operation, String name, Operation<T, E> body)
+    throws E {
+
+    final long startNanos = metrics.start();
+    final boolean traced = slowOperations.begin();
+    try {
+      return body.run();
+    } finally {
+      if (operation != null) {
+        metrics.record(operation, startNanos);
+      }
+      slowOperations.end(name, traced);
+    }
+  }
+
+  /**
+   * @see #timed(JobStoreOperation, String, Operation)
+   */
+  private <E extends Exception> void timed(JobStoreOperation operation, String name, VoidOperation<E> body)
+    throws E {
+
+    timed(operation, name, () -> {
+      body.run();
+      return null;
+    });
+  }
+
+  private interface Operation<T, E extends Exception> {
+
+    T run()
+      throws E;
+  }
+
+  private interface VoidOperation<E extends Exception> {
+
+    void run()
+      throws E;
+  }
+
+  private void lockTrigger(TriggerKey triggerKey) {
+
+    final long startNanos = metrics.start();
+    final JobStoreEvents.LockWait lockWait = events.lockWaitStarted();
+    final long slowStartNanos = slowOperations.start();
+    triggersByKey.lock(triggerKey, 5, TimeUnit.SECONDS);
+    metrics.recordLockWait(startNanos);
+    slowOperations.recordLockWait(slowStartNanos);
+    lockWait.done(HC_JOB_STORE_TRIGGER_BY_KEY_MAP, triggerKey);
+  }
+
+  /**
+   * Releases a trigger lock. Locks are leased for 5 seconds, so failing means
+   * the lease ran out before the holder was done.
+   */
+  private void unlockTrigger(TriggerKey triggerKey) {
+
+    try {
+      triggersByKey.unlock(triggerKey);
+    } catch (IllegalMonitorStateException ex) {
+      metrics.recordLockTimeout();
+      LOG.warn("Error unlocking since it is already released.", ex);
+    }
+  }
+
+  private void lockJob(JobKey jobKey) {
+
+    final long startNanos = metrics.start();
+    final JobStoreEvents.LockWait lockWait = events.lockWaitStarted();
+    final long slowStartNanos = slowOperations.start();
+    jobsByKey.lock(jobKey, 5, TimeUnit.SECONDS);
+    metrics.recordLockWait(startNanos);
+    slowOperations.recordLockWait(slowStartNanos);
+    lockWait.done(HC_JOB_STORE_MAP_JOB, jobKey);
+  }
+
+  private void unlockJob(JobKey jobKey) {
+
+    try {
+      jobsByKey.unlock(jobKey);
+    } catch (IllegalMonitorStateException ex) {
+      metrics.recordLockTimeout();
+      LOG.warn("Error unlocking since it is already released.", ex);
+    }
+  }
+
+  private boolean removeTrigger(TriggerKey key, boolean removeOrphanedJob)
+    throws JobPersistenceException {
+
+    final TriggerWrapper tw;
+
+    // remove from triggers by FQN map
+    lockTrigger(key);
+    try {
+      tw = triggersByKey.remove(key);
+      if (tw != null) {
+        if (triggerStateCounts != null) {
+          triggerStateCounts.transition(tw.getState(), null);
         }
+        // remove from triggers by group
+        triggersByGroup.remove(key);
+        //        triggers.remove(tw);
       }
     } finally {
-      try {
-        triggersByKey.unlock(key);
-      } catch (IllegalMonitorStateException ex) {
-        LOG.warn("Error unlocking since it is already released.", ex);
+      unlockTrigger(key);
+    }
+
+    // the job lock is never taken while holding a trigger lock, see triggersFired
+    if (tw != null && removeOrphanedJob) {
+      JobDetail job = jobsByKey.get(tw.jobKey);
+      List<OperableTrigger> trigs = getTriggersForJob(tw.jobKey);
+      if ((trigs == null || trigs.isEmpty()) && (job != null && !job.isDurable())) {
+        if (removeJob(job.getKey())) {
+          schedSignaler.notifySchedulerListenersJobDeleted(job.getKey());
+        }
+      }
+    }
+
+    return tw != null;
+  }
+
+  /**
+   * Blocks every trigger of a job disallowing concurrent execution, but the
+   * one being fired, until the job completes.
+   */
+  private void blockTriggersOfJob(JobKey jobKey, TriggerKey firedTriggerKey) {
+
+    for (TriggerWrapper ttw : getTriggerWrappersForJob(jobKey)) {
+      if (!ttw.key.equals(firedTriggerKey)) {
+        updateTriggerState(ttw.key, state -> state == WAITING || state == NORMAL || state == ACQUIRED
+            ? BLOCKED
+            : state == PAUSED ? PAUSED_BLOCKED : state);
       }
     }
+  }
+
+  private void unblockTriggersOfJob(JobKey jobKey) {
+
+    for (TriggerWrapper ttw : getTriggerWrappersForJob(jobKey)) {
+      updateTriggerState(ttw.key, state -> state == BLOCKED
+          ? WAITING
+          : state == PAUSED_BLOCKED ? PAUSED : state);
+    }
+  }
+
+  /**
+   * Moves a trigger to the state given by {@code transition} for its current
+   * state, re-reading it under its lock so concurrent changes aren't lost.
+   */
+  private void updateTriggerState(TriggerKey triggerKey, Function<TriggerState, TriggerState> transition) {
 
-    return removed;
+    lockTrigger(triggerKey);
+    try {
+      final TriggerWrapper tw = triggersByKey.get(triggerKey);
+      if (tw != null) {
+        final TriggerState state = transition.apply(tw.getState());
+        if (state != tw.getState()) {
+          storeTriggerWrapper(newTriggerWrapper(tw, state, clock));
+        }
+      }
+    } finally {
+      unlockTrigger(triggerKey);
+    }
   }
 
   private void storeTriggerWrapper(final TriggerWrapper tw) {
 
-    triggersByKey.set(tw.key, tw);
+    slowOperations.recordWrite(1);
+    if (triggerStateCounts == null) {
+      triggersByKey.set(tw.key, tw);
+    } else {
+      // swapped on the owner member, only the previous state comes back
+      final TriggerState previous = (TriggerState) triggersByKey.executeOnKey(tw.key,
+          new StoreTriggerWrapperProcessor(tw));
+      triggerStateCounts.transition(previous, tw.getState());
+    }
+  }
+
+  /**
+   * Stores a trigger in a single call, replacing the stored one or only if
+   * there is none.
+   *
+   * @return the state of the trigger stored before, null if there was none;
+   *         unless replacing, a stored trigger is left as it is
+   */
+  private TriggerState storeTriggerWrapper(final TriggerWrapper tw, boolean replaceExisting) {
+
+    slowOperations.recordWrite(1);
+    final TriggerState previous = (TriggerState) triggersByKey.executeOnKey(tw.key,
+        new StoreTriggerWrapperProcessor(tw, replaceExisting));
+    if (triggerStateCounts != null && (replaceExisting || previous == null)) {
+      triggerStateCounts.transition(previous, tw.getState());
+    }
+    return previous;
   }
 
   /**
@@ -1224,15 +2689,15 @@ public class HazelcastJobStore implements JobStore, Serializable {
   }
 
   protected IMap getMap(String name) {
-    return hazelcastClient.getMap(name);
+    return hazelcastInstance.getMap(name);
   }
 
   protected MultiMap getMultiMap(String name) {
-    return hazelcastClient.getMultiMap(name);
+    return hazelcastInstance.getMultiMap(name);
   }
 
   protected ISet getSet(String name) {
-    return hazelcastClient.getSet(name);
+    return hazelcastInstance.getSet(name);
   }
 
 }
@@ -1263,9 +2728,12 @@ class TriggersPredicate implements Predicate<TriggerKey, TriggerWrapper> {
 
   long noLaterThanWithTimeWindow;
 
-  public TriggersPredicate(long noLaterThanWithTimeWindow) {
+  JobGroupFilter jobGroups;
+
+  public TriggersPredicate(long noLaterThanWithTimeWindow, JobGroupFilter jobGroups) {
 
     this.noLaterThanWithTimeWindow = noLaterThanWithTimeWindow;
+    this.jobGroups = jobGroups;
   }
 
   @Override
@@ -1275,6 +2743,405 @@ class TriggersPredicate implements Predicate<TriggerKey, TriggerWrapper> {
       return false;
     }
 
-    return entry.getValue().getNextFireTime() <= noLaterThanWithTimeWindow;
+    return entry.getValue().getNextFireTime() <= noLaterThanWithTimeWindow
+        && jobGroups.accepts(entry.getValue().jobKey.getGroup());
+  }
+}
+
+/**
+ * The job groups a store may acquire triggers of, either all but the excluded
+ * groups or only the included ones. Evaluated on the members with the
+ * acquisition query.
+ */
+class JobGroupFilter implements Serializable {
+
+  static final JobGroupFilter ALL = new JobGroupFilter(Collections.emptySet(), false);
+
+  private final HashSet<String> jobGroups;
+
+  private final boolean include;
+
+  private JobGroupFilter(Set<String> jobGroups, boolean include) {
+
+    this.jobGroups = new HashSet<>(jobGroups);
+    this.include = include;
+  }
+
+  static JobGroupFilter excluding(Set<String> jobGroups) {
+
+    return jobGroups.isEmpty() ? ALL : new JobGroupFilter(jobGroups, false);
+  }
+
+  static JobGroupFilter only(Set<String> jobGroups) {
+
+    return new JobGroupFilter(jobGroups, true);
+  }
+
+  boolean accepts(String jobGroup) {
+
+    return jobGroups.contains(jobGroup) == include;
+  }
+
+  /**
+   * @return whether no job group is accepted
+   */
+  boolean isEmpty() {
+
+    return include && jobGroups.isEmpty();
+  }
+}
+
+/**
+ * Stores a trigger and returns the state of the one it replaced, null if
+ * there was none. Unless replacing, a stored trigger is kept.
+ */
+class StoreTriggerWrapperProcessor extends AbstractEntryProcessor<TriggerKey, TriggerWrapper> {
+
+  private final TriggerWrapper triggerWrapper;
+
+  private final boolean replaceExisting;
+
+  public StoreTriggerWrapperProcessor(TriggerWrapper triggerWrapper) {
+
+    this(triggerWrapper, true);
+  }
+
+  public StoreTriggerWrapperProcessor(TriggerWrapper triggerWrapper, boolean replaceExisting) {
+
+    this.triggerWrapper = triggerWrapper;
+    this.replaceExisting = replaceExisting;
+  }
+
+  @Override
+  public Object process(Entry<TriggerKey, TriggerWrapper> entry) {
+
+    final TriggerWrapper previous = entry.getValue();
+    if (previous == null || replaceExisting) {
+      entry.setValue(triggerWrapper);
+    }
+    return previous == null ? null : previous.getState();
+  }
+}
+
+/**
+ * Stores the value given for an entry's key only if the entry has none.
+ * Returns whether it stored it.
+ */
+class PutIfAbsentProcessor<K, V> extends AbstractEntryProcessor<K, V> {
+
+  private final HashMap<K, V> values;
+
+  public PutIfAbsentProcessor(HashMap<K, V> values) {
+
+    this.values = values;
+  }
+
+  @Override
+  public Object process(Entry<K, V> entry) {
+
+    if (entry.getValue() != null) {
+      return false;
+    }
+    entry.setValue(values.get(entry.getKey()));
+    return true;
+  }
+}
+
+/**
+ * Matches the fired trigger records following a given one in
+ * {@link FiredTriggerRecordByFiredTimeComparator} order.
+ */
+class FiredAfterPredicate implements Predicate<String, FiredTriggerRecord> {
+
+  private final long firedTime;
+
+  private final String fireInstanceId;
+
+  public FiredAfterPredicate(long firedTime, String fireInstanceId) {
+
+    this.firedTime = firedTime;
+    this.fireInstanceId = fireInstanceId;
+  }
+
+  @Override
+  public boolean apply(Entry<String, FiredTriggerRecord> entry) {
+
+    final FiredTriggerRecord record = entry.getValue();
+    return record != null && (record.getFiredTime() > firedTime
+        || record.getFiredTime() == firedTime && record.getFireInstanceId().compareTo(fireInstanceId) > 0);
+  }
+}
+
+/**
+ * Orders fired trigger records by fire time, then by fire instance id.
+ */
+class FiredTriggerRecordByFiredTimeComparator implements Comparator<Entry>, Serializable {
+
+  @Override
+  public int compare(Entry o1, Entry o2) {
+
+    final FiredTriggerRecord r1 = (FiredTriggerRecord) o1.getValue();
+    final FiredTriggerRecord r2 = (FiredTriggerRecord) o2.getValue();
+    final int result = Long.compare(r1.getFiredTime(), r2.getFiredTime());
+    return result != 0
+        ? result
+        : r1.getFireInstanceId().compareTo(r2.getFireInstanceId());
+  }
+}
+
+/**
+ * Removes and returns the fired trigger records whose member is no longer part
+ * of the cluster, or whose client store's lease expired.
+ */
+class ClaimLostFiredTriggersProcessor extends AbstractEntryProcessor<String, FiredTriggerRecord> {
+
+  private final Set<String> liveMembers;
+
+  private final long now;
+
+  public ClaimLostFiredTriggersProcessor(Set<String> liveMembers, long now) {
+
+    this.liveMembers = liveMembers;
+    this.now = now;
+  }
+
+  @Override
+  public Object process(Entry<String, FiredTriggerRecord> entry) {
+
+    final FiredTriggerRecord record = entry.getValue();
+    if (record == null) {
+      return null;
+    }
+    final boolean lost = record.getMemberUuid() != null
+        ? !liveMembers.contains(record.getMemberUuid())
+        : record.getLeaseExpiresAt() > 0 && record.getLeaseExpiresAt() < now;
+    if (!lost) {
+      return null;
+    }
+    entry.setValue(null);
+    return record;
+  }
+}
+
+/**
+ * Extends the lease of a client store's fired trigger record, unless it was
+ * already removed, e.g. claimed as lost.
+ */
+class RenewFiredTriggerLeaseProcessor extends AbstractEntryProcessor<String, FiredTriggerRecord> {
+
+  private final long leaseExpiresAt;
+
+  public RenewFiredTriggerLeaseProcessor(long leaseExpiresAt) {
+
+    this.leaseExpiresAt = leaseExpiresAt;
+  }
+
+  @Override
+  public Object process(Entry<String, FiredTriggerRecord> entry) {
+
+    final FiredTriggerRecord record = entry.getValue();
+    if (record != null) {
+      record.setLeaseExpiresAt(leaseExpiresAt);
+      entry.setValue(record);
+    }
+    return null;
+  }
+}
+
+/**
+ * Runs on the member a store steals from: the member's own due triggers that
+ * can be acquired, in fire time and priority order, at most maxCount.
+ */
+class LocalDueTriggersTask implements Callable<List<TriggerWrapper>>, HazelcastInstanceAware, Serializable {
+
+  private final String mapName;
+
+  private final long noLaterThanWithTimeWindow;
+
+  private final JobGroupFilter jobGroups;
+
+  private final int maxCount;
+
+  private transient HazelcastInstance hazelcastInstance;
+
+  public LocalDueTriggersTask(String mapName, long noLaterThanWithTimeWindow, JobGroupFilter jobGroups,
+      int maxCount) {
+
+    this.mapName = mapName;
+    this.noLaterThanWithTimeWindow = noLaterThanWithTimeWindow;
+    this.jobGroups = jobGroups;
+    this.maxCount = maxCount;
+  }
+
+  @Override
+  public void setHazelcastInstance(HazelcastInstance hazelcastInstance) {
+
+    this.hazelcastInstance = hazelcastInstance;
+  }
+
+  @Override
+  public List<TriggerWrapper> call() {
+
+    final IMap<TriggerKey, TriggerWrapper> triggersByKey = hazelcastInstance.getMap(mapName);
+    final Set<TriggerKey> keys = triggersByKey.localKeySet(
+        new TriggersPredicate(noLaterThanWithTimeWindow, jobGroups));
+    return triggersByKey.getAll(keys).values().stream()
+        .filter(tw -> tw.getState() == NORMAL || tw.getState() == WAITING)
+        .sorted(TriggerWrapperComparator.INSTANCE)
+        .limit(maxCount)
+        .collect(Collectors.toCollection(ArrayList::new));
+  }
+}
+
+/**
+ * The rate limit tokens of one acquisition. Tokens of a job group are taken
+ * from the grid in batches of what is left to acquire, and the ones left
+ * unused are given back at the end.
+ */
+class RateLimitTokens {
+
+  private final IMap<String, JobGroupRateLimit> rateLimits;
+
+  private final JobStoreClock clock;
+
+  private final Map<String, JobGroupRateLimit> limits;
+
+  private final Map<String, Integer> available = new HashMap<>();
+
+  private final Set<String> exhaustedJobGroups = new HashSet<>();
+
+  RateLimitTokens(IMap<String, JobGroupRateLimit> rateLimits, JobStoreClock clock) {
+
+    this.rateLimits = rateLimits;
+    this.clock = clock;
+    this.limits = new HashMap<>(rateLimits);
+  }
+
+  boolean isLimited(String jobGroup) {
+
+    return limits.containsKey(jobGroup);
+  }
+
+  /**
+   * @return when a trigger of the job group was last denied a token, before
+   *         this acquisition, 0 if never or not limited
+   */
+  long getDeniedAt(String jobGroup) {
+
+    final JobGroupRateLimit limit = limits.get(jobGroup);
+    return limit == null
+        ? 0
+        : limit.getDeniedAt();
+  }
+
+  boolean isExhausted(String jobGroup) {
+
+    return exhaustedJobGroups.contains(jobGroup);
+  }
+
+  /**
+   * @param batch tokens to take from the grid when none are left here
+   * @return whether a trigger of the job group may be acquired
+   */
+  boolean take(String jobGroup, int batch) {
+
+    if (!isLimited(jobGroup)) {
+      return true;
+    }
+    int tokens = available.getOrDefault(jobGroup, 0);
+    if (tokens == 0 && !isExhausted(jobGroup)) {
+      final Object taken = rateLimits.executeOnKey(jobGroup,
+          new TakeRateLimitTokensProcessor(batch, clock.currentTimeMillis()));
+      // a removed limit lets everything through
+      tokens = taken == null ? batch : (Integer) taken;
+    }
+    if (tokens == 0) {
+      exhaustedJobGroups.add(jobGroup);
+      return false;
+    }
+    available.put(jobGroup, tokens - 1);
+    return true;
+  }
+
+  void giveBack() {
+
+    for (Map.Entry<String, Integer> e : available.entrySet()) {
+      if (e.getValue() > 0) {
+        rateLimits.executeOnKey(e.getKey(), new GiveBackRateLimitTokensProcessor(e.getValue()));
+      }
+    }
+    available.clear();
+  }
+}
+
+class TakeRateLimitTokensProcessor extends AbstractEntryProcessor<String, JobGroupRateLimit> {
+
+  private final int max;
+
+  private final long now;
+
+  public TakeRateLimitTokensProcessor(int max, long now) {
+
+    this.max = max;
+    this.now = now;
+  }
+
+  @Override
+  public Object process(Entry<String, JobGroupRateLimit> entry) {
+
+    final JobGroupRateLimit rateLimit = entry.getValue();
+    if (rateLimit == null) {
+      return null;
+    }
+    final int taken = rateLimit.take(max, now);
+    entry.setValue(rateLimit);
+    return taken;
+  }
+}
+
+class ReplaceRateLimitProcessor extends AbstractEntryProcessor<String, JobGroupRateLimit> {
+
+  private final double permitsPerSecond;
+
+  private final int burst;
+
+  private final long now;
+
+  public ReplaceRateLimitProcessor(double permitsPerSecond, int burst, long now) {
+
+    this.permitsPerSecond = permitsPerSecond;
+    this.burst = burst;
+    this.now = now;
+  }
+
+  @Override
+  public Object process(Entry<String, JobGroupRateLimit> entry) {
+
+    final JobGroupRateLimit previous = entry.getValue();
+    entry.setValue(previous == null
+        ? new JobGroupRateLimit(permitsPerSecond, burst, now)
+        : previous.replace(permitsPerSecond, burst, now));
+    return null;
+  }
+}
+
+class GiveBackRateLimitTokensProcessor extends AbstractEntryProcessor<String, JobGroupRateLimit> {
+
+  private final int count;
+
+  public GiveBackRateLimitTokensProcessor(int count) {
+
+    this.count = count;
+  }
+
+  @Override
+  public Object process(Entry<String, JobGroupRateLimit> entry) {
+
+    final JobGroupRateLimit rateLimit = entry.getValue();
+    if (rateLimit != null) {
+      rateLimit.giveBack(count);
+      entry.setValue(rateLimit);
+    }
+    return null;
   }
 }
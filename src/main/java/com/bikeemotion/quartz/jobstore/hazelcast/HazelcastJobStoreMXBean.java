@@ -0,0 +1,107 @@
+package com.bikeemotion.quartz.jobstore.hazelcast;
+
+import java.util.Map;
+
+/**
+ * Live statistics of a {@link HazelcastJobStore}, registered under
+ * {@code com.bikeemotion.quartz.jobstore.hazelcast:type=HazelcastJobStore}
+ * with the scheduler name and instance id.
+ * <p>
+ * Trigger counts are cluster wide, everything else is about this store. Fire
+ * lag and lock wait are only recorded while metrics are enabled.
+ * </p>
+ */
+public interface HazelcastJobStoreMXBean {
+
+  /**
+   * Number of triggers per state, cluster wide.
+   */
+  Map<String, Long> getTriggerStateCounts();
+
+  long getTriggersAcquired();
+
+  /**
+   * Triggers acquired per second over the last minute.
+   */
+  double getTriggersAcquiredPerSecond();
+
+  long getFireLagP50Millis();
+
+  long getFireLagP90Millis();
+
+  long getFireLagP99Millis();
+
+  long getFireLagMaxMillis();
+
+  /**
+   * 99th percentile of the fire lag per job group, in microseconds.
+   */
+  Map<String, Long> getFireLagP99MicrosByJobGroup();
+
+  /**
+   * Maximum fire lag per job group, in microseconds.
+   */
+  Map<String, Long> getFireLagMaxMicrosByJobGroup();
+
+  /**
+   * Starts a new fire lag interval.
+   */
+  void resetFireLag();
+
+  long getMisfires();
+
+  /**
+   * Acquired triggers released because they were not fired in time.
+   */
+  long getLostTriggersReleased();
+
+  /**
+   * Fired triggers recovered from members that left the cluster.
+   */
+  long getFiredTriggersRecovered();
+
+  long getLockTimeouts();
+
+  long getLockWaitP99Micros();
+
+  /**
+   * What the store currently reports to Quartz as the time to release and
+   * acquire triggers again.
+   */
+  long getEstimatedTimeToReleaseAndAcquireTriggerMillis();
+
+  /**
+   * Threads each scheduler instance of the cluster has left for new triggers,
+   * as last published by the instance. Only instances with a known thread
+   * pool size are listed.
+   */
+  Map<String, Integer> getFreeCapacityByInstance();
+
+  /**
+   * Due triggers left waiting for rate limit tokens by this store, per job
+   * group.
+   */
+  Map<String, Long> getTriggersRateLimitedByJobGroup();
+
+  /**
+   * Rate limit tokens each rate limited job group has left, cluster wide.
+   */
+  Map<String, Double> getRateLimitTokensByJobGroup();
+
+  boolean isMetricsEnabled();
+
+  void setMetricsEnabled(boolean enabled);
+
+  /**
+   * Operations taking longer are logged, see {@link SlowOperationLog}; 0
+   * disables the log.
+   */
+  long getSlowOperationThresholdMillis();
+
+  void setSlowOperationThresholdMillis(long thresholdMillis);
+
+  /**
+   * Recounts the triggers per state with a full scan.
+   */
+  void recountTriggerStates();
+}
@@ -0,0 +1,300 @@
+package com.bikeemotion.quartz.jobstore.hazelcast;
+
+import com.bikeemotion.quartz.jobstore.hazelcast.metrics.HistogramSnapshot;
+import com.bikeemotion.quartz.jobstore.hazelcast.metrics.JobStoreMetrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link HazelcastJobStoreMXBean} of a store. Once a second it flushes the
+ * store's trigger state transitions to the grid and samples the number of
+ * acquired triggers for the acquisition rate.
+ */
+class HazelcastJobStoreStatistics implements HazelcastJobStoreMXBean {
+
+  private static final Logger LOG = LoggerFactory.getLogger(HazelcastJobStoreStatistics.class);
+
+  private static final String DOMAIN = "com.bikeemotion.quartz.jobstore.hazelcast";
+
+  /** One minute of one second samples, plus the one it starts from. */
+  private static final int RATE_SAMPLES = 61;
+
+  private final JobStoreMetrics metrics;
+
+  private final TriggerStateCounts triggerStateCounts;
+
+  private final Supplier<Collection<TriggerWrapper>> triggers;
+
+  private final LongSupplier estimatedTimeToReleaseAndAcquireTrigger;
+
+  private final Supplier<Map<String, StoreCapacity>> clusterCapacity;
+
+  private final Supplier<Map<String, Double>> rateLimitTokens;
+
+  private final SlowOperationLog slowOperations;
+
+  private final ObjectName objectName;
+
+  private final long[] acquiredSamples = new long[RATE_SAMPLES];
+
+  private int sampleCount;
+
+  private ScheduledExecutorService ticker;
+
+  HazelcastJobStoreStatistics(String instanceName, String instanceId, JobStoreMetrics metrics,
+      TriggerStateCounts triggerStateCounts, Supplier<Collection<TriggerWrapper>> triggers,
+      LongSupplier estimatedTimeToReleaseAndAcquireTrigger, Supplier<Map<String, StoreCapacity>> clusterCapacity,
+      Supplier<Map<String, Double>> rateLimitTokens, SlowOperationLog slowOperations)
+    throws JMException {
+
+    this.metrics = metrics;
+    this.triggerStateCounts = triggerStateCounts;
+    this.triggers = triggers;
+    this.estimatedTimeToReleaseAndAcquireTrigger = estimatedTimeToReleaseAndAcquireTrigger;
+    this.clusterCapacity = clusterCapacity;
+    this.rateLimitTokens = rateLimitTokens;
+    this.slowOperations = slowOperations;
+    this.objectName = new ObjectName(DOMAIN + ":type=HazelcastJobStore"
+        + ",name=" + ObjectName.quote(String.valueOf(instanceName))
+        + ",instance=" + ObjectName.quote(String.valueOf(instanceId)));
+  }
+
+  /**
+   * Registers the MBean, replacing one left behind by a store of the same
+   * scheduler, and starts the ticker.
+   */
+  void register()
+    throws JMException {
+
+    final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    if (server.isRegistered(objectName)) {
+      server.unregisterMBean(objectName);
+    }
+    server.registerMBean(this, objectName);
+
+    ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+      final Thread thread = new Thread(r, "hazelcast-job-store-statistics");
+      thread.setDaemon(true);
+      return thread;
+    });
+    ticker.scheduleAtFixedRate(this::tick, 1, 1, TimeUnit.SECONDS);
+  }
+
+  void unregister() {
+
+    if (ticker != null) {
+      ticker.shutdownNow();
+    }
+    try {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+    } catch (JMException ex) {
+      LOG.debug("Job store MBean " + objectName + " was not registered", ex);
+    }
+  }
+
+  ObjectName getObjectName() {
+
+    return objectName;
+  }
+
+  private void tick() {
+
+    try {
+      triggerStateCounts.flush();
+    } catch (RuntimeException ex) {
+      // e.g. the hazelcast instance is shutting down, kept for the next tick
+      LOG.debug("Error flushing trigger state counts", ex);
+    }
+    synchronized (acquiredSamples) {
+      acquiredSamples[sampleCount++ % RATE_SAMPLES] = metrics.getTriggersAcquired();
+    }
+  }
+
+  @Override
+  public Map<String, Long> getTriggerStateCounts() {
+
+    final Map<String, Long> counts = new LinkedHashMap<>();
+    for (Map.Entry<TriggerState, Long> e : triggerStateCounts.get().entrySet()) {
+      counts.put(e.getKey().name(), e.getValue());
+    }
+    return counts;
+  }
+
+  @Override
+  public long getTriggersAcquired() {
+
+    return metrics.getTriggersAcquired();
+  }
+
+  @Override
+  public double getTriggersAcquiredPerSecond() {
+
+    synchronized (acquiredSamples) {
+      if (sampleCount < 2) {
+        return 0;
+      }
+      final int seconds = Math.min(sampleCount, RATE_SAMPLES) - 1;
+      final long latest = acquiredSamples[(sampleCount - 1) % RATE_SAMPLES];
+      final long oldest = acquiredSamples[(sampleCount - 1 - seconds) % RATE_SAMPLES];
+      return (double) (latest - oldest) / seconds;
+    }
+  }
+
+  @Override
+  public long getFireLagP50Millis() {
+
+    return TimeUnit.MICROSECONDS.toMillis(fireLag().getP50());
+  }
+
+  @Override
+  public long getFireLagP90Millis() {
+
+    return TimeUnit.MICROSECONDS.toMillis(fireLag().getP90());
+  }
+
+  @Override
+  public long getFireLagP99Millis() {
+
+    return TimeUnit.MICROSECONDS.toMillis(fireLag().getP99());
+  }
+
+  @Override
+  public long getFireLagMaxMillis() {
+
+    return TimeUnit.MICROSECONDS.toMillis(fireLag().getMax());
+  }
+
+  private HistogramSnapshot fireLag() {
+
+    return metrics.getFireLag();
+  }
+
+  @Override
+  public Map<String, Long> getFireLagP99MicrosByJobGroup() {
+
+    final Map<String, Long> lags = new LinkedHashMap<>();
+    for (Map.Entry<String, HistogramSnapshot> e : metrics.getFireLagByJobGroup().entrySet()) {
+      lags.put(e.getKey(), e.getValue().getP99());
+    }
+    return lags;
+  }
+
+  @Override
+  public Map<String, Long> getFireLagMaxMicrosByJobGroup() {
+
+    final Map<String, Long> lags = new LinkedHashMap<>();
+    for (Map.Entry<String, HistogramSnapshot> e : metrics.getFireLagByJobGroup().entrySet()) {
+      lags.put(e.getKey(), e.getValue().getMax());
+    }
+    return lags;
+  }
+
+  @Override
+  public void resetFireLag() {
+
+    metrics.snapshotAndResetFireLag();
+  }
+
+  @Override
+  public long getMisfires() {
+
+    return metrics.getMisfires();
+  }
+
+  @Override
+  public long getLostTriggersReleased() {
+
+    return metrics.getLostTriggersReleased();
+  }
+
+  @Override
+  public long getFiredTriggersRecovered() {
+
+    return metrics.getFiredTriggersRecovered();
+  }
+
+  @Override
+  public long getLockTimeouts() {
+
+    return metrics.getLockTimeouts();
+  }
+
+  @Override
+  public long getLockWaitP99Micros() {
+
+    return TimeUnit.NANOSECONDS.toMicros(metrics.getLockWait().getP99());
+  }
+
+  @Override
+  public long getEstimatedTimeToReleaseAndAcquireTriggerMillis() {
+
+    return estimatedTimeToReleaseAndAcquireTrigger.getAsLong();
+  }
+
+  @Override
+  public Map<String, Integer> getFreeCapacityByInstance() {
+
+    final Map<String, Integer> freeCapacity = new LinkedHashMap<>();
+    for (Map.Entry<String, StoreCapacity> e : clusterCapacity.get().entrySet()) {
+      freeCapacity.put(e.getKey(), e.getValue().getFreeCapacity());
+    }
+    return freeCapacity;
+  }
+
+  @Override
+  public Map<String, Long> getTriggersRateLimitedByJobGroup() {
+
+    return metrics.getTriggersRateLimitedByJobGroup();
+  }
+
+  @Override
+  public Map<String, Double> getRateLimitTokensByJobGroup() {
+
+    return rateLimitTokens.get();
+  }
+
+  @Override
+  public boolean isMetricsEnabled() {
+
+    return metrics.isEnabled();
+  }
+
+  @Override
+  public void setMetricsEnabled(boolean enabled) {
+
+    metrics.setEnabled(enabled);
+  }
+
+  @Override
+  public long getSlowOperationThresholdMillis() {
+
+    return slowOperations.getThresholdMillis();
+  }
+
+  @Override
+  public void setSlowOperationThresholdMillis(long thresholdMillis) {
+
+    slowOperations.setThresholdMillis(thresholdMillis);
+  }
+
+  @Override
+  public void recountTriggerStates() {
+
+    triggerStateCounts.recount(triggers.get());
+  }
+}
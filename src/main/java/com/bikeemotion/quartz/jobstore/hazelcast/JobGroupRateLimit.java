@@ -0,0 +1,144 @@
+package com.bikeemotion.quartz.jobstore.hazelcast;
+
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.DataSerializable;
+
+import java.io.IOException;
+
+/**
+ * Token bucket limiting how many triggers of a job group are acquired per
+ * second across the cluster: it holds up to burst tokens, refilled at
+ * permitsPerSecond, and every acquired trigger takes one. It also remembers
+ * when a trigger was last denied a token, which is when the triggers it defers
+ * start being late. Kept in the grid and
+ * only changed by entry processors on the member owning it, see
+ * {@link HazelcastJobStore#setJobGroupRateLimit(String, double, int)}.
+ */
+public class JobGroupRateLimit implements DataSerializable {
+
+  private double permitsPerSecond;
+
+  private int burst;
+
+  private double tokens;
+
+  private long refilledAt;
+
+  private long deniedAt;
+
+  public JobGroupRateLimit() {
+
+  }
+
+  public JobGroupRateLimit(double permitsPerSecond, int burst, long now) {
+
+    this.permitsPerSecond = permitsPerSecond;
+    this.burst = burst;
+    this.tokens = burst;
+    this.refilledAt = now;
+  }
+
+  public double getPermitsPerSecond() {
+
+    return permitsPerSecond;
+  }
+
+  public int getBurst() {
+
+    return burst;
+  }
+
+  /**
+   * @return the tokens left when the bucket was last refilled
+   */
+  public double getTokens() {
+
+    return tokens;
+  }
+
+  /**
+   * @return the tokens available at the given time
+   */
+  public double getTokens(long now) {
+
+    return Math.min(burst, tokens + Math.max(0, now - refilledAt) * permitsPerSecond / 1000);
+  }
+
+  /**
+   * @return when a trigger was last denied a token, 0 if never
+   */
+  public long getDeniedAt() {
+
+    return deniedAt;
+  }
+
+  /**
+   * @return the number of tokens taken, up to max, none meaning a trigger was
+   *         denied one
+   */
+  int take(int max, long now) {
+
+    tokens = getTokens(now);
+    refilledAt = Math.max(refilledAt, now);
+    final int taken = (int) Math.min(max, Math.floor(tokens));
+    tokens -= taken;
+    if (taken == 0) {
+      deniedAt = Math.max(deniedAt, now);
+    }
+    return taken;
+  }
+
+  /**
+   * @return a full bucket with the given limit, keeping the last denial, as
+   *         the triggers it deferred are still waiting
+   */
+  JobGroupRateLimit replace(double permitsPerSecond, int burst, long now) {
+
+    final JobGroupRateLimit replaced = new JobGroupRateLimit(permitsPerSecond, burst, now);
+    replaced.deniedAt = deniedAt;
+    return replaced;
+  }
+
+  /**
+   * Gives back tokens taken but not used.
+   */
+  void giveBack(int count) {
+
+    tokens = Math.min(burst, tokens + count);
+  }
+
+  @Override
+  public void writeData(ObjectDataOutput out)
+    throws IOException {
+
+    out.writeDouble(permitsPerSecond);
+    out.writeInt(burst);
+    out.writeDouble(tokens);
+    out.writeLong(refilledAt);
+    out.writeLong(deniedAt);
+  }
+
+  @Override
+  public void readData(ObjectDataInput in)
+    throws IOException {
+
+    permitsPerSecond = in.readDouble();
+    burst = in.readInt();
+    tokens = in.readDouble();
+    refilledAt = in.readLong();
+    deniedAt = in.readLong();
+  }
+
+  @Override
+  public String toString() {
+
+    return "JobGroupRateLimit{"
+        + "permitsPerSecond=" + permitsPerSecond
+        + ", burst=" + burst
+        + ", tokens=" + tokens
+        + ", refilledAt=" + refilledAt
+        + ", deniedAt=" + deniedAt
+        + '}';
+  }
+}
@@ -0,0 +1,57 @@
+package com.bikeemotion.quartz.jobstore.hazelcast;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Source of the current time used by the job store when creating trigger
+ * wrappers, applying misfires and acquiring triggers. Tests and benchmarks can
+ * plug their own implementation to drive time deterministically. Named apart
+ * from {@link java.time.Clock}, which it doesn't extend.
+ */
+public interface JobStoreClock {
+
+  /**
+   * Plain {@link System#currentTimeMillis()} clock, the default.
+   */
+  JobStoreClock SYSTEM = new JobStoreClock() {
+
+    @Override
+    public long currentTimeMillis() {
+
+      return System.currentTimeMillis();
+    }
+
+    @Override
+    public long currentTimeMicros() {
+
+      return systemTimeMicros();
+    }
+  };
+
+  /**
+   * @return the current time in milliseconds since the epoch
+   */
+  long currentTimeMillis();
+
+  /**
+   * Used to measure fire lag. Derived from {@link #currentTimeMillis()} unless
+   * the implementation knows better.
+   *
+   * @return the current time in microseconds since the epoch
+   */
+  default long currentTimeMicros() {
+
+    return TimeUnit.MILLISECONDS.toMicros(currentTimeMillis());
+  }
+
+  /**
+   * @return the system time in microseconds since the epoch, with microsecond
+   *         precision where the JVM provides it (Java 9 and later)
+   */
+  static long systemTimeMicros() {
+
+    final Instant now = Instant.now();
+    return TimeUnit.SECONDS.toMicros(now.getEpochSecond()) + TimeUnit.NANOSECONDS.toMicros(now.getNano());
+  }
+}
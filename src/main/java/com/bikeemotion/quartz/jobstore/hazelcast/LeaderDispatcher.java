@@ -0,0 +1,242 @@
+package com.bikeemotion.quartz.jobstore.hazelcast;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.ILock;
+import com.hazelcast.core.IQueue;
+import com.hazelcast.core.ITopic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+import org.quartz.JobPersistenceException;
+import org.quartz.spi.OperableTrigger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Leader based acquisition: one store of the cluster, the holder of a
+ * distributed lock, scans and acquires the due triggers and puts them in a
+ * shared queue, which every store's acquireNextTriggers drains. Only the leader
+ * runs the candidate query and contends on trigger locks, however many nodes
+ * the cluster has.
+ * <p>
+ * The lock is released when the leader's member leaves the cluster, so another
+ * store's dispatcher, waiting on it, takes over. Queued triggers stay
+ * ACQUIRED, a queue item is taken by a single store, and triggersFired checks
+ * the fire instance id, so a trigger is never fired twice; triggers lost in
+ * the queue are released by the leader after the trigger release threshold.
+ * Stores are woken up through a topic whenever triggers are dispatched.
+ * </p>
+ * <p>
+ * A dispatcher is stopped, giving up the leadership, while its scheduler is
+ * paused, and started again when it resumes.
+ * </p>
+ */
+class LeaderDispatcher {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LeaderDispatcher.class);
+
+  static final String LEADER_LOCK = "job-store-dispatch-leader";
+  static final String QUEUE = "job-store-dispatch-queue";
+  static final String TOPIC = "job-store-dispatch-topic";
+
+  /**
+   * Acquires due triggers the way acquireNextTriggers does.
+   */
+  interface Claimer {
+
+    /**
+     * @return the number of candidates looked at
+     */
+    int claim(long noLaterThan, int maxCount, List<OperableTrigger> claimed)
+      throws JobPersistenceException;
+  }
+
+  private final String instanceId;
+
+  private final Claimer claimer;
+
+  private final JobStoreClock clock;
+
+  private final ILock leaderLock;
+
+  private final IQueue<DispatchedTrigger> queue;
+
+  private final ITopic<Long> topic;
+
+  private final LongConsumer onDispatch;
+
+  private final int queueCapacity;
+
+  private final long lookaheadMillis;
+
+  private final long intervalMillis;
+
+  private String listenerId;
+
+  private Thread thread;
+
+  private volatile boolean running;
+
+  private volatile boolean leader;
+
+  /**
+   * @param onDispatch called on every store with the earliest fire time of the
+   *          triggers just dispatched
+   * @param queueCapacity triggers the leader keeps queued at most
+   * @param lookaheadMillis how far ahead of their fire time triggers are
+   *          dispatched
+   * @param intervalMillis how often the leader looks for due triggers
+   */
+  LeaderDispatcher(HazelcastInstance hazelcastInstance, String instanceId, Claimer claimer, JobStoreClock clock,
+      LongConsumer onDispatch, int queueCapacity, long lookaheadMillis, long intervalMillis) {
+
+    this.instanceId = instanceId;
+    this.claimer = claimer;
+    this.clock = clock;
+    this.leaderLock = hazelcastInstance.getLock(LEADER_LOCK);
+    this.queue = hazelcastInstance.getQueue(QUEUE);
+    this.topic = hazelcastInstance.getTopic(TOPIC);
+    this.onDispatch = onDispatch;
+    this.queueCapacity = queueCapacity;
+    this.lookaheadMillis = lookaheadMillis;
+    this.intervalMillis = intervalMillis;
+  }
+
+  /**
+   * Starts competing for the leadership, unless already started.
+   */
+  void start() {
+
+    if (running) {
+      return;
+    }
+    running = true;
+    listenerId = topic.addMessageListener(message -> onDispatch.accept(message.getMessageObject()));
+    thread = new Thread(this::run, "hazelcast-job-store-dispatcher-" + instanceId);
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Stops dispatching and releases the leadership, if held, so another
+   * store's dispatcher takes over. May be started again.
+   */
+  void stop() {
+
+    running = false;
+    if (thread != null) {
+      thread.interrupt();
+      try {
+        thread.join(TimeUnit.SECONDS.toMillis(5));
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+      thread = null;
+    }
+    if (listenerId != null) {
+      try {
+        topic.removeMessageListener(listenerId);
+      } catch (RuntimeException ex) {
+        LOG.debug("Error removing the dispatch listener", ex);
+      }
+      listenerId = null;
+    }
+  }
+
+  boolean isLeader() {
+
+    return leader;
+  }
+
+  /**
+   * @return up to maxCount dispatched triggers, which may have been paused,
+   *         removed or released since
+   */
+  List<DispatchedTrigger> take(int maxCount) {
+
+    final List<DispatchedTrigger> taken = new ArrayList<>();
+    while (taken.size() < maxCount) {
+      final DispatchedTrigger dispatched = queue.poll();
+      if (dispatched == null) {
+        break;
+      }
+      taken.add(dispatched);
+    }
+    return taken;
+  }
+
+  /**
+   * Puts back dispatched triggers a store took but can't acquire yet, e.g. due
+   * after the end of its acquisition window, for the next acquisition of any
+   * store.
+   */
+  void requeue(List<DispatchedTrigger> dispatched) {
+
+    for (DispatchedTrigger d : dispatched) {
+      queue.offer(d);
+    }
+  }
+
+  private void run() {
+
+    while (running) {
+      try {
+        if (!leaderLock.tryLock(intervalMillis, TimeUnit.MILLISECONDS)) {
+          continue;
+        }
+      } catch (InterruptedException ex) {
+        return;
+      } catch (RuntimeException ex) {
+        LOG.warn("Error trying to become the dispatch leader", ex);
+        continue;
+      }
+      leader = true;
+      LOG.info("{} is now the trigger dispatch leader", instanceId);
+      try {
+        while (running) {
+          try {
+            dispatch();
+          } catch (RuntimeException ex) {
+            LOG.warn("Error dispatching triggers", ex);
+          }
+          Thread.sleep(intervalMillis);
+        }
+      } catch (InterruptedException ex) {
+        return;
+      } finally {
+        leader = false;
+        try {
+          leaderLock.unlock();
+        } catch (RuntimeException ex) {
+          LOG.debug("Error releasing the dispatch leadership", ex);
+        }
+      }
+    }
+  }
+
+  private void dispatch() {
+
+    final int room = queueCapacity - queue.size();
+    if (room <= 0) {
+      return;
+    }
+    final List<OperableTrigger> claimed = new ArrayList<>();
+    try {
+      claimer.claim(clock.currentTimeMillis() + lookaheadMillis, room, claimed);
+    } catch (JobPersistenceException | RuntimeException ex) {
+      LOG.warn("Error acquiring triggers to dispatch", ex);
+    }
+    // whatever was claimed before a failure is dispatched all the same
+    long earliestFireTime = Long.MAX_VALUE;
+    for (OperableTrigger trigger : claimed) {
+      queue.offer(new DispatchedTrigger(trigger.getKey(), trigger.getFireInstanceId()));
+      earliestFireTime = Math.min(earliestFireTime, trigger.getNextFireTime().getTime());
+    }
+    if (!claimed.isEmpty()) {
+      topic.publish(earliestFireTime);
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package com.bikeemotion.quartz.jobstore.hazelcast;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.quartz.JobPersistenceException;
+
+/**
+ * Iterates over sorted items read lazily a page at a time, every page starting
+ * after the last item of the previous one, so only one page is held at once.
+ */
+class PageIterator<T> implements Iterator<T> {
+
+  interface PageReader<T> {
+
+    /**
+     * @return up to pageSize items following the given one, or the first ones
+     *         when it is null
+     */
+    List<T> read(T after, int pageSize)
+      throws JobPersistenceException;
+  }
+
+  private final PageReader<T> reader;
+
+  private final int pageSize;
+
+  private Iterator<T> page;
+
+  private T last;
+
+  private boolean lastPage;
+
+  PageIterator(PageReader<T> reader, int pageSize) {
+
+    if (pageSize <= 0) {
+      throw new IllegalArgumentException("Page size must be positive, got " + pageSize);
+    }
+    this.reader = reader;
+    this.pageSize = pageSize;
+  }
+
+  /**
+   * @return the items of every page, failing with an IllegalStateException
+   *         when a page can't be read
+   */
+  static <T> Stream<T> stream(PageReader<T> reader, int pageSize) {
+
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new PageIterator<>(reader, pageSize),
+        Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+  }
+
+  private void readPage() {
+
+    final List<T> items;
+    try {
+      items = reader.read(last, pageSize);
+    } catch (JobPersistenceException ex) {
+      throw new IllegalStateException("Unable to read the page following " + last, ex);
+    }
+    page = items.iterator();
+    lastPage = items.size() < pageSize;
+  }
+
+  @Override
+  public boolean hasNext() {
+
+    if ((page == null || !page.hasNext()) && !lastPage) {
+      readPage();
+    }
+    return page.hasNext();
+  }
+
+  @Override
+  public T next() {
+
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    last = page.next();
+    return last;
+  }
+}
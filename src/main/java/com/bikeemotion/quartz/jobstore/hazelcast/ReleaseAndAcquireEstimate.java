@@ -0,0 +1,80 @@
+package com.bikeemotion.quartz.jobstore.hazelcast;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moving estimate of the time it takes to release an acquired trigger and
+ * acquire triggers again, which Quartz weighs against the time left before the
+ * triggers it holds fire when a new trigger is scheduled. Kept as exponentially
+ * weighted moving averages of the measured acquireNextTriggers and
+ * releaseAcquiredTrigger durations, clamped to an optional floor and ceiling.
+ */
+class ReleaseAndAcquireEstimate {
+
+  /** Estimate until an acquisition was measured, Quartz's RAMJobStore value. */
+  static final long DEFAULT_MILLIS = 25;
+
+  /** Weight of a new sample, about the last 20 samples count. */
+  private static final double ALPHA = 0.1;
+
+  private static final long NO_SAMPLE = Double.doubleToRawLongBits(Double.NaN);
+
+  private final AtomicLong acquireNanos = new AtomicLong(NO_SAMPLE);
+
+  private final AtomicLong releaseNanos = new AtomicLong(NO_SAMPLE);
+
+  private volatile long floorMillis;
+
+  private volatile long ceilingMillis;
+
+  void setFloorMillis(long floorMillis) {
+
+    this.floorMillis = floorMillis;
+  }
+
+  /**
+   * @param ceilingMillis 0 or less for no ceiling
+   */
+  void setCeilingMillis(long ceilingMillis) {
+
+    this.ceilingMillis = ceilingMillis;
+  }
+
+  void recordAcquire(long startNanos) {
+
+    update(acquireNanos, System.nanoTime() - startNanos);
+  }
+
+  void recordRelease(long startNanos) {
+
+    update(releaseNanos, System.nanoTime() - startNanos);
+  }
+
+  long getMillis() {
+
+    final double acquire = Double.longBitsToDouble(acquireNanos.get());
+    final double release = Double.longBitsToDouble(releaseNanos.get());
+    long millis = Double.isNaN(acquire)
+        ? DEFAULT_MILLIS
+        : (long) Math.ceil((acquire + (Double.isNaN(release) ? 0 : release)) / TimeUnit.MILLISECONDS.toNanos(1));
+    final long ceiling = ceilingMillis;
+    if (ceiling > 0) {
+      millis = Math.min(millis, ceiling);
+    }
+    return Math.max(millis, floorMillis);
+  }
+
+  private static void update(AtomicLong average, long sampleNanos) {
+
+    long current;
+    long updated;
+    do {
+      current = average.get();
+      final double currentNanos = Double.longBitsToDouble(current);
+      updated = Double.doubleToRawLongBits(Double.isNaN(currentNanos)
+          ? sampleNanos
+          : currentNanos + ALPHA * (sampleNanos - currentNanos));
+    } while (!average.compareAndSet(current, updated));
+  }
+}
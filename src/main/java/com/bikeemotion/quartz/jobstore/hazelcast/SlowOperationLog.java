@@ -0,0 +1,200 @@
+package com.bikeemotion.quartz.jobstore.hazelcast;
+
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Logs job store operations slower than a threshold, as one line with where the
+ * time went: candidate queries, lock waits, misfire handling, remote calls and
+ * entries touched.
+ * <p>
+ * Every traced operation runs between {@link #begin()} and
+ * {@link #end(String, boolean)}; nested operations (e.g. pauseTriggers calling
+ * pauseTrigger) are part of the outermost one. The breakdown is kept in a
+ * reusable per-thread trace, fed by the store at its query, lock, misfire and
+ * trigger write steps, so the Hazelcast structures are called directly. The
+ * threshold can be changed at any time; while disabled every call returns
+ * straight away.
+ * </p>
+ */
+class SlowOperationLog {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SlowOperationLog.class);
+
+  private volatile long thresholdNanos;
+
+  private volatile String instanceId;
+
+  private final ThreadLocal<Trace> traces = ThreadLocal.withInitial(Trace::new);
+
+  /**
+   * @param thresholdMillis operations taking longer are logged, 0 or less
+   *          disables the log
+   */
+  void setThresholdMillis(long thresholdMillis) {
+
+    this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, thresholdMillis));
+  }
+
+  long getThresholdMillis() {
+
+    return TimeUnit.NANOSECONDS.toMillis(thresholdNanos);
+  }
+
+  void setInstanceId(String instanceId) {
+
+    this.instanceId = instanceId;
+  }
+
+  boolean isEnabled() {
+
+    return thresholdNanos > 0;
+  }
+
+  /**
+   * @return whether the operation is traced, to be handed to
+   *         {@link #end(String, boolean)}, so that the threshold may change
+   *         while it runs
+   */
+  boolean begin() {
+
+    if (!isEnabled()) {
+      return false;
+    }
+    final Trace trace = traces.get();
+    if (trace.depth++ == 0) {
+      trace.reset(System.nanoTime());
+    }
+    return true;
+  }
+
+  /**
+   * Ends the operation, logging it when it is the outermost one and took longer
+   * than the threshold.
+   */
+  void end(String operation, boolean traced) {
+
+    if (!traced) {
+      return;
+    }
+    final Trace trace = traces.get();
+    if (--trace.depth == 0) {
+      final long elapsedNanos = System.nanoTime() - trace.startNanos;
+      final long threshold = thresholdNanos;
+      if (threshold > 0 && elapsedNanos >= threshold) {
+        LOG.warn("Slow job store operation: operation={} instanceId={} durationMs={} queries={} queryMs={}"
+            + " lockWaits={} lockWaitMs={} misfires={} misfireMs={} remoteCalls={} entriesTouched={}",
+            operation, instanceId, millis(elapsedNanos), trace.queries, millis(trace.queryNanos),
+            trace.lockWaits, millis(trace.lockWaitNanos), trace.misfires, millis(trace.misfireNanos),
+            trace.remoteCalls, trace.entriesTouched);
+      }
+    }
+  }
+
+  /**
+   * @return the start time of a step to pass to one of the record methods, 0
+   *         while disabled
+   */
+  long start() {
+
+    return isEnabled()
+        ? System.nanoTime()
+        : 0;
+  }
+
+  /**
+   * Records a query, one remote call returning the given number of entries.
+   */
+  void recordQuery(long startNanos, int entries) {
+
+    final Trace trace = current();
+    // not started while disabled
+    if (trace != null && startNanos != 0) {
+      trace.queries++;
+      trace.queryNanos += System.nanoTime() - startNanos;
+      trace.remoteCalls++;
+      trace.entriesTouched += entries;
+    }
+  }
+
+  /**
+   * Records a lock wait, one remote call.
+   */
+  void recordLockWait(long startNanos) {
+
+    final Trace trace = current();
+    // not started while disabled
+    if (trace != null && startNanos != 0) {
+      trace.lockWaits++;
+      trace.lockWaitNanos += System.nanoTime() - startNanos;
+      trace.remoteCalls++;
+    }
+  }
+
+  void recordMisfire(long startNanos) {
+
+    final Trace trace = current();
+    // not started while disabled
+    if (trace != null && startNanos != 0) {
+      trace.misfires++;
+      trace.misfireNanos += System.nanoTime() - startNanos;
+    }
+  }
+
+  /**
+   * Records a write, one remote call touching the given number of entries.
+   */
+  void recordWrite(int entries) {
+
+    final Trace trace = current();
+    if (trace != null) {
+      trace.remoteCalls++;
+      trace.entriesTouched += entries;
+    }
+  }
+
+  private Trace current() {
+
+    if (!isEnabled()) {
+      return null;
+    }
+    final Trace trace = traces.get();
+    return trace.depth > 0
+        ? trace
+        : null;
+  }
+
+  private static long millis(long nanos) {
+
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+
+  private static class Trace {
+
+    int depth;
+    long startNanos;
+    int queries;
+    long queryNanos;
+    int lockWaits;
+    long lockWaitNanos;
+    int misfires;
+    long misfireNanos;
+    int remoteCalls;
+    long entriesTouched;
+
+    void reset(long startNanos) {
+
+      this.startNanos = startNanos;
+      queries = 0;
+      queryNanos = 0;
+      lockWaits = 0;
+      lockWaitNanos = 0;
+      misfires = 0;
+      misfireNanos = 0;
+      remoteCalls = 0;
+      entriesTouched = 0;
+    }
+  }
+}
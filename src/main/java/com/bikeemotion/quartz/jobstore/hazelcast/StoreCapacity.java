@@ -0,0 +1,148 @@
+package com.bikeemotion.quartz.jobstore.hazelcast;
+
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.DataSerializable;
+
+import java.io.IOException;
+
+/**
+ * How much work a scheduler instance can take: its thread pool size, the
+ * triggers it has acquired but not fired yet and the jobs it is running; and
+ * how far behind it is, with partition local acquisition: its due triggers left
+ * unclaimed and its fire lag. Published by every store while acquiring, see
+ * {@link HazelcastJobStore#getClusterCapacity()}.
+ */
+public class StoreCapacity implements DataSerializable {
+
+  private String instanceId;
+
+  private String memberUuid;
+
+  private int threadPoolSize;
+
+  private int acquired;
+
+  private int executing;
+
+  private int backlog;
+
+  private long fireLagP99Micros;
+
+  private long updatedAt;
+
+  public StoreCapacity() {
+
+  }
+
+  public StoreCapacity(String instanceId, String memberUuid, int threadPoolSize, int acquired, int executing,
+      int backlog, long fireLagP99Micros, long updatedAt) {
+
+    this.instanceId = instanceId;
+    this.memberUuid = memberUuid;
+    this.threadPoolSize = threadPoolSize;
+    this.acquired = acquired;
+    this.executing = executing;
+    this.backlog = backlog;
+    this.fireLagP99Micros = fireLagP99Micros;
+    this.updatedAt = updatedAt;
+  }
+
+  public String getInstanceId() {
+
+    return instanceId;
+  }
+
+  public String getMemberUuid() {
+
+    return memberUuid;
+  }
+
+  public int getThreadPoolSize() {
+
+    return threadPoolSize;
+  }
+
+  public int getAcquired() {
+
+    return acquired;
+  }
+
+  public int getExecuting() {
+
+    return executing;
+  }
+
+  /**
+   * @return due triggers of the member's partitions the instance couldn't
+   *         claim in its last acquisition
+   */
+  public int getBacklog() {
+
+    return backlog;
+  }
+
+  /**
+   * @return 99th percentile of the instance's fire lag, 0 unless its metrics
+   *         are enabled
+   */
+  public long getFireLagP99Micros() {
+
+    return fireLagP99Micros;
+  }
+
+  public long getUpdatedAt() {
+
+    return updatedAt;
+  }
+
+  /**
+   * @return how many more triggers the instance can acquire
+   */
+  public int getFreeCapacity() {
+
+    return Math.max(0, threadPoolSize - acquired - executing);
+  }
+
+  @Override
+  public void writeData(ObjectDataOutput out)
+    throws IOException {
+
+    out.writeUTF(instanceId);
+    out.writeUTF(memberUuid);
+    out.writeInt(threadPoolSize);
+    out.writeInt(acquired);
+    out.writeInt(executing);
+    out.writeInt(backlog);
+    out.writeLong(fireLagP99Micros);
+    out.writeLong(updatedAt);
+  }
+
+  @Override
+  public void readData(ObjectDataInput in)
+    throws IOException {
+
+    instanceId = in.readUTF();
+    memberUuid = in.readUTF();
+    threadPoolSize = in.readInt();
+    acquired = in.readInt();
+    executing = in.readInt();
+    backlog = in.readInt();
+    fireLagP99Micros = in.readLong();
+    updatedAt = in.readLong();
+  }
+
+  @Override
+  public String toString() {
+
+    return "StoreCapacity{"
+        + "instanceId=" + instanceId
+        + ", threadPoolSize=" + threadPoolSize
+        + ", acquired=" + acquired
+        + ", executing=" + executing
+        + ", backlog=" + backlog
+        + ", fireLagP99Micros=" + fireLagP99Micros
+        + ", updatedAt=" + updatedAt
+        + '}';
+  }
+}
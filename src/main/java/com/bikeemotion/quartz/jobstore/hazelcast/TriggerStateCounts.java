@@ -0,0 +1,93 @@
+package com.bikeemotion.quartz.jobstore.hazelcast;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IAtomicLong;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cluster wide number of triggers in each {@link TriggerState}, maintained
+ * from the state transitions made by the job stores instead of scanning the
+ * triggers. Each store counts its transitions locally and adds them to one
+ * grid counter per state on {@link #flush()}.
+ */
+class TriggerStateCounts {
+
+  private static final String COUNTER_PREFIX = "job-store-trigger-state-count-";
+
+  private final Map<TriggerState, LongAdder> deltas = new EnumMap<>(TriggerState.class);
+
+  private final Map<TriggerState, IAtomicLong> counters = new EnumMap<>(TriggerState.class);
+
+  TriggerStateCounts(HazelcastInstance hazelcastInstance) {
+
+    for (TriggerState state : TriggerState.values()) {
+      deltas.put(state, new LongAdder());
+      counters.put(state, hazelcastInstance.getAtomicLong(COUNTER_PREFIX + state.name()));
+    }
+  }
+
+  /**
+   * @param from the previous state, null for a new trigger
+   * @param to the new state, null for a removed trigger
+   */
+  void transition(TriggerState from, TriggerState to) {
+
+    if (from == to) {
+      return;
+    }
+    if (from != null) {
+      deltas.get(from).decrement();
+    }
+    if (to != null) {
+      deltas.get(to).increment();
+    }
+  }
+
+  void flush() {
+
+    for (TriggerState state : TriggerState.values()) {
+      final long delta = deltas.get(state).sumThenReset();
+      if (delta != 0) {
+        counters.get(state).addAndGet(delta);
+      }
+    }
+  }
+
+  Map<TriggerState, Long> get() {
+
+    flush();
+    final Map<TriggerState, Long> counts = new EnumMap<>(TriggerState.class);
+    for (TriggerState state : TriggerState.values()) {
+      counts.put(state, counters.get(state).get());
+    }
+    return counts;
+  }
+
+  /**
+   * Sets the counters from the given triggers, for grids whose triggers were
+   * stored without counting.
+   */
+  void recount(Collection<TriggerWrapper> triggers) {
+
+    final Map<TriggerState, Long> counts = new EnumMap<>(TriggerState.class);
+    for (TriggerWrapper tw : triggers) {
+      counts.merge(tw.getState(), 1L, Long::sum);
+    }
+    for (TriggerState state : TriggerState.values()) {
+      deltas.get(state).reset();
+      counters.get(state).set(counts.getOrDefault(state, 0L));
+    }
+  }
+
+  void clear() {
+
+    for (TriggerState state : TriggerState.values()) {
+      deltas.get(state).reset();
+      counters.get(state).set(0);
+    }
+  }
+}
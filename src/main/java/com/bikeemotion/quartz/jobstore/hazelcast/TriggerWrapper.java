@@ -1,7 +1,5 @@
 package com.bikeemotion.quartz.jobstore.hazelcast;
 
-import org.quartz.DateBuilder;
-
 import java.io.Serializable;
 
 import org.quartz.JobKey;
@@ -30,7 +28,19 @@ public class TriggerWrapper implements Serializable {
                 : trigger.getNextFireTime().getTime();
     }
 
-    private TriggerWrapper(OperableTrigger trigger, TriggerState state) {
+    public String getGroup() {
+
+        return key.getGroup();
+    }
+
+    public int getPriority() {
+
+        return trigger == null
+                ? 0
+                : trigger.getPriority();
+    }
+
+    private TriggerWrapper(OperableTrigger trigger, TriggerState state, JobStoreClock clock) {
 
         if (trigger == null) {
             throw new IllegalArgumentException("Trigger cannot be null!");
@@ -42,7 +52,7 @@ public class TriggerWrapper implements Serializable {
         
         // Change to normal if acquired is not released in 5 seconds
         if (state == TriggerState.ACQUIRED) {
-            acquiredAt = DateBuilder.newDate().build().getTime();
+            acquiredAt = clock.currentTimeMillis();
         } else {
             acquiredAt = null;
         }
@@ -50,19 +60,19 @@ public class TriggerWrapper implements Serializable {
 
     public static TriggerWrapper newTriggerWrapper(OperableTrigger trigger) {
 
-        return newTriggerWrapper(trigger, TriggerState.NORMAL);
+        return newTriggerWrapper(trigger, TriggerState.NORMAL, JobStoreClock.SYSTEM);
     }
 
     public static TriggerWrapper newTriggerWrapper(TriggerWrapper tw,
-            TriggerState state) {
+            TriggerState state, JobStoreClock clock) {
 
-        return new TriggerWrapper(tw.trigger, state);
+        return newTriggerWrapper(tw.trigger, state, clock);
     }
 
     public static TriggerWrapper newTriggerWrapper(OperableTrigger trigger,
-            TriggerState state) {
+            TriggerState state, JobStoreClock clock) {
 
-        TriggerWrapper tw = new TriggerWrapper(trigger, state);
+        TriggerWrapper tw = new TriggerWrapper(trigger, state, clock);
         return tw;
     }
 
@@ -0,0 +1,58 @@
+package com.bikeemotion.quartz.jobstore.hazelcast;
+
+import java.io.Serializable;
+import java.util.Comparator;
+import java.util.Map;
+
+/**
+ * Acquisition order of triggers: earliest next fire time first, then highest
+ * priority first, then trigger key so the order is total and stable across
+ * nodes.
+ */
+class TriggerWrapperComparator implements Comparator<TriggerWrapper>, Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  static final TriggerWrapperComparator INSTANCE = new TriggerWrapperComparator();
+
+  @Override
+  public int compare(TriggerWrapper o1, TriggerWrapper o2) {
+
+    final Long t1 = o1.getNextFireTime();
+    final Long t2 = o2.getNextFireTime();
+    if (t1 == null || t2 == null) {
+      if (t1 != null) {
+        return -1;
+      }
+      if (t2 != null) {
+        return 1;
+      }
+    } else if (!t1.equals(t2)) {
+      return t1 < t2
+          ? -1
+          : 1;
+    }
+
+    final int comp = Integer.compare(o2.getPriority(), o1.getPriority());
+    if (comp != 0) {
+      return comp;
+    }
+
+    return o1.key.compareTo(o2.key);
+  }
+
+  /**
+   * Same order applied to map entries, for server side sorting with a
+   * {@link com.hazelcast.query.PagingPredicate}.
+   */
+  static class ByEntry implements Comparator<Map.Entry>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public int compare(Map.Entry o1, Map.Entry o2) {
+
+      return INSTANCE.compare((TriggerWrapper) o1.getValue(), (TriggerWrapper) o2.getValue());
+    }
+  }
+}
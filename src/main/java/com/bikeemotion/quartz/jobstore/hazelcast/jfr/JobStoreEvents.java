@@ -0,0 +1,147 @@
+package com.bikeemotion.quartz.jobstore.hazelcast.jfr;
+
+import java.lang.reflect.Constructor;
+
+import org.quartz.JobKey;
+import org.quartz.TriggerKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Emits Java Flight Recorder events for the job store work: acquisition cycles,
+ * trigger fires, misfires, lost trigger releases and lock waits, so scheduling
+ * stalls can be correlated with GC and network activity in one recording.
+ * <p>
+ * Timed events are started with a {@code ...Started} call and committed by the
+ * returned handle. {@link #disabled()} hands out shared no-op handles, so
+ * nothing is allocated or read while the events are off.
+ * </p>
+ * <p>
+ * The Flight Recorder events need {@code jdk.jfr} to compile, which Java 8
+ * doesn't have: they live in {@code src/main/jfr}, only built by the
+ * {@code jfr} Maven profile on JDK 11 and later, and are only reached through
+ * reflection.
+ * </p>
+ */
+public abstract class JobStoreEvents {
+
+  private static final Logger LOG = LoggerFactory.getLogger(JobStoreEvents.class);
+
+  private static final String JFR_EVENTS_CLASS = "com.bikeemotion.quartz.jobstore.hazelcast.jfr.JfrJobStoreEvents";
+
+  private static final JobStoreEvents DISABLED = new JobStoreEvents() {
+
+    @Override
+    public Acquisition acquisitionStarted(int maxCount) {
+
+      return Acquisition.NONE;
+    }
+
+    @Override
+    public Fire fireStarted() {
+
+      return Fire.NONE;
+    }
+
+    @Override
+    public LockWait lockWaitStarted() {
+
+      return LockWait.NONE;
+    }
+
+    @Override
+    public void misfireApplied(TriggerKey triggerKey, int misfireInstruction, long missedFireTime,
+        long nextFireTime) {
+
+    }
+
+    @Override
+    public void lostTriggerReleased(TriggerKey triggerKey, String fireInstanceId, long acquiredAt) {
+
+    }
+  };
+
+  /**
+   * @return events that are never emitted
+   */
+  public static JobStoreEvents disabled() {
+
+    return DISABLED;
+  }
+
+  /**
+   * @param enabled whether to emit the events at all
+   * @param instanceId scheduler instance the events are tagged with
+   * @return JFR backed events when enabled, the JVM has Flight Recorder and
+   *         the events were built, {@link #disabled()} otherwise
+   */
+  public static JobStoreEvents create(boolean enabled, String instanceId) {
+
+    if (!enabled) {
+      return DISABLED;
+    }
+    try {
+      Class.forName("jdk.jfr.Event");
+    } catch (ClassNotFoundException ex) {
+      LOG.warn("JFR events are enabled, but Java Flight Recorder is not available on this JVM");
+      return DISABLED;
+    }
+    try {
+      final Constructor<?> constructor = Class.forName(JFR_EVENTS_CLASS).getDeclaredConstructor(String.class);
+      return (JobStoreEvents) constructor.newInstance(instanceId);
+    } catch (ClassNotFoundException ex) {
+      LOG.warn("JFR events are enabled, but this build of the job store has none, it was built without JDK 11");
+      return DISABLED;
+    } catch (ReflectiveOperationException ex) {
+      LOG.warn("Unable to create the JFR events", ex);
+      return DISABLED;
+    }
+  }
+
+  /**
+   * @param maxCount maximum number of triggers the cycle may acquire
+   */
+  public abstract Acquisition acquisitionStarted(int maxCount);
+
+  /**
+   * Started for every trigger handed to triggersFired, only committed when the
+   * trigger is actually fired.
+   */
+  public abstract Fire fireStarted();
+
+  public abstract LockWait lockWaitStarted();
+
+  public abstract void misfireApplied(TriggerKey triggerKey, int misfireInstruction, long missedFireTime,
+      long nextFireTime);
+
+  public abstract void lostTriggerReleased(TriggerKey triggerKey, String fireInstanceId, long acquiredAt);
+
+  public interface Acquisition {
+
+    Acquisition NONE = (candidates, claimed) -> {
+    };
+
+    void done(int candidates, int claimed);
+  }
+
+  public interface Fire {
+
+    Fire NONE = (triggerKey, jobKey, fireInstanceId, scheduledFireTime, lagMicros) -> {
+    };
+
+    void done(TriggerKey triggerKey, JobKey jobKey, String fireInstanceId, long scheduledFireTime,
+        long lagMicros);
+  }
+
+  public interface LockWait {
+
+    LockWait NONE = (map, key) -> {
+    };
+
+    /**
+     * @param map name of the map holding the lock
+     * @param key locked key
+     */
+    void done(String map, Object key);
+  }
+}
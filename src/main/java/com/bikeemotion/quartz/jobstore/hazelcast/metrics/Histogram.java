@@ -0,0 +1,89 @@
+package com.bikeemotion.quartz.jobstore.hazelcast.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative long values with bounded memory.
+ * <p>
+ * Values are counted in log-linear buckets: every power of two is split in
+ * {@value #SUB_BUCKETS} buckets, so a recorded value is known within about 6%.
+ * Values above 2^{@value #MAX_EXPONENT} are counted in the last bucket.
+ * </p>
+ */
+public class Histogram {
+
+  static final int SUB_BUCKET_BITS = 4;
+
+  static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  static final int MAX_EXPONENT = 47;
+
+  static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+  private final LongAdder sum = new LongAdder();
+
+  private final AtomicLong max = new AtomicLong();
+
+  public void record(long value) {
+
+    final long v = Math.max(0, value);
+    counts.incrementAndGet(bucketOf(v));
+    sum.add(v);
+    long currentMax = max.get();
+    while (v > currentMax && !max.compareAndSet(currentMax, v)) {
+      currentMax = max.get();
+    }
+  }
+
+  public HistogramSnapshot snapshot() {
+
+    final long[] copy = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      copy[i] = counts.get(i);
+    }
+    return new HistogramSnapshot(copy, sum.sum(), max.get());
+  }
+
+  /**
+   * Takes a snapshot and starts counting from zero again. Values recorded
+   * meanwhile end up in this snapshot or in the next one, never in none.
+   */
+  public HistogramSnapshot snapshotAndReset() {
+
+    final long[] copy = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      copy[i] = counts.getAndSet(i, 0);
+    }
+    return new HistogramSnapshot(copy, sum.sumThenReset(), max.getAndSet(0));
+  }
+
+  static int bucketOf(long value) {
+
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    final int exponent = 63 - Long.numberOfLeadingZeros(value);
+    if (exponent > MAX_EXPONENT) {
+      return BUCKETS - 1;
+    }
+    final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /**
+   * Highest value counted in the given bucket.
+   */
+  static long highestValueOf(int bucket) {
+
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    final int shift = bucket / SUB_BUCKETS - 1;
+    final long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+}
@@ -0,0 +1,100 @@
+package com.bikeemotion.quartz.jobstore.hazelcast.metrics;
+
+/**
+ * Immutable copy of a {@link Histogram}.
+ */
+public class HistogramSnapshot {
+
+  private final long[] counts;
+
+  private final long count;
+
+  private final long sum;
+
+  private final long max;
+
+  HistogramSnapshot(long[] counts, long sum, long max) {
+
+    this.counts = counts;
+    long total = 0;
+    for (long c : counts) {
+      total += c;
+    }
+    this.count = total;
+    this.sum = sum;
+    this.max = max;
+  }
+
+  public long getCount() {
+
+    return count;
+  }
+
+  public long getSum() {
+
+    return sum;
+  }
+
+  public long getMax() {
+
+    return max;
+  }
+
+  public double getMean() {
+
+    return count == 0 ? 0 : (double) sum / count;
+  }
+
+  /**
+   * @param percentile between 0 and 100
+   * @return the value below which the given percentage of the recorded values
+   *         fall, 0 when nothing was recorded
+   */
+  public long getValueAtPercentile(double percentile) {
+
+    if (count == 0) {
+      return 0;
+    }
+    final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.min(Histogram.highestValueOf(i), max);
+      }
+    }
+    return max;
+  }
+
+  public long getP50() {
+
+    return getValueAtPercentile(50);
+  }
+
+  public long getP90() {
+
+    return getValueAtPercentile(90);
+  }
+
+  public long getP99() {
+
+    return getValueAtPercentile(99);
+  }
+
+  public long getP999() {
+
+    return getValueAtPercentile(99.9);
+  }
+
+  @Override
+  public String toString() {
+
+    return "count=" + count
+        + ", mean=" + (long) getMean()
+        + ", p50=" + getP50()
+        + ", p90=" + getP90()
+        + ", p99=" + getP99()
+        + ", p999=" + getP999()
+        + ", max=" + max;
+  }
+}
@@ -0,0 +1,34 @@
+package com.bikeemotion.quartz.jobstore.hazelcast.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the last exported snapshot in memory, handy for tests and for
+ * applications polling the metrics themselves.
+ */
+public class InMemoryMetricsExporter implements MetricsExporter {
+
+  private volatile MetricsSnapshot lastSnapshot;
+
+  private final AtomicLong exportCount = new AtomicLong();
+
+  @Override
+  public void export(MetricsSnapshot snapshot) {
+
+    lastSnapshot = snapshot;
+    exportCount.incrementAndGet();
+  }
+
+  /**
+   * @return the last exported snapshot, null if none was exported yet
+   */
+  public MetricsSnapshot getLastSnapshot() {
+
+    return lastSnapshot;
+  }
+
+  public long getExportCount() {
+
+    return exportCount.get();
+  }
+}
@@ -0,0 +1,360 @@
+package com.bikeemotion.quartz.jobstore.hazelcast.metrics;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Operation level metrics of a job store: latency per {@link JobStoreOperation},
+ * triggers acquired per call, candidates scanned and claimed, fire lag, lock
+ * wait time and lock timeouts.
+ * <p>
+ * While disabled, which is the default, recording returns straight away without
+ * reading the clock. Plain event counts (triggers acquired, misfires, lost
+ * triggers, recoveries and lock timeouts) are always kept. Operations are timed
+ * as
+ * </p>
+ *
+ * <pre>
+ * final long startNanos = metrics.start();
+ * try {
+ *   ...
+ * } finally {
+ *   metrics.record(JobStoreOperation.ACQUIRE, startNanos);
+ * }
+ * </pre>
+ */
+public class JobStoreMetrics {
+
+  private static final Logger LOG = LoggerFactory.getLogger(JobStoreMetrics.class);
+
+  /** Start time handed out while disabled. */
+  private static final long NOT_TIMED = Long.MIN_VALUE;
+
+  /**
+   * Job group the fire lag is recorded under once
+   * {@link #setMaxFireLagJobGroups(int)} groups are tracked.
+   */
+  public static final String OTHER_JOB_GROUPS = "*";
+
+  private volatile boolean enabled;
+
+  private final Map<JobStoreOperation, Histogram> latencies = new EnumMap<>(JobStoreOperation.class);
+
+  private final Histogram triggersAcquiredPerCall = new Histogram();
+
+  private final LongAdder candidatesScanned = new LongAdder();
+
+  private final LongAdder candidatesClaimed = new LongAdder();
+
+  private final Histogram fireLag = new Histogram();
+
+  private final Map<String, Histogram> fireLagByJobGroup = new ConcurrentHashMap<>();
+
+  private volatile int maxFireLagJobGroups = 100;
+
+  private final Histogram lockWait = new Histogram();
+
+  private final LongAdder lockTimeouts = new LongAdder();
+
+  private final LongAdder triggersAcquired = new LongAdder();
+
+  private final LongAdder misfires = new LongAdder();
+
+  private final LongAdder lostTriggersReleased = new LongAdder();
+
+  private final LongAdder firedTriggersRecovered = new LongAdder();
+
+  private final LongAdder triggersStolen = new LongAdder();
+
+  private final Map<String, LongAdder> triggersRateLimitedByJobGroup = new ConcurrentHashMap<>();
+
+  private final List<MetricsExporter> exporters = new CopyOnWriteArrayList<>();
+
+  private ScheduledExecutorService exportExecutor;
+
+  public JobStoreMetrics() {
+
+    for (JobStoreOperation operation : JobStoreOperation.values()) {
+      latencies.put(operation, new Histogram());
+    }
+  }
+
+  public boolean isEnabled() {
+
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+
+    this.enabled = enabled;
+  }
+
+  /**
+   * @return the start time of an operation, to be handed to
+   *         {@link #record(JobStoreOperation, long)}
+   */
+  public long start() {
+
+    return enabled ? System.nanoTime() : NOT_TIMED;
+  }
+
+  public void record(JobStoreOperation operation, long startNanos) {
+
+    if (startNanos != NOT_TIMED) {
+      latencies.get(operation).record(System.nanoTime() - startNanos);
+    }
+  }
+
+  public void recordAcquisition(int scanned, int claimed) {
+
+    triggersAcquired.add(claimed);
+    if (enabled) {
+      candidatesScanned.add(scanned);
+      candidatesClaimed.add(claimed);
+      triggersAcquiredPerCall.record(claimed);
+    }
+  }
+
+  public void recordLockWait(long startNanos) {
+
+    if (startNanos != NOT_TIMED) {
+      lockWait.record(System.nanoTime() - startNanos);
+    }
+  }
+
+  public void recordLockTimeout() {
+
+    lockTimeouts.increment();
+  }
+
+  /**
+   * Maximum number of job groups with their own fire lag histogram, the lag of
+   * other groups is recorded under {@link #OTHER_JOB_GROUPS}. Each histogram
+   * takes about 6KB.
+   */
+  public void setMaxFireLagJobGroups(int maxFireLagJobGroups) {
+
+    this.maxFireLagJobGroups = maxFireLagJobGroups;
+  }
+
+  /**
+   * @param jobGroup group of the fired job
+   * @param lagMicros delay between the scheduled fire time of a trigger and
+   *          the moment it was handed to a worker
+   */
+  public void recordFireLag(String jobGroup, long lagMicros) {
+
+    if (enabled) {
+      fireLag.record(lagMicros);
+      fireLagHistogramOf(jobGroup).record(lagMicros);
+    }
+  }
+
+  private Histogram fireLagHistogramOf(String jobGroup) {
+
+    final Histogram histogram = fireLagByJobGroup.get(jobGroup);
+    if (histogram != null) {
+      return histogram;
+    }
+    // racing threads may go a few groups over the limit, never further
+    final String group = fireLagByJobGroup.size() < maxFireLagJobGroups
+        ? jobGroup
+        : OTHER_JOB_GROUPS;
+    return fireLagByJobGroup.computeIfAbsent(group, g -> new Histogram());
+  }
+
+  public void recordMisfire() {
+
+    misfires.increment();
+  }
+
+  public void recordLostTriggerReleased() {
+
+    lostTriggersReleased.increment();
+  }
+
+  public void recordFiredTriggerRecovered() {
+
+    firedTriggersRecovered.increment();
+  }
+
+  public void recordTriggersStolen(int stolen) {
+
+    triggersStolen.add(stolen);
+  }
+
+  /**
+   * @param jobGroup rate limited group of a due trigger left waiting for tokens
+   */
+  public void recordTriggerRateLimited(String jobGroup) {
+
+    triggersRateLimitedByJobGroup.computeIfAbsent(jobGroup, g -> new LongAdder()).increment();
+  }
+
+  public long getTriggersAcquired() {
+
+    return triggersAcquired.sum();
+  }
+
+  public long getMisfires() {
+
+    return misfires.sum();
+  }
+
+  public long getLostTriggersReleased() {
+
+    return lostTriggersReleased.sum();
+  }
+
+  public long getFiredTriggersRecovered() {
+
+    return firedTriggersRecovered.sum();
+  }
+
+  public long getTriggersStolen() {
+
+    return triggersStolen.sum();
+  }
+
+  public long getTriggersRateLimited() {
+
+    return triggersRateLimitedByJobGroup.values().stream().mapToLong(LongAdder::sum).sum();
+  }
+
+  /**
+   * Due triggers left waiting for rate limit tokens, per job group.
+   */
+  public Map<String, Long> getTriggersRateLimitedByJobGroup() {
+
+    final Map<String, Long> counts = new TreeMap<>();
+    for (Map.Entry<String, LongAdder> e : triggersRateLimitedByJobGroup.entrySet()) {
+      counts.put(e.getKey(), e.getValue().sum());
+    }
+    return counts;
+  }
+
+  public long getLockTimeouts() {
+
+    return lockTimeouts.sum();
+  }
+
+  public HistogramSnapshot getFireLag() {
+
+    return fireLag.snapshot();
+  }
+
+  /**
+   * Fire lag in microseconds per job group, since the last
+   * {@link #snapshotAndResetFireLag()}.
+   */
+  public Map<String, HistogramSnapshot> getFireLagByJobGroup() {
+
+    final Map<String, HistogramSnapshot> snapshots = new TreeMap<>();
+    for (Map.Entry<String, Histogram> e : fireLagByJobGroup.entrySet()) {
+      snapshots.put(e.getKey(), e.getValue().snapshot());
+    }
+    return snapshots;
+  }
+
+  /**
+   * Returns the fire lag per job group and starts a new interval, for the
+   * overall fire lag as well. Groups that had no fire during the interval are
+   * forgotten, making room for new ones.
+   */
+  public Map<String, HistogramSnapshot> snapshotAndResetFireLag() {
+
+    fireLag.snapshotAndReset();
+    final Map<String, HistogramSnapshot> snapshots = new TreeMap<>();
+    for (Map.Entry<String, Histogram> e : fireLagByJobGroup.entrySet()) {
+      final HistogramSnapshot snapshot = e.getValue().snapshotAndReset();
+      if (snapshot.getCount() == 0) {
+        fireLagByJobGroup.remove(e.getKey(), e.getValue());
+      } else {
+        snapshots.put(e.getKey(), snapshot);
+      }
+    }
+    return snapshots;
+  }
+
+  public HistogramSnapshot getLockWait() {
+
+    return lockWait.snapshot();
+  }
+
+  public MetricsSnapshot snapshot() {
+
+    final Map<JobStoreOperation, HistogramSnapshot> latencySnapshots = new EnumMap<>(JobStoreOperation.class);
+    for (Map.Entry<JobStoreOperation, Histogram> e : latencies.entrySet()) {
+      latencySnapshots.put(e.getKey(), e.getValue().snapshot());
+    }
+    return new MetricsSnapshot(System.currentTimeMillis(), latencySnapshots,
+        triggersAcquiredPerCall.snapshot(), candidatesScanned.sum(), candidatesClaimed.sum(),
+        fireLag.snapshot(), getFireLagByJobGroup(), lockWait.snapshot(), lockTimeouts.sum(), triggersAcquired.sum(),
+        misfires.sum(), lostTriggersReleased.sum(), firedTriggersRecovered.sum(), triggersStolen.sum(),
+        getTriggersRateLimitedByJobGroup());
+  }
+
+  public void addExporter(MetricsExporter exporter) {
+
+    exporters.add(exporter);
+  }
+
+  public void removeExporter(MetricsExporter exporter) {
+
+    exporters.remove(exporter);
+  }
+
+  /**
+   * Hands a snapshot to every exporter.
+   */
+  public void export() {
+
+    if (exporters.isEmpty()) {
+      return;
+    }
+    final MetricsSnapshot snapshot = snapshot();
+    for (MetricsExporter exporter : exporters) {
+      try {
+        exporter.export(snapshot);
+      } catch (RuntimeException ex) {
+        LOG.warn("Error exporting job store metrics to " + exporter, ex);
+      }
+    }
+  }
+
+  /**
+   * Exports every {@code intervalMillis} from a daemon thread until
+   * {@link #stopExporting()}.
+   */
+  public synchronized void startExporting(long intervalMillis) {
+
+    if (exportExecutor != null) {
+      return;
+    }
+    exportExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+      final Thread thread = new Thread(r, "hazelcast-job-store-metrics-exporter");
+      thread.setDaemon(true);
+      return thread;
+    });
+    exportExecutor.scheduleAtFixedRate(this::export, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  public synchronized void stopExporting() {
+
+    if (exportExecutor != null) {
+      exportExecutor.shutdownNow();
+      exportExecutor = null;
+    }
+  }
+}
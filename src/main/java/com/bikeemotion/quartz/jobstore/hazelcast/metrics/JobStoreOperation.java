@@ -0,0 +1,16 @@
+package com.bikeemotion.quartz.jobstore.hazelcast.metrics;
+
+/**
+ * The job store operations whose latency is measured.
+ */
+public enum JobStoreOperation {
+
+  ACQUIRE,
+  RELEASE,
+  FIRED,
+  COMPLETE,
+  STORE,
+  REMOVE,
+  PAUSE,
+  RESUME
+}
@@ -0,0 +1,12 @@
+package com.bikeemotion.quartz.jobstore.hazelcast.metrics;
+
+/**
+ * Receives the job store metrics, periodically when
+ * {@code org.quartz.jobStore.metricsExporterClass} is configured, or whenever
+ * {@link JobStoreMetrics#export()} is called. Implementations configured by
+ * class name need a public no-arg constructor.
+ */
+public interface MetricsExporter {
+
+  void export(MetricsSnapshot snapshot);
+}
@@ -0,0 +1,200 @@
+package com.bikeemotion.quartz.jobstore.hazelcast.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The job store metrics at a point in time. Latencies and lock waits are in
+ * nanoseconds, fire lag in microseconds.
+ */
+public class MetricsSnapshot {
+
+  private final long timestamp;
+
+  private final Map<JobStoreOperation, HistogramSnapshot> latencies;
+
+  private final HistogramSnapshot triggersAcquiredPerCall;
+
+  private final long candidatesScanned;
+
+  private final long candidatesClaimed;
+
+  private final HistogramSnapshot fireLag;
+
+  private final Map<String, HistogramSnapshot> fireLagByJobGroup;
+
+  private final HistogramSnapshot lockWait;
+
+  private final long lockTimeouts;
+
+  private final long triggersAcquired;
+
+  private final long misfires;
+
+  private final long lostTriggersReleased;
+
+  private final long firedTriggersRecovered;
+
+  private final long triggersStolen;
+
+  private final Map<String, Long> triggersRateLimitedByJobGroup;
+
+  MetricsSnapshot(long timestamp, Map<JobStoreOperation, HistogramSnapshot> latencies,
+      HistogramSnapshot triggersAcquiredPerCall, long candidatesScanned, long candidatesClaimed,
+      HistogramSnapshot fireLag, Map<String, HistogramSnapshot> fireLagByJobGroup, HistogramSnapshot lockWait,
+      long lockTimeouts, long triggersAcquired, long misfires, long lostTriggersReleased, long firedTriggersRecovered,
+      long triggersStolen, Map<String, Long> triggersRateLimitedByJobGroup) {
+
+    this.timestamp = timestamp;
+    this.latencies = Collections.unmodifiableMap(latencies);
+    this.triggersAcquiredPerCall = triggersAcquiredPerCall;
+    this.candidatesScanned = candidatesScanned;
+    this.candidatesClaimed = candidatesClaimed;
+    this.fireLag = fireLag;
+    this.fireLagByJobGroup = Collections.unmodifiableMap(fireLagByJobGroup);
+    this.lockWait = lockWait;
+    this.lockTimeouts = lockTimeouts;
+    this.triggersAcquired = triggersAcquired;
+    this.misfires = misfires;
+    this.lostTriggersReleased = lostTriggersReleased;
+    this.firedTriggersRecovered = firedTriggersRecovered;
+    this.triggersStolen = triggersStolen;
+    this.triggersRateLimitedByJobGroup = Collections.unmodifiableMap(triggersRateLimitedByJobGroup);
+  }
+
+  public long getTimestamp() {
+
+    return timestamp;
+  }
+
+  /**
+   * Latency of the given operation, its count being the number of calls.
+   */
+  public HistogramSnapshot getLatency(JobStoreOperation operation) {
+
+    return latencies.get(operation);
+  }
+
+  public Map<JobStoreOperation, HistogramSnapshot> getLatencies() {
+
+    return latencies;
+  }
+
+  public HistogramSnapshot getTriggersAcquiredPerCall() {
+
+    return triggersAcquiredPerCall;
+  }
+
+  /**
+   * Triggers looked at by {@code acquireNextTriggers}.
+   */
+  public long getCandidatesScanned() {
+
+    return candidatesScanned;
+  }
+
+  /**
+   * Triggers actually acquired by {@code acquireNextTriggers}.
+   */
+  public long getCandidatesClaimed() {
+
+    return candidatesClaimed;
+  }
+
+  /**
+   * Delay between the scheduled fire time of the triggers and the moment they
+   * were fired.
+   */
+  public HistogramSnapshot getFireLag() {
+
+    return fireLag;
+  }
+
+  /**
+   * Fire lag per job group, see {@link JobStoreMetrics#setMaxFireLagJobGroups(int)}.
+   */
+  public Map<String, HistogramSnapshot> getFireLagByJobGroup() {
+
+    return fireLagByJobGroup;
+  }
+
+  /**
+   * Time spent waiting for trigger and job locks.
+   */
+  public HistogramSnapshot getLockWait() {
+
+    return lockWait;
+  }
+
+  /**
+   * Locks whose lease expired before they were released.
+   */
+  public long getLockTimeouts() {
+
+    return lockTimeouts;
+  }
+
+  public long getTriggersAcquired() {
+
+    return triggersAcquired;
+  }
+
+  public long getMisfires() {
+
+    return misfires;
+  }
+
+  /**
+   * Acquired triggers released because they were not fired in time.
+   */
+  public long getLostTriggersReleased() {
+
+    return lostTriggersReleased;
+  }
+
+  /**
+   * Fired triggers recovered from members that left the cluster.
+   */
+  public long getFiredTriggersRecovered() {
+
+    return firedTriggersRecovered;
+  }
+
+  /**
+   * Triggers acquired from the partitions of other members by work stealing.
+   */
+  public long getTriggersStolen() {
+
+    return triggersStolen;
+  }
+
+  /**
+   * Due triggers left waiting for rate limit tokens, per job group.
+   */
+  public Map<String, Long> getTriggersRateLimitedByJobGroup() {
+
+    return triggersRateLimitedByJobGroup;
+  }
+
+  @Override
+  public String toString() {
+
+    return "MetricsSnapshot{"
+        + "timestamp=" + timestamp
+        + ", latencies=" + latencies
+        + ", triggersAcquiredPerCall=" + triggersAcquiredPerCall
+        + ", candidatesScanned=" + candidatesScanned
+        + ", candidatesClaimed=" + candidatesClaimed
+        + ", fireLag=" + fireLag
+        + ", fireLagByJobGroup=" + fireLagByJobGroup
+        + ", lockWait=" + lockWait
+        + ", lockTimeouts=" + lockTimeouts
+        + ", triggersAcquired=" + triggersAcquired
+        + ", misfires=" + misfires
+        + ", lostTriggersReleased=" + lostTriggersReleased
+        + ", firedTriggersRecovered=" + firedTriggersRecovered
+        + ", triggersStolen=" + triggersStolen
+        + ", triggersRateLimitedByJobGroup=" + triggersRateLimitedByJobGroup
+        + '}';
+  }
+}
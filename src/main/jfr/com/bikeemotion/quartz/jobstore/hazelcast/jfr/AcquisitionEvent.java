@@ -0,0 +1,39 @@
+package com.bikeemotion.quartz.jobstore.hazelcast.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One acquireNextTriggers call.
+ */
+@Name("com.bikeemotion.quartz.jobstore.hazelcast.Acquisition")
+@Label("Trigger Acquisition")
+@Category({ "Quartz", "Hazelcast Job Store" })
+@Description("One acquireNextTriggers call.")
+class AcquisitionEvent extends Event implements JobStoreEvents.Acquisition {
+
+  @Label("Instance Id")
+  String instanceId;
+
+  @Label("Max Count")
+  int maxCount;
+
+  @Label("Candidates")
+  @Description("Due triggers looked at")
+  int candidates;
+
+  @Label("Claimed")
+  @Description("Triggers acquired")
+  int claimed;
+
+  @Override
+  public void done(int candidates, int claimed) {
+
+    this.candidates = candidates;
+    this.claimed = claimed;
+    commit();
+  }
+}
@@ -0,0 +1,54 @@
+package com.bikeemotion.quartz.jobstore.hazelcast.jfr;
+
+import org.quartz.JobKey;
+import org.quartz.TriggerKey;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+import jdk.jfr.Timestamp;
+
+/**
+ * A trigger fired and handed to a worker by triggersFired.
+ */
+@Name("com.bikeemotion.quartz.jobstore.hazelcast.Fire")
+@Label("Trigger Fire")
+@Category({ "Quartz", "Hazelcast Job Store" })
+@Description("A trigger fired and handed to a worker by triggersFired.")
+class FireEvent extends Event implements JobStoreEvents.Fire {
+
+  @Label("Instance Id")
+  String instanceId;
+
+  @Label("Trigger")
+  String triggerKey;
+
+  @Label("Job")
+  String jobKey;
+
+  @Label("Fire Instance Id")
+  String fireInstanceId;
+
+  @Label("Scheduled Fire Time")
+  @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+  long scheduledFireTime;
+
+  @Label("Fire Lag")
+  @Timespan(Timespan.MICROSECONDS)
+  long lag;
+
+  @Override
+  public void done(TriggerKey triggerKey, JobKey jobKey, String fireInstanceId, long scheduledFireTime,
+      long lagMicros) {
+
+    this.triggerKey = String.valueOf(triggerKey);
+    this.jobKey = String.valueOf(jobKey);
+    this.fireInstanceId = fireInstanceId;
+    this.scheduledFireTime = scheduledFireTime;
+    this.lag = lagMicros;
+    commit();
+  }
+}
@@ -0,0 +1,85 @@
+package com.bikeemotion.quartz.jobstore.hazelcast.jfr;
+
+import org.quartz.JobKey;
+import org.quartz.TriggerKey;
+
+/**
+ * {@link JobStoreEvents} backed by Flight Recorder. Only created through
+ * reflection by {@link JobStoreEvents#create(boolean, String)}, once
+ * {@code jdk.jfr} is known to be there. Events disabled in the recording
+ * settings are neither started nor committed.
+ */
+final class JfrJobStoreEvents extends JobStoreEvents {
+
+  private final String instanceId;
+
+  JfrJobStoreEvents(String instanceId) {
+
+    this.instanceId = instanceId;
+  }
+
+  @Override
+  public Acquisition acquisitionStarted(int maxCount) {
+
+    final AcquisitionEvent event = new AcquisitionEvent();
+    if (!event.isEnabled()) {
+      return Acquisition.NONE;
+    }
+    event.instanceId = instanceId;
+    event.maxCount = maxCount;
+    event.begin();
+    return event;
+  }
+
+  @Override
+  public Fire fireStarted() {
+
+    final FireEvent event = new FireEvent();
+    if (!event.isEnabled()) {
+      return Fire.NONE;
+    }
+    event.instanceId = instanceId;
+    event.begin();
+    return event;
+  }
+
+  @Override
+  public LockWait lockWaitStarted() {
+
+    final LockWaitEvent event = new LockWaitEvent();
+    if (!event.isEnabled()) {
+      return LockWait.NONE;
+    }
+    event.instanceId = instanceId;
+    event.begin();
+    return event;
+  }
+
+  @Override
+  public void misfireApplied(TriggerKey triggerKey, int misfireInstruction, long missedFireTime,
+      long nextFireTime) {
+
+    final MisfireEvent event = new MisfireEvent();
+    if (event.isEnabled()) {
+      event.instanceId = instanceId;
+      event.triggerKey = String.valueOf(triggerKey);
+      event.misfireInstruction = misfireInstruction;
+      event.missedFireTime = missedFireTime;
+      event.nextFireTime = nextFireTime;
+      event.commit();
+    }
+  }
+
+  @Override
+  public void lostTriggerReleased(TriggerKey triggerKey, String fireInstanceId, long acquiredAt) {
+
+    final LostTriggerReleaseEvent event = new LostTriggerReleaseEvent();
+    if (event.isEnabled()) {
+      event.instanceId = instanceId;
+      event.triggerKey = String.valueOf(triggerKey);
+      event.fireInstanceId = fireInstanceId;
+      event.acquiredAt = acquiredAt;
+      event.commit();
+    }
+  }
+}
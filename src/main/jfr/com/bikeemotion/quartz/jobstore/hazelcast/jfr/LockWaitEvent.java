@@ -0,0 +1,39 @@
+package com.bikeemotion.quartz.jobstore.hazelcast.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Time spent waiting for a trigger or job lock.
+ */
+@Name("com.bikeemotion.quartz.jobstore.hazelcast.LockWait")
+@Label("Lock Wait")
+@Category({ "Quartz", "Hazelcast Job Store" })
+@Description("Time spent waiting for a trigger or job lock.")
+@Threshold("1 ms")
+class LockWaitEvent extends Event implements JobStoreEvents.LockWait {
+
+  @Label("Instance Id")
+  String instanceId;
+
+  @Label("Map")
+  String map;
+
+  @Label("Key")
+  String key;
+
+  @Override
+  public void done(String map, Object key) {
+
+    end();
+    if (shouldCommit()) {
+      this.map = map;
+      this.key = String.valueOf(key);
+      commit();
+    }
+  }
+}
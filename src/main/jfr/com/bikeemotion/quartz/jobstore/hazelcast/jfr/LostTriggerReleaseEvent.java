@@ -0,0 +1,31 @@
+package com.bikeemotion.quartz.jobstore.hazelcast.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timestamp;
+
+/**
+ * A trigger released after staying acquired for longer than the release threshold.
+ */
+@Name("com.bikeemotion.quartz.jobstore.hazelcast.LostTriggerRelease")
+@Label("Lost Trigger Release")
+@Category({ "Quartz", "Hazelcast Job Store" })
+@Description("A trigger released after staying acquired for longer than the release threshold.")
+class LostTriggerReleaseEvent extends Event {
+
+  @Label("Instance Id")
+  String instanceId;
+
+  @Label("Trigger")
+  String triggerKey;
+
+  @Label("Fire Instance Id")
+  String fireInstanceId;
+
+  @Label("Acquired At")
+  @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+  long acquiredAt;
+}
@@ -0,0 +1,36 @@
+package com.bikeemotion.quartz.jobstore.hazelcast.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timestamp;
+
+/**
+ * A misfire instruction applied to a trigger that missed its fire time.
+ */
+@Name("com.bikeemotion.quartz.jobstore.hazelcast.Misfire")
+@Label("Trigger Misfire")
+@Category({ "Quartz", "Hazelcast Job Store" })
+@Description("A misfire instruction applied to a trigger that missed its fire time.")
+class MisfireEvent extends Event {
+
+  @Label("Instance Id")
+  String instanceId;
+
+  @Label("Trigger")
+  String triggerKey;
+
+  @Label("Misfire Instruction")
+  int misfireInstruction;
+
+  @Label("Missed Fire Time")
+  @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+  long missedFireTime;
+
+  @Label("Next Fire Time")
+  @Description("0 when the trigger will not fire again")
+  @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+  long nextFireTime;
+}
@@ -0,0 +1,253 @@
+package com.bikeemotion.quartz.jobstore.hazelcast;
+
+import static org.quartz.Trigger.MISFIRE_INSTRUCTION_IGNORE_MISFIRE_POLICY;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.quartz.Job;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.SimpleScheduleBuilder;
+import org.quartz.Trigger.CompletedExecutionInstruction;
+import org.quartz.TriggerKey;
+import org.quartz.jobs.NoOpJob;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.TriggerFiredBundle;
+import org.quartz.spi.TriggerFiredResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import com.bikeemotion.quartz.AbstractTest;
+import com.bikeemotion.quartz.MyNoConcurrentJob;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+
+/**
+ * Hammers {@link HazelcastJobStore#acquireNextTriggers(long, int, long)},
+ * {@link HazelcastJobStore#triggersFired(List)},
+ * {@link HazelcastJobStore#releaseAcquiredTrigger(OperableTrigger)} and
+ * {@link HazelcastJobStore#pauseTrigger(TriggerKey)} from several threads on
+ * several members until every fire is done or a shared deadline passes, and
+ * checks that
+ * <ul>
+ * <li>no trigger is fired twice for the same fire time,</li>
+ * <li>jobs disallowing concurrent execution never overlap,</li>
+ * <li>no fire is lost: every trigger fired its first fire times in order and
+ * is stored with the next one, or is gone once it fired them all,</li>
+ * <li>no trigger is left acquired, blocked or paused once the workers
+ * stopped.</li>
+ * </ul>
+ * <p>
+ * The checks hold however far the workers got, so they don't depend on how
+ * fast the test runs. All the fire times are in the past and misfires are
+ * ignored, and workers use seeded randoms to decide what to release. The suite
+ * is in the {@code stress} group, which is only run with the {@code stress}
+ * Maven profile.
+ * </p>
+ */
+@Test(groups = "stress")
+public class HazelcastJobStoreStressTest extends AbstractTest {
+
+  private static final Logger LOG = LoggerFactory.getLogger(HazelcastJobStoreStressTest.class);
+
+  private static final int MEMBERS = 3;
+  private static final int WORKERS_PER_MEMBER = 4;
+  private static final int JOBS = 40;
+  private static final int TRIGGERS_PER_JOB = 5;
+  private static final int FIRES_PER_TRIGGER = 10;
+  private static final int BATCH_SIZE = 5;
+  private static final double RELEASE_RATIO = 0.1;
+  private static final long DURATION_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+  private final Set<String> fires = Collections.newSetFromMap(new ConcurrentHashMap<>());
+  private final Map<TriggerKey, Set<Long>> fireTimes = new ConcurrentHashMap<>();
+  private final List<String> duplicates = Collections.synchronizedList(new ArrayList<>());
+  private final List<JobKey> overlaps = Collections.synchronizedList(new ArrayList<>());
+  private final Set<JobKey> running = Collections.newSetFromMap(new ConcurrentHashMap<>());
+  private final List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+  private final AtomicLong acquisitions = new AtomicLong();
+  private final AtomicLong releases = new AtomicLong();
+  private final AtomicLong pauses = new AtomicLong();
+
+  private volatile boolean stopped;
+
+  private volatile long deadline;
+
+  @AfterMethod
+  public void tearDown() {
+
+    Hazelcast.shutdownAll();
+  }
+
+  public void testConcurrentAcquisitionOnSeveralMembers()
+    throws Exception {
+
+    final List<HazelcastJobStore> stores = new ArrayList<>();
+    for (int i = 0; i < MEMBERS; i++) {
+      HazelcastInstance hazelcast = createHazelcastInstance("testConcurrentAcquisitionOnSeveralMembers");
+      HazelcastJobStore.setHazelcastClient(hazelcast);
+      HazelcastJobStore store = createJobStore("stress" + i);
+      store.setInstanceId("stress" + i);
+      store.setShutdownHazelcastOnShutdown(false);
+      store.initialize(null, new SampleSignaler());
+      store.schedulerStarted();
+      stores.add(store);
+    }
+
+    // every fire time is already due when the triggers are stored
+    final long startTime = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(FIRES_PER_TRIGGER + 1);
+    final List<TriggerKey> triggerKeys = new ArrayList<>();
+    for (int j = 0; j < JOBS; j++) {
+      Class<? extends Job> jobClass = j % 2 == 0 ? MyNoConcurrentJob.class : NoOpJob.class;
+      JobDetail job = JobBuilder.newJob(jobClass).withIdentity("job" + j, "stress").build();
+      stores.get(0).storeJob(job, false);
+      for (int t = 0; t < TRIGGERS_PER_JOB; t++) {
+        OperableTrigger trigger = buildAndComputeTrigger("trigger" + j + "-" + t, "stress", job, startTime, null,
+            SimpleScheduleBuilder.simpleSchedule()
+                .withIntervalInSeconds(1)
+                .withRepeatCount(FIRES_PER_TRIGGER - 1));
+        trigger.setMisfireInstruction(MISFIRE_INSTRUCTION_IGNORE_MISFIRE_POLICY);
+        stores.get(0).storeTrigger(trigger, false);
+        triggerKeys.add(trigger.getKey());
+      }
+    }
+    final int expectedFires = JOBS * TRIGGERS_PER_JOB * FIRES_PER_TRIGGER;
+
+    final List<Thread> threads = new ArrayList<>();
+    for (int m = 0; m < MEMBERS; m++) {
+      final HazelcastJobStore store = stores.get(m);
+      for (int w = 0; w < WORKERS_PER_MEMBER; w++) {
+        final Random random = new Random(m * 100 + w);
+        threads.add(new Thread(() -> work(store, random, expectedFires), "worker-" + m + "-" + w));
+      }
+      final Random pauserRandom = new Random(m * 100 + WORKERS_PER_MEMBER);
+      threads.add(new Thread(() -> pauseAndResume(store, pauserRandom, triggerKeys), "pauser-" + m));
+    }
+
+    final long start = System.currentTimeMillis();
+    deadline = start + DURATION_MILLIS;
+    threads.forEach(Thread::start);
+    // every thread stops at the same deadline, then finishes what it started
+    for (Thread thread : threads) {
+      thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+    }
+    stopped = true;
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    final long elapsed = System.currentTimeMillis() - start;
+
+    LOG.info("Fired {} of {} triggers in {} ms ({} fires/s), {} acquisitions, {} releases, {} pauses",
+        fires.size(), expectedFires, elapsed, fires.size() * 1000L / Math.max(1, elapsed),
+        acquisitions.get(), releases.get(), pauses.get());
+
+    assertTrue(errors.isEmpty(), "Errors: " + errors);
+    assertTrue(duplicates.isEmpty(), "Fired more than once: " + duplicates);
+    assertTrue(overlaps.isEmpty(), "Non-concurrent jobs overlapping: " + overlaps);
+    final Map<TriggerKey, TriggerWrapper> stored = stores.get(0).getMap("job-store-trigger-by-key-map");
+    for (TriggerKey triggerKey : triggerKeys) {
+      final Set<Long> fired = fireTimes.getOrDefault(triggerKey, Collections.emptySet());
+      for (int i = 0; i < fired.size(); i++) {
+        assertTrue(fired.contains(startTime + TimeUnit.SECONDS.toMillis(i)), "Lost fire " + i + " of " + triggerKey);
+      }
+      final TriggerWrapper tw = stored.get(triggerKey);
+      if (fired.size() == FIRES_PER_TRIGGER) {
+        assertNull(tw, "Trigger left behind: " + triggerKey);
+      } else {
+        assertNotNull(tw, "Trigger lost: " + triggerKey);
+        assertEquals(tw.getTrigger().getNextFireTime().getTime(),
+            startTime + TimeUnit.SECONDS.toMillis(fired.size()), "Next fire time of " + triggerKey);
+        assertTrue(tw.getState() == TriggerState.NORMAL || tw.getState() == TriggerState.WAITING,
+            triggerKey + " left " + tw.getState());
+      }
+    }
+  }
+
+  private void work(HazelcastJobStore store, Random random, int expectedFires) {
+
+    try {
+      while (!stopped && fires.size() < expectedFires && System.currentTimeMillis() < deadline) {
+        List<OperableTrigger> acquired = store.acquireNextTriggers(System.currentTimeMillis() + 1000, BATCH_SIZE, 0L);
+        if (acquired.isEmpty()) {
+          Thread.sleep(1);
+          continue;
+        }
+        acquisitions.addAndGet(acquired.size());
+
+        List<OperableTrigger> toFire = new ArrayList<>();
+        for (OperableTrigger trigger : acquired) {
+          if (random.nextDouble() < RELEASE_RATIO) {
+            store.releaseAcquiredTrigger(trigger);
+            releases.incrementAndGet();
+          } else {
+            toFire.add(trigger);
+          }
+        }
+
+        for (TriggerFiredResult result : store.triggersFired(toFire)) {
+          execute(store, result.getTriggerFiredBundle());
+        }
+      }
+    } catch (Throwable t) {
+      LOG.error("Worker failed", t);
+      errors.add(t);
+    }
+  }
+
+  private void execute(HazelcastJobStore store, TriggerFiredBundle bundle)
+    throws InterruptedException {
+
+    final OperableTrigger trigger = bundle.getTrigger();
+    final JobDetail job = bundle.getJobDetail();
+
+    if (!fires.add(trigger.getKey() + "@" + bundle.getScheduledFireTime().getTime())) {
+      duplicates.add(trigger.getKey() + "@" + bundle.getScheduledFireTime().getTime());
+    }
+    fireTimes.computeIfAbsent(trigger.getKey(), k -> Collections.newSetFromMap(new ConcurrentHashMap<>()))
+        .add(bundle.getScheduledFireTime().getTime());
+
+    if (job.isConcurrentExectionDisallowed()) {
+      if (!running.add(job.getKey())) {
+        overlaps.add(job.getKey());
+      }
+      Thread.sleep(1);
+      running.remove(job.getKey());
+    }
+
+    store.triggeredJobComplete(trigger, job, trigger.getNextFireTime() == null
+        ? CompletedExecutionInstruction.DELETE_TRIGGER
+        : CompletedExecutionInstruction.NOOP);
+  }
+
+  private void pauseAndResume(HazelcastJobStore store, Random random, List<TriggerKey> triggerKeys) {
+
+    try {
+      while (!stopped && fires.size() < JOBS * TRIGGERS_PER_JOB * FIRES_PER_TRIGGER
+          && System.currentTimeMillis() < deadline) {
+        TriggerKey triggerKey = triggerKeys.get(random.nextInt(triggerKeys.size()));
+        store.pauseTrigger(triggerKey);
+        pauses.incrementAndGet();
+        Thread.sleep(random.nextInt(3));
+        store.resumeTrigger(triggerKey);
+      }
+    } catch (Throwable t) {
+      LOG.error("Pauser failed", t);
+      errors.add(t);
+    }
+  }
+}
@@ -2,24 +2,51 @@ package com.bikeemotion.quartz.jobstore.hazelcast;
 
 import com.beust.jcommander.internal.Maps;
 import com.bikeemotion.quartz.AbstractTest;
+import com.bikeemotion.quartz.MyNoConcurrentJob;
+import com.bikeemotion.quartz.jobstore.hazelcast.metrics.HistogramSnapshot;
+import com.bikeemotion.quartz.jobstore.hazelcast.metrics.InMemoryMetricsExporter;
+import com.bikeemotion.quartz.jobstore.hazelcast.metrics.JobStoreMetrics;
+import com.bikeemotion.quartz.jobstore.hazelcast.metrics.JobStoreOperation;
+import com.bikeemotion.quartz.jobstore.hazelcast.metrics.MetricsSnapshot;
 import com.google.common.collect.Lists;
 import com.hazelcast.config.Config;
 import com.hazelcast.core.Hazelcast;
 import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
 
+import java.lang.management.ManagementFactory;
+import java.util.AbstractMap;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import javax.management.JMX;
+import javax.management.ObjectName;
 
 import org.quartz.Calendar;
 import org.quartz.DateBuilder;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.Job;
 import org.quartz.JobBuilder;
 import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
 import org.quartz.JobKey;
 import org.quartz.JobPersistenceException;
 import org.quartz.ObjectAlreadyExistsException;
+import org.quartz.PersistJobDataAfterExecution;
 
 import static org.quartz.DateBuilder.newDate;
 import static org.quartz.Scheduler.DEFAULT_GROUP;
@@ -37,6 +64,7 @@ import org.quartz.spi.ClassLoadHelper;
 import org.quartz.spi.JobStore;
 import org.quartz.spi.OperableTrigger;
 import org.quartz.spi.SchedulerSignaler;
+import org.quartz.spi.TriggerFiredBundle;
 import org.quartz.spi.TriggerFiredResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -112,13 +140,19 @@ public class HazelcastJobStoreTest extends AbstractTest {
     throws SchedulerException {
 
     HazelcastInstance hazelcastInstance = createHazelcastInstance(UUID.randomUUID().toString());
+    HazelcastInstance otherHazelcastInstance = createHazelcastInstance(UUID.randomUUID().toString());
 
     HazelcastJobStore jobStore = createJobStore("test-shutting-down-hazelcast");
     HazelcastJobStore.setHazelcastClient(hazelcastInstance);
+    jobStore.initialize(null, fSignaler);
     jobStore.schedulerStarted();
+    // another store of the same JVM against another member
+    HazelcastJobStore.setHazelcastClient(otherHazelcastInstance);
     jobStore.shutdown();
 
     assertFalse(hazelcastInstance.getLifecycleService().isRunning());
+    assertTrue(otherHazelcastInstance.getLifecycleService().isRunning());
+    otherHazelcastInstance.shutdown();
   }
 
   @Test
@@ -130,6 +164,7 @@ public class HazelcastJobStoreTest extends AbstractTest {
     HazelcastJobStore jobStore = createJobStore("test-shutting-down-hazelcast");
     HazelcastJobStore.setHazelcastClient(hazelcastInstance);
     jobStore.setShutdownHazelcastOnShutdown(false);
+    jobStore.initialize(null, fSignaler);
     jobStore.schedulerStarted();
     jobStore.shutdown();
 
@@ -848,6 +883,155 @@ public class HazelcastJobStoreTest extends AbstractTest {
     jobStore.storeJobAndTrigger(jobDetailImpl, (OperableTrigger) trigger1);
   }
 
+  @Test
+  public void testConcurrentStoresOfTheSameKey()
+    throws Exception {
+
+    final JobDetail job = JobBuilder.newJob(NoOpJob.class)
+        .withIdentity("job1", "testConcurrentStoresOfTheSameKey").storeDurably().build();
+    final OperableTrigger trigger = buildTrigger("trigger1", "testConcurrentStoresOfTheSameKey", job,
+        DateBuilder.newDate().build().getTime() + 60000);
+    final int threads = 8;
+    final CountDownLatch start = new CountDownLatch(1);
+    final AtomicInteger jobsStored = new AtomicInteger();
+    final AtomicInteger triggersStored = new AtomicInteger();
+    final AtomicInteger calendarsStored = new AtomicInteger();
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      final List<Future<?>> futures = Lists.newArrayList();
+      for (int i = 0; i < threads; i++) {
+        futures.add(executor.submit(() -> {
+          start.await();
+          try {
+            jobStore.storeJob(job, false);
+            jobsStored.incrementAndGet();
+          } catch (ObjectAlreadyExistsException expected) {
+          }
+          // the job is there now, whoever stored it
+          try {
+            jobStore.storeTrigger(trigger, false);
+            triggersStored.incrementAndGet();
+          } catch (ObjectAlreadyExistsException expected) {
+          }
+          try {
+            jobStore.storeCalendar("testConcurrentStoresOfTheSameKey", new BaseCalendar(), false, false);
+            calendarsStored.incrementAndGet();
+          } catch (ObjectAlreadyExistsException expected) {
+          }
+          return null;
+        }));
+      }
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertEquals(jobsStored.get(), 1);
+    assertEquals(triggersStored.get(), 1);
+    assertEquals(calendarsStored.get(), 1);
+    assertEquals(jobStore.getJobKeys(GroupMatcher.jobGroupEquals("testConcurrentStoresOfTheSameKey")).size(), 1);
+    assertEquals(jobStore.getTriggerKeys(GroupMatcher.triggerGroupEquals("testConcurrentStoresOfTheSameKey")).size(),
+        1);
+    assertEquals(jobStore.getTriggerState(trigger.getKey()), Trigger.TriggerState.NORMAL);
+    jobStore.removeJob(job.getKey());
+    jobStore.removeCalendar("testConcurrentStoresOfTheSameKey");
+  }
+
+  @Test
+  public void testGroupIndex()
+    throws Exception {
+
+    HazelcastInstance member = createHazelcastInstance("testGroupIndex");
+    HazelcastJobStore.setHazelcastClient(member);
+    HazelcastJobStore indexedJobStore = createJobStore("testGroupIndex");
+    indexedJobStore.setShutdownHazelcastOnShutdown(false);
+    indexedJobStore.setGroupIndexEnabled(true);
+    indexedJobStore.initialize(null, fSignaler);
+    try {
+      long baseFireTime = DateBuilder.newDate().build().getTime() + 60000;
+      for (String group : Arrays.asList("tenant-1", "tenant-2", "reports")) {
+        JobDetail job = JobBuilder.newJob(NoOpJob.class).withIdentity("job", group).build();
+        indexedJobStore.storeJob(job, false);
+        for (int i = 0; i < 3; i++) {
+          indexedJobStore.storeTrigger(buildAndComputeTrigger("trigger" + i, group, job, baseFireTime), false);
+        }
+      }
+
+      assertEquals(indexedJobStore.getJobKeys(GroupMatcher.jobGroupEquals("tenant-1")),
+          new HashSet<>(Arrays.asList(new JobKey("job", "tenant-1"))));
+      assertEquals(indexedJobStore.getJobKeys(GroupMatcher.jobGroupStartsWith("tenant-")).size(), 2);
+      assertEquals(indexedJobStore.getTriggerKeys(GroupMatcher.triggerGroupEquals("reports")).size(), 3);
+      assertEquals(indexedJobStore.getTriggerKeys(GroupMatcher.triggerGroupStartsWith("tenant-")).size(), 6);
+      assertEquals(new HashSet<>(indexedJobStore.getJobGroupNames()),
+          new HashSet<>(Arrays.asList("tenant-1", "tenant-2", "reports")));
+
+      indexedJobStore.pauseTriggers(GroupMatcher.triggerGroupStartsWith("tenant-"));
+      assertEquals(indexedJobStore.getTriggerState(new TriggerKey("trigger0", "tenant-2")),
+          Trigger.TriggerState.PAUSED);
+      assertEquals(indexedJobStore.getTriggerState(new TriggerKey("trigger0", "reports")),
+          Trigger.TriggerState.NORMAL);
+
+      indexedJobStore.removeJob(new JobKey("job", "reports"));
+      assertTrue(indexedJobStore.getTriggerKeys(GroupMatcher.triggerGroupEquals("reports")).isEmpty());
+      assertEquals(new HashSet<>(indexedJobStore.getTriggerGroupNames()),
+          new HashSet<>(Arrays.asList("tenant-1", "tenant-2")));
+    } finally {
+      indexedJobStore.shutdown();
+      member.shutdown();
+      HazelcastJobStore.setHazelcastClient(hazelcastInstance);
+    }
+  }
+
+  @Test
+  public void testPagedKeys()
+    throws Exception {
+
+    long baseFireTime = DateBuilder.newDate().build().getTime() + 60000;
+    for (String group : Arrays.asList("testPagedKeys-a", "testPagedKeys-b", "testPagedKeys-c")) {
+      JobDetail job = JobBuilder.newJob(NoOpJob.class).withIdentity("job", group).build();
+      jobStore.storeJob(job, false);
+      for (int i = 0; i < 9; i++) {
+        jobStore.storeTrigger(buildAndComputeTrigger("trigger" + i, group, job, baseFireTime), false);
+      }
+    }
+
+    GroupMatcher<TriggerKey> matcher = GroupMatcher.triggerGroupStartsWith("testPagedKeys-");
+    List<TriggerKey> firstPage = jobStore.getTriggerKeys(matcher, null, 10);
+    assertEquals(firstPage.size(), 10);
+    assertEquals(firstPage.get(0), new TriggerKey("trigger0", "testPagedKeys-a"));
+    assertEquals(firstPage.get(9), new TriggerKey("trigger0", "testPagedKeys-b"));
+    assertEquals(jobStore.getTriggerKeys(matcher, firstPage.get(9), 10).get(0),
+        new TriggerKey("trigger1", "testPagedKeys-b"));
+
+    List<TriggerKey> streamed = jobStore.streamTriggerKeys(matcher, 4).collect(Collectors.toList());
+    List<TriggerKey> sorted = Lists.newArrayList(jobStore.getTriggerKeys(matcher));
+    Collections.sort(sorted);
+    assertEquals(streamed, sorted);
+    // the default group sorts first, like the keys
+    JobDetail defaultGroupJob = JobBuilder.newJob(NoOpJob.class).withIdentity("testPagedKeys").build();
+    jobStore.storeJob(defaultGroupJob, false);
+    List<JobKey> allJobKeys = Lists.newArrayList(jobStore.getJobKeys(GroupMatcher.anyJobGroup()));
+    Collections.sort(allJobKeys);
+    assertEquals(jobStore.streamJobKeys(GroupMatcher.anyJobGroup(), 3).collect(Collectors.toList()), allJobKeys);
+    jobStore.removeJob(defaultGroupJob.getKey());
+
+    assertEquals(jobStore.streamJobKeys(GroupMatcher.jobGroupEquals("testPagedKeys-b"), 1)
+        .collect(Collectors.toList()), Arrays.asList(new JobKey("job", "testPagedKeys-b")));
+
+    assertEquals(jobStore.getJobGroupNames("testPagedKeys-a", 1), Arrays.asList("testPagedKeys-b"));
+    List<String> groups = jobStore.streamTriggerGroupNames(2).collect(Collectors.toList());
+    List<String> sortedGroups = Lists.newArrayList(jobStore.getTriggerGroupNames());
+    Collections.sort(sortedGroups);
+    assertEquals(groups, sortedGroups);
+
+    for (String group : Arrays.asList("testPagedKeys-a", "testPagedKeys-b", "testPagedKeys-c")) {
+      jobStore.removeJob(new JobKey("job", group));
+    }
+  }
+
   @Test
   public void storeCalendar()
     throws ObjectAlreadyExistsException,
@@ -1040,6 +1224,119 @@ public class HazelcastJobStoreTest extends AbstractTest {
     jobStore.storeJobsAndTriggers(triggersAndJobs, false);
   }
 
+  @Test
+  public void storeJobsAndTriggersInBulk()
+    throws Exception {
+
+    jobStore.setBulkStoreBatchSize(4);
+    jobStore.pauseTriggers(GroupMatcher.triggerGroupEquals("storeJobsAndTriggersInBulkPaused"));
+
+    final List<long[]> progress = Lists.newArrayList();
+    long stored = jobStore.storeJobsAndTriggersInBulk(IntStream.range(0, 5).mapToObj(i -> {
+      JobDetail job = JobBuilder.newJob(NoOpJob.class).withIdentity("job" + i, "storeJobsAndTriggersInBulk")
+          .storeDurably().build();
+      Set<Trigger> triggers = new HashSet<>();
+      for (int t = 0; t < 3; t++) {
+        triggers.add(buildTrigger("trigger" + i + "-" + t,
+            t == 0 ? "storeJobsAndTriggersInBulkPaused" : "storeJobsAndTriggersInBulk", job, 0L));
+      }
+      return new AbstractMap.SimpleEntry<>(job, triggers);
+    }), false, (jobs, triggers) -> progress.add(new long[] { jobs, triggers }));
+
+    assertEquals(stored, 15);
+    assertEquals(progress.size(), 5);
+    assertEquals(progress.get(4)[0], 5);
+    assertEquals(progress.get(4)[1], 15);
+    assertEquals(jobStore.getJobKeys(GroupMatcher.jobGroupEquals("storeJobsAndTriggersInBulk")).size(), 5);
+    assertEquals(jobStore.getTriggerKeys(GroupMatcher.triggerGroupEquals("storeJobsAndTriggersInBulk")).size(), 10);
+    assertEquals(jobStore.getTriggerState(new TriggerKey("trigger0-0", "storeJobsAndTriggersInBulkPaused")),
+        Trigger.TriggerState.PAUSED);
+    assertEquals(jobStore.getTriggerState(new TriggerKey("trigger0-1", "storeJobsAndTriggersInBulk")),
+        Trigger.TriggerState.NORMAL);
+
+    JobDetail job = jobStore.retrieveJob(new JobKey("job0", "storeJobsAndTriggersInBulk"));
+    try {
+      jobStore.storeJobsAndTriggersInBulk(Collections.singletonMap(job, Collections.<Trigger> emptySet())
+          .entrySet().iterator(), false, null);
+      fail("Expected ObjectAlreadyExistsException");
+    } catch (ObjectAlreadyExistsException expected) {
+    }
+    OperableTrigger replacement = buildTrigger("trigger0-1", "storeJobsAndTriggersInBulk", job, 0L);
+    assertEquals(jobStore.storeJobsAndTriggersInBulk(Collections.singletonMap(job, Collections.singleton(replacement))
+        .entrySet().iterator(), true, null), 1);
+    assertEquals(jobStore.getTriggerKeys(GroupMatcher.triggerGroupEquals("storeJobsAndTriggersInBulk")).size(), 10);
+    jobStore.setBulkStoreBatchSize(1000);
+  }
+
+  @Test
+  public void testTriggerOrderWithExtremePriorities() {
+
+    JobDetail job = buildJob("testTriggerOrderWithExtremePriorities");
+    long fireTime = DateBuilder.newDate().build().getTime() + 60000;
+    OperableTrigger highest = buildAndComputeTrigger("highest", "testTriggerOrderWithExtremePriorities", job, fireTime);
+    highest.setPriority(Integer.MAX_VALUE);
+    OperableTrigger lowest = buildAndComputeTrigger("lowest", "testTriggerOrderWithExtremePriorities", job, fireTime);
+    lowest.setPriority(Integer.MIN_VALUE);
+
+    assertTrue(TriggerWrapperComparator.INSTANCE.compare(TriggerWrapper.newTriggerWrapper(highest),
+        TriggerWrapper.newTriggerWrapper(lowest)) < 0);
+    assertTrue(TriggerWrapperComparator.INSTANCE.compare(TriggerWrapper.newTriggerWrapper(lowest),
+        TriggerWrapper.newTriggerWrapper(highest)) > 0);
+  }
+
+  @Test
+  public void testConcurrentBulkStoresOfTheSameKeys()
+    throws Exception {
+
+    HazelcastJobStore.setHazelcastClient(hazelcastInstance);
+    HazelcastJobStore jmxJobStore = createJobStore("testConcurrentBulkStores");
+    jmxJobStore.setInstanceId("testConcurrentBulkStores");
+    jmxJobStore.setShutdownHazelcastOnShutdown(false);
+    jmxJobStore.initialize(null, fSignaler);
+    final int threads = 4;
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      HazelcastJobStoreMXBean mbean = JMX.newMXBeanProxy(ManagementFactory.getPlatformMBeanServer(),
+          new ObjectName("com.bikeemotion.quartz.jobstore.hazelcast:type=HazelcastJobStore"
+              + ",name=\"testConcurrentBulkStores\",instance=\"testConcurrentBulkStores\""),
+          HazelcastJobStoreMXBean.class);
+      long normal = mbean.getTriggerStateCounts().get("NORMAL");
+
+      final CountDownLatch start = new CountDownLatch(1);
+      final List<Future<?>> futures = Lists.newArrayList();
+      for (int i = 0; i < threads; i++) {
+        futures.add(executor.submit(() -> {
+          start.await();
+          try {
+            jmxJobStore.storeJobsAndTriggersInBulk(IntStream.range(0, 20).mapToObj(j -> {
+              JobDetail job = JobBuilder.newJob(NoOpJob.class).withIdentity("job" + j, "testConcurrentBulkStores")
+                  .build();
+              return new AbstractMap.SimpleEntry<>(job,
+                  Collections.singleton(buildTrigger("trigger" + j, "testConcurrentBulkStores", job, 0L)));
+            }).iterator(), false, null);
+          } catch (ObjectAlreadyExistsException expected) {
+          }
+          return null;
+        }));
+      }
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+
+      // whoever stored each trigger, it was counted once
+      int stored = jmxJobStore.getTriggerKeys(GroupMatcher.triggerGroupEquals("testConcurrentBulkStores")).size();
+      assertTrue(stored <= 20, "Stored: " + stored);
+      assertEquals(mbean.getTriggerStateCounts().get("NORMAL").longValue(), normal + stored);
+      for (int j = 0; j < 20; j++) {
+        jmxJobStore.removeJob(new JobKey("job" + j, "testConcurrentBulkStores"));
+      }
+    } finally {
+      executor.shutdownNow();
+      jmxJobStore.shutdown();
+    }
+  }
+
   @Test
   public void testGetTriggersForJob()
     throws JobPersistenceException {
@@ -1407,6 +1704,1036 @@ public class HazelcastJobStoreTest extends AbstractTest {
     jobStore.removeTrigger(trigger1.getKey());
   }
 
+  @Test
+  public void testCurrentlyExecutingTriggers()
+    throws Exception {
+
+    long baseFireTime = DateBuilder.newDate().build().getTime();
+
+    JobDetail newJob = JobBuilder.newJob(NoOpJob.class).withIdentity("job1", "testCurrentlyExecuting").build();
+    jobStore.storeJob(newJob, false);
+
+    OperableTrigger trigger1 = buildAndComputeTrigger("executing1", "testCurrentlyExecuting", newJob, baseFireTime + 100);
+    OperableTrigger trigger2 = buildAndComputeTrigger("executing2", "testCurrentlyExecuting", newJob, baseFireTime + 200);
+    jobStore.storeTrigger(trigger1, false);
+    jobStore.storeTrigger(trigger2, false);
+
+    List<OperableTrigger> acquiredTriggers = jobStore.acquireNextTriggers(baseFireTime + 500, 2, 0L);
+    assertEquals(acquiredTriggers.size(), 2);
+    assertEquals(jobStore.triggersFired(acquiredTriggers).size(), 2);
+
+    assertEquals(jobStore.getNumberOfCurrentlyExecutingTriggers(), 2);
+    List<FiredTriggerRecord> first = jobStore.getCurrentlyExecutingTriggers(null, null, 1);
+    List<FiredTriggerRecord> second = jobStore.getCurrentlyExecutingTriggers(null, first.get(0), 1);
+    assertEquals(first.size(), 1);
+    assertEquals(second.size(), 1);
+    assertEquals(first.get(0).getJobKey(), newJob.getKey());
+    assertTrue(first.get(0).getFiredTime() <= second.get(0).getFiredTime());
+    assertFalse(first.get(0).getFireInstanceId().equals(second.get(0).getFireInstanceId()));
+    assertTrue(jobStore.getCurrentlyExecutingTriggers(null, second.get(0), 1).isEmpty());
+    assertEquals(jobStore.streamCurrentlyExecutingTriggers(null, 1).count(), 2);
+
+    for (OperableTrigger trigger : acquiredTriggers) {
+      jobStore.triggeredJobComplete(trigger, newJob, Trigger.CompletedExecutionInstruction.NOOP);
+    }
+    assertEquals(jobStore.getNumberOfCurrentlyExecutingTriggers(), 0);
+    assertTrue(jobStore.getCurrentlyExecutingTriggers(null, null, 10).isEmpty());
+  }
+
+  @Test
+  public void testFireInstanceIdsAreUniqueForStoresSharingInstanceId()
+    throws Exception {
+
+    HazelcastJobStore.setHazelcastClient(hazelcastInstance);
+    HazelcastJobStore otherJobStore = createJobStore("testFireInstanceIds");
+    otherJobStore.setShutdownHazelcastOnShutdown(false);
+    otherJobStore.initialize(null, fSignaler);
+    jobStore.setInstanceId("sharedInstanceId");
+    otherJobStore.setInstanceId("sharedInstanceId");
+
+    long baseFireTime = DateBuilder.newDate().build().getTime();
+    JobDetail newJob = JobBuilder.newJob(NoOpJob.class).withIdentity("job1", "testFireInstanceIds").build();
+    jobStore.storeJob(newJob, false);
+    jobStore.storeTrigger(buildAndComputeTrigger("trigger1", "testFireInstanceIds", newJob, baseFireTime + 100), false);
+    jobStore.storeTrigger(buildAndComputeTrigger("trigger2", "testFireInstanceIds", newJob, baseFireTime + 200), false);
+
+    List<OperableTrigger> acquired1 = jobStore.acquireNextTriggers(baseFireTime + 150, 1, 0L);
+    List<OperableTrigger> acquired2 = otherJobStore.acquireNextTriggers(baseFireTime + 250, 1, 0L);
+    assertEquals(acquired1.size(), 1);
+    assertEquals(acquired2.size(), 1);
+    assertTrue(acquired1.get(0).getFireInstanceId().startsWith("sharedInstanceId"));
+    assertFalse(acquired1.get(0).getFireInstanceId().equals(acquired2.get(0).getFireInstanceId()));
+  }
+
+  @Test
+  public void testMisfireIsDetectedWithConfiguredClock()
+    throws Exception {
+
+    long baseFireTime = DateBuilder.newDate().build().getTime();
+
+    JobDetail newJob = JobBuilder.newJob(NoOpJob.class).withIdentity("job1", "testConfiguredClock").build();
+    jobStore.storeJob(newJob, false);
+    jobStore.storeTrigger(buildAndComputeTrigger("trigger1", "testConfiguredClock", newJob, baseFireTime + 100), false);
+
+    int misfireCount = fSignaler.fMisfireCount;
+    // an hour later, the trigger is way behind the misfire threshold
+    jobStore.setClock(() -> baseFireTime + 3600 * 1000);
+    try {
+      jobStore.acquireNextTriggers(baseFireTime + 200, 1, 0L);
+    } finally {
+      jobStore.setClock(JobStoreClock.SYSTEM);
+    }
+    assertEquals(fSignaler.fMisfireCount, misfireCount + 1);
+  }
+
+  @Test
+  public void testAcquiredTriggersAreStampedWithConfiguredClock()
+    throws Exception {
+
+    long baseFireTime = DateBuilder.newDate().build().getTime();
+
+    JobDetail newJob = JobBuilder.newJob(NoOpJob.class).withIdentity("job1", "testStampedWithClock").build();
+    jobStore.storeJob(newJob, false);
+    OperableTrigger trigger = buildAndComputeTrigger("trigger1", "testStampedWithClock", newJob, baseFireTime + 100);
+    jobStore.storeTrigger(trigger, false);
+
+    jobStore.setClock(() -> baseFireTime + 200);
+    try {
+      assertEquals(jobStore.acquireNextTriggers(baseFireTime + 200, 1, 0L).size(), 1);
+    } finally {
+      jobStore.setClock(JobStoreClock.SYSTEM);
+    }
+    TriggerWrapper acquired = (TriggerWrapper) hazelcastInstance.getMap("job-store-trigger-by-key-map")
+        .get(trigger.getKey());
+    assertEquals(acquired.getAcquiredAt(), Long.valueOf(baseFireTime + 200));
+  }
+
+  @Test
+  public void testAcquireNextTriggersOrdersByFireTimeThenPriority()
+    throws Exception {
+
+    assertAcquiredInPriorityOrder(0);
+  }
+
+  @Test
+  public void testAcquireNextTriggersOrdersByPriorityWithPagedCandidates()
+    throws Exception {
+
+    jobStore.setAcquireCandidatePageSize(2);
+    try {
+      assertAcquiredInPriorityOrder(1);
+    } finally {
+      jobStore.setAcquireCandidatePageSize(0);
+    }
+  }
+
+  private void assertAcquiredInPriorityOrder(int run)
+    throws Exception {
+
+    long baseFireTime = DateBuilder.newDate().build().getTime();
+    String group = "testPriorityOrder" + run;
+
+    JobDetail newJob = JobBuilder.newJob(NoOpJob.class).withIdentity("job1", group).build();
+    jobStore.storeJob(newJob, false);
+
+    OperableTrigger low = buildAndComputeTrigger("low", group, newJob, baseFireTime + 100);
+    low.setPriority(1);
+    OperableTrigger high = buildAndComputeTrigger("high", group, newJob, baseFireTime + 100);
+    high.setPriority(10);
+    OperableTrigger medium = buildAndComputeTrigger("medium", group, newJob, baseFireTime + 100);
+    medium.setPriority(5);
+    OperableTrigger earlier = buildAndComputeTrigger("earlier", group, newJob, baseFireTime + 50);
+    earlier.setPriority(1);
+    jobStore.storeTrigger(low, false);
+    jobStore.storeTrigger(high, false);
+    jobStore.storeTrigger(medium, false);
+    jobStore.storeTrigger(earlier, false);
+
+    List<OperableTrigger> acquired = jobStore.acquireNextTriggers(baseFireTime + 200, 3, 0L);
+    assertEquals(acquired.size(), 3);
+    assertEquals(acquired.get(0).getKey(), earlier.getKey());
+    assertEquals(acquired.get(1).getKey(), high.getKey());
+    assertEquals(acquired.get(2).getKey(), medium.getKey());
+  }
+
+  @Test
+  public void testOperationMetricsAreExported()
+    throws Exception {
+
+    HazelcastJobStore.setHazelcastClient(hazelcastInstance);
+    HazelcastJobStore metricsJobStore = createJobStore("testOperationMetrics");
+    metricsJobStore.setShutdownHazelcastOnShutdown(false);
+    metricsJobStore.setMetricsEnabled(true);
+    metricsJobStore.initialize(null, fSignaler);
+    InMemoryMetricsExporter exporter = new InMemoryMetricsExporter();
+    metricsJobStore.getMetrics().addExporter(exporter);
+
+    long baseFireTime = DateBuilder.newDate().build().getTime();
+    JobDetail newJob = JobBuilder.newJob(NoOpJob.class).withIdentity("job1", "testOperationMetrics").build();
+    metricsJobStore.storeJob(newJob, false);
+    metricsJobStore.storeTrigger(buildAndComputeTrigger("trigger1", "testOperationMetrics", newJob, baseFireTime + 100),
+        false);
+
+    List<OperableTrigger> acquired = metricsJobStore.acquireNextTriggers(baseFireTime + 150, 1, 0L);
+    List<TriggerFiredResult> fired = metricsJobStore.triggersFired(acquired);
+    metricsJobStore.triggeredJobComplete(acquired.get(0), fired.get(0).getTriggerFiredBundle().getJobDetail(),
+        Trigger.CompletedExecutionInstruction.NOOP);
+
+    assertNull(exporter.getLastSnapshot());
+    metricsJobStore.getMetrics().export();
+    MetricsSnapshot snapshot = exporter.getLastSnapshot();
+    assertNotNull(snapshot);
+    assertEquals(snapshot.getLatency(JobStoreOperation.STORE).getCount(), 2);
+    assertEquals(snapshot.getLatency(JobStoreOperation.ACQUIRE).getCount(), 1);
+    assertEquals(snapshot.getLatency(JobStoreOperation.FIRED).getCount(), 1);
+    assertEquals(snapshot.getLatency(JobStoreOperation.COMPLETE).getCount(), 1);
+    assertEquals(snapshot.getLatency(JobStoreOperation.PAUSE).getCount(), 0);
+    assertEquals(snapshot.getCandidatesClaimed(), 1);
+    assertTrue(snapshot.getCandidatesScanned() >= 1);
+    assertEquals(snapshot.getTriggersAcquiredPerCall().getMax(), 1);
+    assertTrue(snapshot.getLockWait().getCount() > 0);
+
+    // nothing is recorded while disabled
+    metricsJobStore.setMetricsEnabled(false);
+    metricsJobStore.pauseTrigger(acquired.get(0).getKey());
+    assertEquals(metricsJobStore.getMetrics().snapshot().getLatency(JobStoreOperation.PAUSE).getCount(), 0);
+  }
+
+  @Test
+  public void testFireLagByJobGroup()
+    throws Exception {
+
+    HazelcastJobStore.setHazelcastClient(hazelcastInstance);
+    HazelcastJobStore metricsJobStore = createJobStore("testFireLagByJobGroup");
+    metricsJobStore.setShutdownHazelcastOnShutdown(false);
+    metricsJobStore.setMetricsEnabled(true);
+    metricsJobStore.setMaxFireLagJobGroups(2);
+    metricsJobStore.initialize(null, fSignaler);
+
+    // already due, so every fire lags at least a second
+    long baseFireTime = DateBuilder.newDate().build().getTime() - 1000;
+    for (String group : new String[] { "teamA", "teamB", "teamC" }) {
+      JobDetail newJob = JobBuilder.newJob(NoOpJob.class).withIdentity("job", group).build();
+      metricsJobStore.storeJob(newJob, false);
+      metricsJobStore.storeTrigger(buildAndComputeTrigger("trigger", group, newJob, baseFireTime), false);
+      List<OperableTrigger> acquired = metricsJobStore.acquireNextTriggers(baseFireTime + 1000, 1, 0L);
+      assertEquals(metricsJobStore.triggersFired(acquired).size(), 1);
+    }
+
+    Map<String, HistogramSnapshot> fireLag = metricsJobStore.getMetrics().getFireLagByJobGroup();
+    assertEquals(fireLag.keySet(), new HashSet<>(Arrays.asList("teamA", "teamB", JobStoreMetrics.OTHER_JOB_GROUPS)));
+    for (HistogramSnapshot snapshot : fireLag.values()) {
+      assertEquals(snapshot.getCount(), 1);
+      assertTrue(snapshot.getMax() >= TimeUnit.SECONDS.toMicros(1));
+    }
+    assertEquals(metricsJobStore.getMetrics().getFireLag().getCount(), 3);
+
+    assertEquals(metricsJobStore.getMetrics().snapshotAndResetFireLag().keySet(), fireLag.keySet());
+    assertTrue(metricsJobStore.getMetrics().getFireLagByJobGroup().isEmpty());
+    assertEquals(metricsJobStore.getMetrics().getFireLag().getCount(), 0);
+  }
+
+  @Test
+  public void testSlowOperationLog()
+    throws Exception {
+
+    HazelcastJobStore.setHazelcastClient(hazelcastInstance);
+    HazelcastJobStore slowOpJobStore = createJobStore("testSlowOperationLog");
+    slowOpJobStore.setInstanceId("testSlowOperationLog");
+    slowOpJobStore.setShutdownHazelcastOnShutdown(false);
+    slowOpJobStore.initialize(null, fSignaler);
+    slowOpJobStore.schedulerStarted();
+
+    long baseFireTime = DateBuilder.newDate().build().getTime();
+    JobDetail newJob = JobBuilder.newJob(NoOpJob.class).withIdentity("job1", "testSlowOperationLog").build();
+    slowOpJobStore.storeJob(newJob, false);
+    OperableTrigger trigger = buildAndComputeTrigger("trigger1", "testSlowOperationLog", newJob, baseFireTime);
+    slowOpJobStore.storeTrigger(trigger, false);
+
+    // enabled while running, logging everything
+    HazelcastJobStoreMXBean mxBean = JMX.newMXBeanProxy(ManagementFactory.getPlatformMBeanServer(),
+        new ObjectName("com.bikeemotion.quartz.jobstore.hazelcast:type=HazelcastJobStore"
+            + ",name=\"testSlowOperationLog\",instance=\"testSlowOperationLog\""),
+        HazelcastJobStoreMXBean.class);
+    mxBean.setSlowOperationThresholdMillis(1);
+    assertEquals(mxBean.getSlowOperationThresholdMillis(), 1);
+    assertEquals(slowOpJobStore.pauseTriggers(GroupMatcher.triggerGroupEquals("testSlowOperationLog")).size(), 1);
+    assertEquals(slowOpJobStore.getTriggerState(trigger.getKey()), Trigger.TriggerState.PAUSED);
+    slowOpJobStore.resumeTriggers(GroupMatcher.triggerGroupEquals("testSlowOperationLog"));
+    assertEquals(slowOpJobStore.getTriggerState(trigger.getKey()), Trigger.TriggerState.NORMAL);
+
+    List<OperableTrigger> acquired = slowOpJobStore.acquireNextTriggers(baseFireTime + 1000, 1, 0L);
+    assertEquals(acquired.size(), 1);
+    assertEquals(slowOpJobStore.triggersFired(acquired).size(), 1);
+    mxBean.setSlowOperationThresholdMillis(0);
+    assertTrue(slowOpJobStore.removeJob(newJob.getKey()));
+    slowOpJobStore.shutdown();
+  }
+
+  @Test
+  public void testEstimatedTimeToReleaseAndAcquireTrigger()
+    throws Exception {
+
+    HazelcastJobStore.setHazelcastClient(hazelcastInstance);
+    HazelcastJobStore estimateJobStore = createJobStore("testEstimatedTimeToReleaseAndAcquireTrigger");
+    estimateJobStore.setShutdownHazelcastOnShutdown(false);
+    estimateJobStore.initialize(null, fSignaler);
+
+    // nothing measured yet
+    assertEquals(estimateJobStore.getEstimatedTimeToReleaseAndAcquireTrigger(), 25);
+
+    long baseFireTime = DateBuilder.newDate().build().getTime();
+    JobDetail newJob = JobBuilder.newJob(NoOpJob.class)
+        .withIdentity("job1", "testEstimatedTimeToReleaseAndAcquireTrigger").build();
+    estimateJobStore.storeJob(newJob, false);
+    estimateJobStore.storeTrigger(buildAndComputeTrigger("trigger1", "testEstimatedTimeToReleaseAndAcquireTrigger",
+        newJob, baseFireTime + 60000), false);
+    for (int i = 0; i < 10; i++) {
+      for (OperableTrigger acquired : estimateJobStore.acquireNextTriggers(baseFireTime + 60000, 1, 0L)) {
+        estimateJobStore.releaseAcquiredTrigger(acquired);
+      }
+    }
+    assertTrue(estimateJobStore.getEstimatedTimeToReleaseAndAcquireTrigger() >= 1);
+
+    estimateJobStore.setEstimatedTimeToReleaseAndAcquireTriggerFloorMillis(500);
+    assertEquals(estimateJobStore.getEstimatedTimeToReleaseAndAcquireTrigger(), 500);
+    estimateJobStore.setEstimatedTimeToReleaseAndAcquireTriggerFloorMillis(0);
+    estimateJobStore.setEstimatedTimeToReleaseAndAcquireTriggerCeilingMillis(1);
+    assertEquals(estimateJobStore.getEstimatedTimeToReleaseAndAcquireTrigger(), 1);
+  }
+
+  @Test
+  public void testCapacityIsPublishedOnSignificantChanges()
+    throws Exception {
+
+    HazelcastJobStore.setHazelcastClient(hazelcastInstance);
+    HazelcastJobStore capacityJobStore = createJobStore("testCapacityIsPublished");
+    capacityJobStore.setInstanceId("testCapacityIsPublished");
+    capacityJobStore.setShutdownHazelcastOnShutdown(false);
+    capacityJobStore.setThreadPoolSize(8);
+    capacityJobStore.initialize(null, fSignaler);
+    try {
+      long baseFireTime = DateBuilder.newDate().build().getTime();
+      JobDetail newJob = JobBuilder.newJob(NoOpJob.class).withIdentity("job1", "testCapacityIsPublished").build();
+      capacityJobStore.storeJob(newJob, false);
+      for (int i = 0; i < 3; i++) {
+        capacityJobStore.storeTrigger(buildAndComputeTrigger("trigger" + i, "testCapacityIsPublished",
+            newJob, baseFireTime + 100 + i), false);
+      }
+
+      // published on the first acquisition, which takes what the scheduler asks for
+      List<OperableTrigger> acquired = capacityJobStore.acquireNextTriggers(baseFireTime + 200, 1, 0L);
+      assertEquals(acquired.size(), 1);
+      assertEquals(publishedCapacity(capacityJobStore, "testCapacityIsPublished").getThreadPoolSize(), 8);
+      assertEquals(publishedCapacity(capacityJobStore, "testCapacityIsPublished").getFreeCapacity(), 8);
+
+      // one thread of eight taken isn't worth a remote call
+      assertEquals(capacityJobStore.acquireNextTriggers(baseFireTime + 200, 2, 0L).size(), 2);
+      assertEquals(capacityJobStore.getFreeCapacity(), 5);
+      assertEquals(publishedCapacity(capacityJobStore, "testCapacityIsPublished").getFreeCapacity(), 8);
+
+      // a quarter of the pool is
+      capacityJobStore.acquireNextTriggers(baseFireTime + 200, 1, 0L);
+      assertEquals(publishedCapacity(capacityJobStore, "testCapacityIsPublished").getFreeCapacity(), 5);
+      assertEquals(publishedCapacity(capacityJobStore, "testCapacityIsPublished").getAcquired(), 3);
+
+      // fired triggers keep their thread until the job completes
+      List<TriggerFiredResult> fired = capacityJobStore.triggersFired(acquired);
+      assertEquals(capacityJobStore.getFreeCapacity(), 5);
+      capacityJobStore.triggeredJobComplete(acquired.get(0), fired.get(0).getTriggerFiredBundle().getJobDetail(),
+          Trigger.CompletedExecutionInstruction.NOOP);
+      assertEquals(capacityJobStore.getFreeCapacity(), 6);
+    } finally {
+      capacityJobStore.shutdown();
+    }
+  }
+
+  private StoreCapacity publishedCapacity(HazelcastJobStore store, String instanceId) {
+
+    StoreCapacity capacity = store.getClusterCapacity().get(instanceId);
+    assertNotNull(capacity);
+    return capacity;
+  }
+
+  @Test
+  public void testLeaderDispatch()
+    throws Exception {
+
+    HazelcastJobStore.setHazelcastClient(hazelcastInstance);
+    List<HazelcastJobStore> stores = Lists.newArrayList();
+    for (int i = 0; i < 2; i++) {
+      HazelcastJobStore dispatchJobStore = createJobStore("testLeaderDispatch" + i);
+      dispatchJobStore.setInstanceId("testLeaderDispatch" + i);
+      dispatchJobStore.setShutdownHazelcastOnShutdown(false);
+      dispatchJobStore.setLeaderDispatchEnabled(true);
+      dispatchJobStore.setDispatchIntervalMillis(10);
+      dispatchJobStore.initialize(null, fSignaler);
+      dispatchJobStore.schedulerStarted();
+      stores.add(dispatchJobStore);
+    }
+
+    long baseFireTime = DateBuilder.newDate().build().getTime();
+    JobDetail newJob = JobBuilder.newJob(NoOpJob.class).withIdentity("job1", "testLeaderDispatch").build();
+    stores.get(0).storeJob(newJob, false);
+    for (int i = 0; i < 10; i++) {
+      stores.get(0).storeTrigger(buildAndComputeTrigger("trigger" + i, "testLeaderDispatch", newJob, baseFireTime),
+          false);
+    }
+    Set<TriggerKey> acquired = takeDispatched(stores, 10);
+    assertEquals(acquired.size(), 10);
+    assertEquals(stores.stream().filter(HazelcastJobStore::isDispatchLeader).count(), 1);
+
+    // the other store takes over when the leader goes away
+    HazelcastJobStore leader = stores.stream().filter(HazelcastJobStore::isDispatchLeader).findFirst().get();
+    stores.remove(leader);
+    leader.shutdown();
+    for (int i = 10; i < 15; i++) {
+      stores.get(0).storeTrigger(buildAndComputeTrigger("trigger" + i, "testLeaderDispatch", newJob, baseFireTime),
+          false);
+    }
+    assertEquals(takeDispatched(stores, 5).size(), 5);
+    assertTrue(stores.get(0).isDispatchLeader());
+    stores.get(0).shutdown();
+  }
+
+  @Test
+  public void testPausedDispatchLeaderHandsOverLeadership()
+    throws Exception {
+
+    HazelcastJobStore.setHazelcastClient(hazelcastInstance);
+    List<HazelcastJobStore> stores = Lists.newArrayList();
+    try {
+      for (int i = 0; i < 2; i++) {
+        HazelcastJobStore dispatchJobStore = createJobStore("testPausedDispatchLeader" + i);
+        dispatchJobStore.setInstanceId("testPausedDispatchLeader" + i);
+        dispatchJobStore.setShutdownHazelcastOnShutdown(false);
+        dispatchJobStore.setLeaderDispatchEnabled(true);
+        dispatchJobStore.setDispatchIntervalMillis(10);
+        dispatchJobStore.initialize(null, fSignaler);
+        dispatchJobStore.schedulerStarted();
+        stores.add(dispatchJobStore);
+      }
+      HazelcastJobStore leader = awaitDispatchLeader(stores);
+      HazelcastJobStore other = stores.get(1 - stores.indexOf(leader));
+
+      leader.schedulerPaused();
+      assertFalse(leader.isDispatchLeader());
+      assertTrue(awaitDispatchLeader(stores) == other);
+
+      // back in the race once resumed
+      leader.schedulerResumed();
+      other.schedulerPaused();
+      assertTrue(awaitDispatchLeader(stores) == leader);
+    } finally {
+      stores.forEach(HazelcastJobStore::shutdown);
+    }
+  }
+
+  @Test
+  public void testDispatchedTriggersAreOnlyTakenWithinTheAcquisitionWindow()
+    throws Exception {
+
+    HazelcastJobStore.setHazelcastClient(hazelcastInstance);
+    HazelcastJobStore dispatchJobStore = createJobStore("testDispatchWindow");
+    dispatchJobStore.setInstanceId("testDispatchWindow");
+    dispatchJobStore.setShutdownHazelcastOnShutdown(false);
+    dispatchJobStore.setLeaderDispatchEnabled(true);
+    dispatchJobStore.setDispatchIntervalMillis(10);
+    dispatchJobStore.setDispatchLookaheadMillis(60000);
+    dispatchJobStore.initialize(null, fSignaler);
+    dispatchJobStore.schedulerStarted();
+    try {
+      long baseFireTime = DateBuilder.newDate().build().getTime();
+      JobDetail newJob = JobBuilder.newJob(NoOpJob.class).withIdentity("job1", "testDispatchWindow").build();
+      dispatchJobStore.storeJob(newJob, false);
+      OperableTrigger trigger = buildAndComputeTrigger("trigger1", "testDispatchWindow", newJob, baseFireTime + 30000);
+      dispatchJobStore.storeTrigger(trigger, false);
+      awaitDispatchLeader(Collections.singletonList(dispatchJobStore));
+      Thread.sleep(200);
+
+      // dispatched 30s ahead, but not due within the next second
+      assertFalse(dispatchJobStore.acquireNextTriggers(baseFireTime + 1000, 1, 0L).stream()
+          .anyMatch(t -> t.getKey().equals(trigger.getKey())));
+      assertTrue(dispatchJobStore.acquireNextTriggers(baseFireTime + 1000, 10, 30000L).stream()
+          .anyMatch(t -> t.getKey().equals(trigger.getKey())));
+    } finally {
+      dispatchJobStore.shutdown();
+    }
+  }
+
+  private HazelcastJobStore awaitDispatchLeader(List<HazelcastJobStore> stores)
+    throws InterruptedException {
+
+    long deadline = System.currentTimeMillis() + 10000;
+    while (System.currentTimeMillis() < deadline) {
+      for (HazelcastJobStore store : stores) {
+        if (store.isDispatchLeader()) {
+          return store;
+        }
+      }
+      Thread.sleep(10);
+    }
+    fail("No dispatch leader");
+    return null;
+  }
+
+  private Set<TriggerKey> takeDispatched(List<HazelcastJobStore> stores, int count)
+    throws Exception {
+
+    Set<TriggerKey> acquired = new HashSet<>();
+    long deadline = System.currentTimeMillis() + 10000;
+    while (acquired.size() < count && System.currentTimeMillis() < deadline) {
+      for (HazelcastJobStore store : stores) {
+        for (OperableTrigger trigger : store.acquireNextTriggers(System.currentTimeMillis() + 1000, 3, 0L)) {
+          // due triggers left behind by other tests are dispatched as well
+          if (trigger.getKey().getGroup().equals("testLeaderDispatch")) {
+            assertTrue(acquired.add(trigger.getKey()), "Dispatched twice: " + trigger.getKey());
+          }
+        }
+      }
+      Thread.sleep(10);
+    }
+    return acquired;
+  }
+
+  @Test
+  public void testWorkStealing()
+    throws Exception {
+
+    List<HazelcastJobStore> stores = Lists.newArrayList();
+    List<HazelcastInstance> members = Lists.newArrayList();
+    try {
+      for (int i = 0; i < 2; i++) {
+        members.add(createHazelcastInstance("testWorkStealing"));
+        HazelcastJobStore.setHazelcastClient(members.get(i));
+        HazelcastJobStore stealingJobStore = createJobStore("testWorkStealing" + i);
+        stealingJobStore.setInstanceId("testWorkStealing" + i);
+        stealingJobStore.setShutdownHazelcastOnShutdown(false);
+        stealingJobStore.setPartitionLocalAcquisitionEnabled(true);
+        stealingJobStore.setStealBatchSize(5);
+        // the first steal loads classes on the victim
+        stealingJobStore.setStealTimeoutMillis(5000);
+        stealingJobStore.initialize(null, fSignaler);
+        stores.add(stealingJobStore);
+      }
+
+      long baseFireTime = DateBuilder.newDate().build().getTime();
+      JobDetail newJob = JobBuilder.newJob(NoOpJob.class).withIdentity("job1", "testWorkStealing").build();
+      stores.get(0).storeJob(newJob, false);
+      for (int i = 0; i < 40; i++) {
+        stores.get(0).storeTrigger(buildAndComputeTrigger("trigger" + i, "testWorkStealing", newJob, baseFireTime),
+            false);
+      }
+
+      // the second store acquires one trigger at a time, publishing its backlog
+      Set<TriggerKey> acquiredByBacklogged = new HashSet<>();
+      for (int i = 0; i < 2; i++) {
+        for (OperableTrigger trigger : stores.get(1).acquireNextTriggers(baseFireTime + 1000, 1, 0L)) {
+          acquiredByBacklogged.add(trigger.getKey());
+        }
+      }
+      assertTrue(stores.get(0).getClusterCapacity().get("testWorkStealing1").getBacklog() > 0);
+
+      List<OperableTrigger> acquired = stores.get(0).acquireNextTriggers(baseFireTime + 1000, 40, 0L);
+      long stolen = stores.get(0).getMetrics().getTriggersStolen();
+      assertTrue(stolen >= 1 && stolen <= 5, "Stolen: " + stolen);
+      for (OperableTrigger trigger : acquired) {
+        assertFalse(acquiredByBacklogged.contains(trigger.getKey()), "Acquired twice: " + trigger.getKey());
+      }
+    } finally {
+      for (HazelcastJobStore store : stores) {
+        store.shutdown();
+      }
+      for (HazelcastInstance member : members) {
+        member.shutdown();
+      }
+    }
+  }
+
+  @Test
+  public void testTriggersOfMembersRunningNoStoreAreStolen()
+    throws Exception {
+
+    List<HazelcastInstance> members = Lists.newArrayList();
+    HazelcastJobStore localJobStore = null;
+    try {
+      for (int i = 0; i < 2; i++) {
+        members.add(createHazelcastInstance("testTriggersOfMembersRunningNoStoreAreStolen"));
+      }
+      // only the first member runs a store
+      HazelcastJobStore.setHazelcastClient(members.get(0));
+      localJobStore = createJobStore("testTriggersOfMembersRunningNoStoreAreStolen");
+      localJobStore.setInstanceId("testTriggersOfMembersRunningNoStoreAreStolen");
+      localJobStore.setShutdownHazelcastOnShutdown(false);
+      localJobStore.setPartitionLocalAcquisitionEnabled(true);
+      localJobStore.setStealBatchSize(10);
+      localJobStore.setStealTimeoutMillis(5000);
+      localJobStore.initialize(null, fSignaler);
+
+      long baseFireTime = DateBuilder.newDate().build().getTime();
+      JobDetail newJob = JobBuilder.newJob(NoOpJob.class)
+          .withIdentity("job1", "testTriggersOfMembersRunningNoStoreAreStolen").build();
+      localJobStore.storeJob(newJob, false);
+      Set<TriggerKey> stored = new HashSet<>();
+      for (int i = 0; i < 40; i++) {
+        OperableTrigger trigger = buildAndComputeTrigger("trigger" + i, "testTriggersOfMembersRunningNoStoreAreStolen",
+            newJob, baseFireTime);
+        localJobStore.storeTrigger(trigger, false);
+        stored.add(trigger.getKey());
+      }
+
+      Set<TriggerKey> acquired = new HashSet<>();
+      for (int i = 0; i < 10 && acquired.size() < stored.size(); i++) {
+        for (OperableTrigger trigger : localJobStore.acquireNextTriggers(baseFireTime + 1000, 40, 0L)) {
+          assertTrue(acquired.add(trigger.getKey()), "Acquired twice: " + trigger.getKey());
+        }
+      }
+      assertEquals(acquired, stored);
+      assertTrue(localJobStore.getMetrics().getTriggersStolen() > 0);
+    } finally {
+      if (localJobStore != null) {
+        localJobStore.shutdown();
+      }
+      for (HazelcastInstance member : members) {
+        member.shutdown();
+      }
+    }
+  }
+
+  @Test
+  public void testJobGroupAffinity()
+    throws Exception {
+
+    HazelcastJobStore.setHazelcastClient(hazelcastInstance);
+    List<HazelcastJobStore> stores = Lists.newArrayList();
+    for (int i = 0; i < 2; i++) {
+      HazelcastJobStore affinityJobStore = createJobStore("testJobGroupAffinity" + i);
+      affinityJobStore.setInstanceId("testJobGroupAffinity" + i);
+      affinityJobStore.setShutdownHazelcastOnShutdown(false);
+      affinityJobStore.initialize(null, fSignaler);
+      stores.add(affinityJobStore);
+    }
+    stores.get(1).setTags("batch, gpu");
+
+    long baseFireTime = DateBuilder.newDate().build().getTime();
+    JobDetail newJob = JobBuilder.newJob(NoOpJob.class).withIdentity("job1", "testJobGroupAffinity").build();
+    stores.get(0).storeJob(newJob, false);
+    for (int i = 0; i < 3; i++) {
+      stores.get(0).storeTrigger(buildAndComputeTrigger("trigger" + i, "testJobGroupAffinity", newJob,
+          baseFireTime + 100 + i), false);
+    }
+
+    stores.get(0).setJobGroupAffinity("testJobGroupAffinity", new HashSet<>(Arrays.asList("gpu")));
+    assertEquals(stores.get(1).getJobGroupAffinities().get("testJobGroupAffinity"),
+        new HashSet<>(Arrays.asList("gpu")));
+    assertEquals(acquireAndReleaseJobGroup(stores.get(0), "testJobGroupAffinity", baseFireTime + 200), 0);
+    assertEquals(acquireAndReleaseJobGroup(stores.get(1), "testJobGroupAffinity", baseFireTime + 200), 3);
+
+    // pinning by instance id, then unpinning
+    stores.get(1).setJobGroupAffinity("testJobGroupAffinity", new HashSet<>(Arrays.asList("testJobGroupAffinity0")));
+    assertEquals(acquireAndReleaseJobGroup(stores.get(1), "testJobGroupAffinity", baseFireTime + 200), 0);
+    assertEquals(acquireAndReleaseJobGroup(stores.get(0), "testJobGroupAffinity", baseFireTime + 200), 3);
+    stores.get(1).setJobGroupAffinity("testJobGroupAffinity", null);
+    assertTrue(stores.get(0).getJobGroupAffinities().isEmpty());
+    assertEquals(acquireAndReleaseJobGroup(stores.get(1), "testJobGroupAffinity", baseFireTime + 200), 3);
+  }
+
+  /**
+   * @return how many of the acquired triggers are of jobs of the given group
+   */
+  private int acquireAndReleaseJobGroup(HazelcastJobStore store, String jobGroup, long noLaterThan)
+    throws Exception {
+
+    int count = 0;
+    for (OperableTrigger trigger : store.acquireNextTriggers(noLaterThan, 10, 0L)) {
+      if (trigger.getJobKey().getGroup().equals(jobGroup)) {
+        count++;
+      }
+      store.releaseAcquiredTrigger(trigger);
+    }
+    return count;
+  }
+
+  @Test
+  public void testFireTimeSpread()
+    throws Exception {
+
+    HazelcastJobStore.setHazelcastClient(hazelcastInstance);
+    HazelcastJobStore spreadJobStore = createJobStore("testFireTimeSpread");
+    spreadJobStore.setInstanceId("testFireTimeSpread");
+    spreadJobStore.setShutdownHazelcastOnShutdown(false);
+    spreadJobStore.setFireTimeSpreadMillisByTriggerGroup("testFireTimeSpread=500, testFireTimeSpreadOff=0");
+    spreadJobStore.initialize(null, fSignaler);
+
+    final long hour = TimeUnit.HOURS.toMillis(1);
+    long baseFireTime = DateBuilder.newDate().build().getTime() - 1000;
+    JobDetail newJob = JobBuilder.newJob(NoOpJob.class).withIdentity("job1", "testFireTimeSpread").build();
+    spreadJobStore.storeJob(newJob, false);
+    OperableTrigger spread = buildAndComputeTrigger("trigger1", "testFireTimeSpread", newJob, baseFireTime, null,
+        simpleSchedule().withIntervalInMilliseconds(hour).repeatForever());
+    OperableTrigger notSpread = buildAndComputeTrigger("trigger1", "testFireTimeSpreadOff", newJob, baseFireTime,
+        null, simpleSchedule().withIntervalInMilliseconds(hour).repeatForever());
+    spreadJobStore.storeTrigger(spread, false);
+    spreadJobStore.storeTrigger(notSpread, false);
+
+    long offset = FireTimeSpread.offsetMillis(spread.getKey(), 500);
+    OperableTrigger stored = spreadJobStore.retrieveTrigger(spread.getKey());
+    assertEquals(stored.getNextFireTime().getTime(), baseFireTime + offset);
+    assertEquals(spreadJobStore.retrieveTrigger(notSpread.getKey()).getNextFireTime().getTime(), baseFireTime);
+
+    // storing a shifted trigger again doesn't shift it twice
+    spreadJobStore.storeTrigger(stored, true);
+    assertEquals(spreadJobStore.retrieveTrigger(spread.getKey()).getNextFireTime().getTime(), baseFireTime + offset);
+
+    // the period is kept after firing
+    List<OperableTrigger> acquired = spreadJobStore.acquireNextTriggers(baseFireTime + 1000, 10, 0L).stream()
+        .filter(t -> t.getKey().equals(spread.getKey()))
+        .collect(Collectors.toList());
+    assertEquals(acquired.size(), 1);
+    TriggerFiredBundle bundle = spreadJobStore.triggersFired(acquired).get(0).getTriggerFiredBundle();
+    assertEquals(bundle.getScheduledFireTime().getTime(), baseFireTime + offset);
+    assertEquals(spreadJobStore.retrieveTrigger(spread.getKey()).getNextFireTime().getTime(),
+        baseFireTime + hour + offset);
+    spreadJobStore.triggeredJobComplete(acquired.get(0), bundle.getJobDetail(),
+        Trigger.CompletedExecutionInstruction.NOOP);
+    spreadJobStore.removeJob(newJob.getKey());
+  }
+
+  @Test
+  public void testJobGroupRateLimit()
+    throws Exception {
+
+    HazelcastJobStore.setHazelcastClient(hazelcastInstance);
+    HazelcastJobStore rateLimitJobStore = createJobStore("testJobGroupRateLimit");
+    rateLimitJobStore.setInstanceId("testJobGroupRateLimit");
+    rateLimitJobStore.setShutdownHazelcastOnShutdown(false);
+    rateLimitJobStore.initialize(null, fSignaler);
+
+    long baseFireTime = DateBuilder.newDate().build().getTime();
+    JobDetail newJob = JobBuilder.newJob(NoOpJob.class).withIdentity("job1", "testJobGroupRateLimit").build();
+    rateLimitJobStore.storeJob(newJob, false);
+    for (int i = 0; i < 5; i++) {
+      rateLimitJobStore.storeTrigger(buildAndComputeTrigger("trigger" + i, "testJobGroupRateLimit", newJob,
+          baseFireTime + 100 + i), false);
+    }
+
+    // two at once, then one every ~16 minutes
+    rateLimitJobStore.setJobGroupRateLimit("testJobGroupRateLimit", 0.001, 2);
+    assertEquals(acquireJobGroup(rateLimitJobStore, "testJobGroupRateLimit", baseFireTime + 200), 2);
+    assertEquals(acquireJobGroup(rateLimitJobStore, "testJobGroupRateLimit", baseFireTime + 200), 0);
+    assertTrue(rateLimitJobStore.getMetrics().getTriggersRateLimitedByJobGroup().get("testJobGroupRateLimit") > 0);
+    assertTrue(rateLimitJobStore.getJobGroupRateLimits().get("testJobGroupRateLimit").getTokens() < 1);
+    assertEquals(rateLimitJobStore.getTriggerState(new TriggerKey("trigger4", "testJobGroupRateLimit")),
+        Trigger.TriggerState.NORMAL);
+
+    // tokens taken but not used are given back
+    rateLimitJobStore.setJobGroupRateLimit("testJobGroupRateLimit", 0.001, 10);
+    assertEquals(acquireJobGroup(rateLimitJobStore, "testJobGroupRateLimit", baseFireTime + 200), 3);
+    assertTrue(rateLimitJobStore.getJobGroupRateLimits().get("testJobGroupRateLimit").getTokens() >= 7);
+
+    rateLimitJobStore.setJobGroupRateLimit("testJobGroupRateLimit", 0, 0);
+    assertTrue(rateLimitJobStore.getJobGroupRateLimits().isEmpty());
+    rateLimitJobStore.removeJob(newJob.getKey());
+  }
+
+  @Test
+  public void testOnlyLatenessCausedByJobGroupRateLimitIsNotMisfire()
+    throws Exception {
+
+    HazelcastJobStore.setHazelcastClient(hazelcastInstance);
+    HazelcastJobStore rateLimitJobStore = createJobStore("testRateLimitMisfire");
+    rateLimitJobStore.setInstanceId("testRateLimitMisfire");
+    rateLimitJobStore.setShutdownHazelcastOnShutdown(false);
+    rateLimitJobStore.initialize(null, fSignaler);
+
+    long baseFireTime = DateBuilder.newDate().build().getTime();
+    JobDetail newJob = JobBuilder.newJob(NoOpJob.class).withIdentity("job1", "testRateLimitMisfire").build();
+    rateLimitJobStore.storeJob(newJob, false);
+    for (int i = 0; i < 2; i++) {
+      rateLimitJobStore.storeTrigger(buildAndComputeTrigger("deferred" + i, "testRateLimitMisfire", newJob,
+          baseFireTime + 100 + i), false);
+    }
+    rateLimitJobStore.setJobGroupRateLimit("testRateLimitMisfire", 0.001, 1);
+    int misfireCount = fSignaler.fMisfireCount;
+    try {
+      // the second trigger is denied a token on every acquisition, until way
+      // past the misfire threshold of its fire time
+      for (long now = baseFireTime + 200; now <= baseFireTime + 8200; now += 4000) {
+        final long acquiredAt = now;
+        rateLimitJobStore.setClock(() -> acquiredAt);
+        assertEquals(rateLimitJobStore.acquireNextTriggers(acquiredAt, 2, 0L).size(), now == baseFireTime + 200
+            ? 1
+            : 0);
+      }
+      rateLimitJobStore.setJobGroupRateLimit("testRateLimitMisfire", 0.001, 1);
+      rateLimitJobStore.setClock(() -> baseFireTime + 12000);
+      assertEquals(rateLimitJobStore.acquireNextTriggers(baseFireTime + 12000, 2, 0L).size(), 1);
+      assertEquals(fSignaler.fMisfireCount, misfireCount);
+
+      // a trigger late while its group had tokens to spare still misfires
+      rateLimitJobStore.storeTrigger(buildAndComputeTrigger("late", "testRateLimitMisfire", newJob,
+          baseFireTime + 12100), false);
+      rateLimitJobStore.setJobGroupRateLimit("testRateLimitMisfire", 0.001, 1);
+      rateLimitJobStore.setClock(() -> baseFireTime + 30000);
+      rateLimitJobStore.acquireNextTriggers(baseFireTime + 30000, 2, 0L);
+      assertEquals(fSignaler.fMisfireCount, misfireCount + 1);
+    } finally {
+      rateLimitJobStore.setClock(JobStoreClock.SYSTEM);
+      rateLimitJobStore.setJobGroupRateLimit("testRateLimitMisfire", 0, 0);
+      rateLimitJobStore.removeJob(newJob.getKey());
+    }
+  }
+
+  /**
+   * @return how many of the acquired triggers are of jobs of the given group
+   */
+  private int acquireJobGroup(HazelcastJobStore store, String jobGroup, long noLaterThan)
+    throws Exception {
+
+    int count = 0;
+    for (OperableTrigger trigger : store.acquireNextTriggers(noLaterThan, 10, 0L)) {
+      if (trigger.getJobKey().getGroup().equals(jobGroup)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  @Test
+  public void testStatisticsMBean()
+    throws Exception {
+
+    HazelcastJobStore.setHazelcastClient(hazelcastInstance);
+    HazelcastJobStore jmxJobStore = createJobStore("testStatisticsMBean");
+    jmxJobStore.setInstanceId("testStatisticsMBean");
+    jmxJobStore.setShutdownHazelcastOnShutdown(false);
+    jmxJobStore.initialize(null, fSignaler);
+    try {
+      HazelcastJobStoreMXBean mbean = JMX.newMXBeanProxy(ManagementFactory.getPlatformMBeanServer(),
+          new ObjectName("com.bikeemotion.quartz.jobstore.hazelcast:type=HazelcastJobStore"
+              + ",name=\"testStatisticsMBean\",instance=\"testStatisticsMBean\""),
+          HazelcastJobStoreMXBean.class);
+      mbean.recountTriggerStates();
+      long normal = mbean.getTriggerStateCounts().get("NORMAL");
+      long paused = mbean.getTriggerStateCounts().get("PAUSED");
+
+      long baseFireTime = DateBuilder.newDate().build().getTime();
+      JobDetail newJob = JobBuilder.newJob(NoOpJob.class).withIdentity("job1", "testStatisticsMBean").build();
+      jmxJobStore.storeJob(newJob, false);
+      OperableTrigger trigger1 = buildAndComputeTrigger("trigger1", "testStatisticsMBean", newJob, baseFireTime + 100);
+      OperableTrigger trigger2 = buildAndComputeTrigger("trigger2", "testStatisticsMBean", newJob, baseFireTime + 200);
+      jmxJobStore.storeTrigger(trigger1, false);
+      jmxJobStore.storeTrigger(trigger2, false);
+      jmxJobStore.pauseTrigger(trigger2.getKey());
+
+      Map<String, Long> counts = mbean.getTriggerStateCounts();
+      assertEquals(counts.get("NORMAL").longValue(), normal + 1);
+      assertEquals(counts.get("PAUSED").longValue(), paused + 1);
+
+      jmxJobStore.removeTrigger(trigger2.getKey());
+      assertEquals(mbean.getTriggerStateCounts().get("PAUSED").longValue(), paused);
+
+      assertEquals(jmxJobStore.acquireNextTriggers(baseFireTime + 150, 1, 0L).size(), 1);
+      assertEquals(mbean.getTriggersAcquired(), 1);
+      assertFalse(mbean.isMetricsEnabled());
+    } finally {
+      jmxJobStore.shutdown();
+    }
+  }
+
+  @Test
+  public void testPauseAndResumeKeepTriggerOfRunningNonConcurrentJobBlocked()
+    throws Exception {
+
+    long baseFireTime = DateBuilder.newDate().build().getTime();
+
+    JobDetail newJob = JobBuilder.newJob(MyNoConcurrentJob.class).withIdentity("job1", "testPauseBlocked").build();
+    jobStore.storeJob(newJob, false);
+    OperableTrigger trigger1 = buildAndComputeTrigger("trigger1", "testPauseBlocked", newJob, baseFireTime + 100);
+    OperableTrigger trigger2 = buildAndComputeTrigger("trigger2", "testPauseBlocked", newJob, baseFireTime + 5000);
+    jobStore.storeTrigger(trigger1, false);
+    jobStore.storeTrigger(trigger2, false);
+
+    List<OperableTrigger> acquired = jobStore.acquireNextTriggers(baseFireTime + 200, 1, 0L);
+    assertEquals(jobStore.triggersFired(acquired).size(), 1);
+    assertEquals(storedState(trigger2.getKey()), TriggerState.BLOCKED);
+
+    // resuming while the job runs must not let the trigger fire
+    jobStore.pauseTrigger(trigger2.getKey());
+    assertEquals(storedState(trigger2.getKey()), TriggerState.PAUSED_BLOCKED);
+    jobStore.resumeTrigger(trigger2.getKey());
+    assertEquals(storedState(trigger2.getKey()), TriggerState.BLOCKED);
+
+    jobStore.triggeredJobComplete(acquired.get(0), newJob, Trigger.CompletedExecutionInstruction.NOOP);
+    assertEquals(storedState(trigger2.getKey()), TriggerState.WAITING);
+
+    // pausing or resuming a removed trigger doesn't bring it back
+    jobStore.removeTrigger(trigger2.getKey());
+    jobStore.pauseTrigger(trigger2.getKey());
+    jobStore.resumeTrigger(trigger2.getKey());
+    assertNull(storedState(trigger2.getKey()));
+  }
+
+  @Test
+  public void testOnlyOneTriggerOfNonConcurrentJobFiresAcrossStores()
+    throws Exception {
+
+    HazelcastJobStore.setHazelcastClient(hazelcastInstance);
+    HazelcastJobStore otherJobStore = createJobStore("testOnlyOneTriggerFires");
+    otherJobStore.setShutdownHazelcastOnShutdown(false);
+    otherJobStore.initialize(null, fSignaler);
+    try {
+      long baseFireTime = DateBuilder.newDate().build().getTime();
+      JobDetail newJob = JobBuilder.newJob(MyNoConcurrentJob.class).withIdentity("job1", "testOnlyOneFires").build();
+      jobStore.storeJob(newJob, false);
+      OperableTrigger trigger1 = buildAndComputeTrigger("trigger1", "testOnlyOneFires", newJob, baseFireTime + 100);
+      OperableTrigger trigger2 = buildAndComputeTrigger("trigger2", "testOnlyOneFires", newJob, baseFireTime + 200);
+      jobStore.storeTrigger(trigger1, false);
+      jobStore.storeTrigger(trigger2, false);
+
+      // each store acquires one of the job's triggers
+      List<OperableTrigger> acquired1 = jobStore.acquireNextTriggers(baseFireTime + 150, 1, 0L);
+      List<OperableTrigger> acquired2 = otherJobStore.acquireNextTriggers(baseFireTime + 250, 1, 0L);
+      assertEquals(acquired1.size(), 1);
+      assertEquals(acquired2.size(), 1);
+
+      // the first fire blocks the other acquired trigger, so it can't start the job again
+      assertEquals(jobStore.triggersFired(acquired1).size(), 1);
+      assertEquals(storedState(trigger2.getKey()), TriggerState.BLOCKED);
+      assertTrue(otherJobStore.triggersFired(acquired2).isEmpty());
+    } finally {
+      otherJobStore.shutdown();
+    }
+  }
+
+  @Test
+  public void testFiredTriggerOfNonConcurrentJobIsNotReleasedWhileJobRuns()
+    throws Exception {
+
+    long baseFireTime = DateBuilder.newDate().build().getTime();
+    JobDetail newJob = JobBuilder.newJob(MyNoConcurrentJob.class).withIdentity("job1", "testFiredStaysBlocked").build();
+    jobStore.storeJob(newJob, false);
+    OperableTrigger trigger = buildTrigger("trigger1", "testFiredStaysBlocked", newJob, baseFireTime + 100, null,
+        SimpleScheduleBuilder.repeatSecondlyForever(1));
+    trigger.computeFirstFireTime(null);
+    jobStore.storeTrigger(trigger, false);
+
+    List<OperableTrigger> acquired = jobStore.acquireNextTriggers(baseFireTime + 200, 1, 0L);
+    assertEquals(jobStore.triggersFired(acquired).size(), 1);
+    assertEquals(storedState(trigger.getKey()), TriggerState.BLOCKED);
+
+    // long past triggerReleaseThreshold the trigger isn't taken for a lost acquisition
+    long later = baseFireTime + 10 * 60 * 1000;
+    jobStore.setClock(() -> later);
+    try {
+      assertTrue(jobStore.acquireNextTriggers(later, 1, 0L).isEmpty());
+    } finally {
+      jobStore.setClock(JobStoreClock.SYSTEM);
+    }
+
+    jobStore.triggeredJobComplete(acquired.get(0), newJob, Trigger.CompletedExecutionInstruction.NOOP);
+    assertEquals(storedState(trigger.getKey()), TriggerState.WAITING);
+  }
+
+  @Test
+  public void testReleaseLeavesTriggerPausedOrRemovedSinceAcquiredAlone()
+    throws Exception {
+
+    long baseFireTime = DateBuilder.newDate().build().getTime();
+    JobDetail newJob = JobBuilder.newJob(NoOpJob.class).withIdentity("job1", "testReleaseOnlyAcquired").build();
+    jobStore.storeJob(newJob, true);
+    OperableTrigger trigger1 = buildAndComputeTrigger("trigger1", "testReleaseOnlyAcquired", newJob, baseFireTime + 100);
+    OperableTrigger trigger2 = buildAndComputeTrigger("trigger2", "testReleaseOnlyAcquired", newJob, baseFireTime + 200);
+    jobStore.storeTrigger(trigger1, false);
+    jobStore.storeTrigger(trigger2, false);
+
+    List<OperableTrigger> acquired = jobStore.acquireNextTriggers(baseFireTime + 300, 2, 0L);
+    assertEquals(acquired.size(), 2);
+
+    // a release must not resume a paused trigger, nor store a removed one again
+    jobStore.pauseTrigger(trigger1.getKey());
+    jobStore.removeTrigger(trigger2.getKey());
+    acquired.forEach(jobStore::releaseAcquiredTrigger);
+
+    assertEquals(storedState(trigger1.getKey()), TriggerState.PAUSED);
+    assertNull(storedState(trigger2.getKey()));
+    assertTrue(jobStore.acquireNextTriggers(baseFireTime + 300, 2, 0L).isEmpty());
+  }
+
+  @Test
+  public void testRemovingLastTriggerDoesNotHoldTriggerLockWhileWaitingForJobLock()
+    throws Exception {
+
+    long baseFireTime = DateBuilder.newDate().build().getTime();
+    JobDetail newJob = JobBuilder.newJob(NoOpJob.class).withIdentity("job1", "testRemoveLockOrder").build();
+    jobStore.storeJob(newJob, false);
+    OperableTrigger trigger = buildAndComputeTrigger("trigger1", "testRemoveLockOrder", newJob, baseFireTime + 100);
+    jobStore.storeTrigger(trigger, false);
+
+    IMap<JobKey, Object> jobs = hazelcastInstance.getMap("job-store-map-job");
+    IMap<TriggerKey, Object> triggers = hazelcastInstance.getMap("job-store-trigger-by-key-map");
+    CountDownLatch jobLocked = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      // takes the job lock then the trigger lock, like triggersFired
+      Future<Boolean> firing = executor.submit(() -> {
+        jobs.lock(newJob.getKey());
+        try {
+          jobLocked.countDown();
+          Thread.sleep(200);
+          boolean locked = triggers.tryLock(trigger.getKey(), 2, TimeUnit.SECONDS);
+          if (locked) {
+            triggers.unlock(trigger.getKey());
+          }
+          return locked;
+        } finally {
+          jobs.unlock(newJob.getKey());
+        }
+      });
+      jobLocked.await();
+      // removes the orphaned job, waiting for the job lock
+      Future<Boolean> removal = executor.submit(() -> jobStore.removeTrigger(trigger.getKey()));
+
+      assertTrue(firing.get(10, TimeUnit.SECONDS));
+      assertTrue(removal.get(10, TimeUnit.SECONDS));
+      assertFalse(jobStore.checkExists(newJob.getKey()));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testCompletionOfNonConcurrentJobPersistingItsDataUnblocksTriggers()
+    throws Exception {
+
+    long baseFireTime = DateBuilder.newDate().build().getTime();
+    JobDetail newJob = JobBuilder.newJob(StatefulJob.class).withIdentity("job1", "testStatefulJob")
+        .usingJobData("runs", 0).build();
+    jobStore.storeJob(newJob, false);
+    OperableTrigger trigger1 = buildAndComputeTrigger("trigger1", "testStatefulJob", newJob, baseFireTime + 100);
+    OperableTrigger trigger2 = buildAndComputeTrigger("trigger2", "testStatefulJob", newJob, baseFireTime + 5000);
+    jobStore.storeTrigger(trigger1, false);
+    jobStore.storeTrigger(trigger2, false);
+
+    List<OperableTrigger> acquired = jobStore.acquireNextTriggers(baseFireTime + 200, 1, 0L);
+    JobDetail firedJob = jobStore.triggersFired(acquired).get(0).getTriggerFiredBundle().getJobDetail();
+    assertEquals(storedState(trigger2.getKey()), TriggerState.BLOCKED);
+
+    firedJob.getJobDataMap().put("runs", 1);
+    jobStore.triggeredJobComplete(acquired.get(0), firedJob, Trigger.CompletedExecutionInstruction.NOOP);
+
+    assertEquals(jobStore.retrieveJob(newJob.getKey()).getJobDataMap().getInt("runs"), 1);
+    assertEquals(storedState(trigger2.getKey()), TriggerState.WAITING);
+  }
+
+  private TriggerState storedState(TriggerKey triggerKey) {
+
+    TriggerWrapper tw = (TriggerWrapper) hazelcastInstance.getMap("job-store-trigger-by-key-map").get(triggerKey);
+    return tw != null
+        ? tw.getState()
+        : null;
+  }
+
   private void assertAcquiredAndRelease(long baseFireTime, int numTriggersExpected)
     throws JobPersistenceException {
     List<OperableTrigger> operableTriggers = jobStore.acquireNextTriggers(baseFireTime + 600, 1, 0L);
@@ -1418,6 +2745,16 @@ public class HazelcastJobStoreTest extends AbstractTest {
     });
   }
 
+  @PersistJobDataAfterExecution
+  @DisallowConcurrentExecution
+  public static class StatefulJob implements Job {
+
+    @Override
+    public void execute(JobExecutionContext context) {
+
+    }
+  }
+
   protected HazelcastJobStore createJobStore(String name) {
     HazelcastJobStore jobStore = super.createJobStore(name);
     // shorter sleep interval to shorten test duration
@@ -2,18 +2,25 @@ package com.bikeemotion.quartz.jobstore.hazelcast;
 
 import static org.quartz.Trigger.MISFIRE_INSTRUCTION_IGNORE_MISFIRE_POLICY;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
 import java.util.Date;
 import java.util.List;
 
 import org.quartz.JobBuilder;
+import org.quartz.SimpleScheduleBuilder;
 import org.quartz.JobDetail;
 import org.quartz.JobPersistenceException;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerConfigException;
 import org.quartz.spi.JobStore;
 import org.quartz.spi.OperableTrigger;
 import org.testng.annotations.Test;
 
 import com.bikeemotion.quartz.AbstractTest;
+import com.bikeemotion.quartz.MyNoConcurrentJob;
+import com.hazelcast.client.HazelcastClient;
+import com.hazelcast.client.config.ClientConfig;
 import com.hazelcast.core.Hazelcast;
 import com.hazelcast.core.HazelcastInstance;
 import org.testng.annotations.AfterMethod;
@@ -40,6 +47,7 @@ public class HazelcastJobStoreUngracefulShutdownTest extends AbstractTest {
 
   @AfterMethod
   public void tearDown() {
+    HazelcastClient.shutdownAll();
     Hazelcast.shutdownAll();
   }
   
@@ -99,4 +107,164 @@ public class HazelcastJobStoreUngracefulShutdownTest extends AbstractTest {
         1, 
         "Should find 1 trigger on node 2 after node 1 crashed when failing after "+waitTime+"ms");
   }
+
+  @Test
+  public void testRecoveryOfRequestsRecoveryJobWhenInstanceCrashesDuringExecution()
+    throws Exception {
+
+    // Build node 1
+    HazelcastInstance hazelcast1 = createHazelcastInstance("testRecoveryOfRequestsRecoveryJob");
+    HazelcastJobStore.setHazelcastClient(hazelcast1);
+    HazelcastJobStore jobstore1 = createJobStore("jobstore1");
+    jobstore1.setInstanceId("jobstore1");
+    jobstore1.setShutdownHazelcastOnShutdown(false);
+    jobstore1.initialize(null, new SampleSignaler());
+
+    // Build node 2
+    HazelcastInstance hazelcast2 = createHazelcastInstance("testRecoveryOfRequestsRecoveryJob");
+    HazelcastJobStore.setHazelcastClient(hazelcast2);
+    HazelcastJobStore jobstore2 = createJobStore("jobstore2");
+    jobstore2.setInstanceId("jobstore2");
+    jobstore2.setShutdownHazelcastOnShutdown(false);
+    jobstore2.initialize(null, new SampleSignaler());
+
+    JobDetail job = JobBuilder.newJob(TestSlowJob.class)
+        .withIdentity("recoverableJob", "jobGroup1")
+        .requestRecovery(true)
+        .build();
+    OperableTrigger trigger = buildAndComputeTrigger("trigger1", "triggerGroup1", job, new Date().getTime());
+    jobstore1.storeJobAndTrigger(job, trigger);
+    long firstFireTime = trigger.getNextFireTime().getTime();
+
+    // node 1 fires the trigger and dies while the job is executing
+    List<OperableTrigger> acquired = jobstore1.acquireNextTriggers(firstFireTime + 150, 1, 0L);
+    assertEquals(acquired.size(), 1);
+    assertEquals(jobstore1.triggersFired(acquired).size(), 1);
+    hazelcast1.getLifecycleService().terminate();
+
+    Thread.sleep(500);
+
+    // node 2 notices the lost member and fires a recovery trigger for the job
+    List<OperableTrigger> triggers2 = jobstore2.acquireNextTriggers(new Date().getTime() + 1000, 10, 0L);
+    assertEquals(triggers2.size(), 1);
+    OperableTrigger recoveryTrigger = triggers2.get(0);
+    assertEquals(recoveryTrigger.getKey().getGroup(), Scheduler.DEFAULT_RECOVERY_GROUP);
+    assertEquals(recoveryTrigger.getJobKey(), job.getKey());
+    assertEquals(recoveryTrigger.getJobDataMap().getString(Scheduler.FAILED_JOB_ORIGINAL_TRIGGER_NAME), "trigger1");
+    assertTrue(jobstore2.triggersFired(triggers2).get(0).getTriggerFiredBundle().isRecovering());
+  }
+
+  @Test
+  public void testRecoveryOfRequestsRecoveryJobWhenClientCrashesDuringExecution()
+    throws Exception {
+
+    HazelcastInstance hazelcast2 = createHazelcastInstance("testRecoveryWhenClientCrashes");
+    HazelcastInstance client1 = newClient("testRecoveryWhenClientCrashes", hazelcast2);
+    HazelcastJobStore.setHazelcastClient(client1);
+    HazelcastJobStore jobstore1 = createJobStore("jobstore1");
+    jobstore1.setInstanceId("jobstore1");
+    jobstore1.setShutdownHazelcastOnShutdown(false);
+    jobstore1.setTriggerReleaseThreshold(450);
+    jobstore1.initialize(null, new SampleSignaler());
+
+    HazelcastJobStore.setHazelcastClient(hazelcast2);
+    HazelcastJobStore jobstore2 = createJobStore("jobstore2");
+    jobstore2.setInstanceId("jobstore2");
+    jobstore2.setShutdownHazelcastOnShutdown(false);
+    jobstore2.setTriggerReleaseThreshold(450);
+    jobstore2.initialize(null, new SampleSignaler());
+
+    JobDetail job = JobBuilder.newJob(TestSlowJob.class)
+        .withIdentity("recoverableJob", "jobGroup1")
+        .requestRecovery(true)
+        .build();
+    OperableTrigger trigger = buildAndComputeTrigger("trigger1", "triggerGroup1", job, new Date().getTime());
+    jobstore1.storeJobAndTrigger(job, trigger);
+    long firstFireTime = trigger.getNextFireTime().getTime();
+
+    List<OperableTrigger> acquired = jobstore1.acquireNextTriggers(firstFireTime + 150, 1, 0L);
+    assertEquals(jobstore1.triggersFired(acquired).size(), 1);
+
+    // the lease is renewed while the client runs, so the fire isn't lost
+    Thread.sleep(1000);
+    assertTrue(jobstore2.acquireNextTriggers(new Date().getTime() + 1000, 10, 0L).isEmpty());
+    assertEquals(jobstore2.getNumberOfCurrentlyExecutingTriggers(), 1);
+
+    // once the client dies its lease expires and node 2 recovers the job
+    client1.getLifecycleService().terminate();
+    Thread.sleep(1000);
+
+    List<OperableTrigger> triggers2 = jobstore2.acquireNextTriggers(new Date().getTime() + 1000, 10, 0L);
+    assertEquals(triggers2.size(), 1);
+    assertEquals(triggers2.get(0).getKey().getGroup(), Scheduler.DEFAULT_RECOVERY_GROUP);
+    assertEquals(triggers2.get(0).getJobKey(), job.getKey());
+    assertEquals(jobstore2.getNumberOfCurrentlyExecutingTriggers(), 0);
+  }
+
+  @Test(expectedExceptions = { SchedulerConfigException.class })
+  public void testPartitionLocalAcquisitionIsRejectedOnClients()
+    throws Exception {
+
+    HazelcastInstance member = createHazelcastInstance("testPartitionLocalAcquisitionOnClients");
+    HazelcastJobStore.setHazelcastClient(newClient("testPartitionLocalAcquisitionOnClients", member));
+    HazelcastJobStore jobstore = createJobStore("jobstore1");
+    jobstore.setShutdownHazelcastOnShutdown(false);
+    jobstore.setPartitionLocalAcquisitionEnabled(true);
+    // a client owns no partitions, so it would never acquire anything
+    jobstore.initialize(null, new SampleSignaler());
+  }
+
+  private HazelcastInstance newClient(String groupName, HazelcastInstance member) {
+
+    ClientConfig clientConfig = new ClientConfig();
+    clientConfig.getGroupConfig().setName(groupName).setPassword("some-password");
+    clientConfig.addAddress("127.0.0.1:" + member.getCluster().getLocalMember().getInetSocketAddress().getPort());
+    return HazelcastClient.newHazelcastClient(clientConfig);
+  }
+
+  @Test
+  public void testUnblockOfNonConcurrentTriggerWhenClientCrashesDuringExecution()
+    throws Exception {
+
+    // node 1 is a hazelcast client, its fires are recovered once their lease expires
+    HazelcastInstance hazelcast2 = createHazelcastInstance("testReleaseOfNonConcurrentTrigger");
+    HazelcastInstance client1 = newClient("testReleaseOfNonConcurrentTrigger", hazelcast2);
+    HazelcastJobStore.setHazelcastClient(client1);
+    HazelcastJobStore jobstore1 = createJobStore("jobstore1");
+    jobstore1.setInstanceId("jobstore1");
+    jobstore1.setShutdownHazelcastOnShutdown(false);
+    jobstore1.setTriggerReleaseThreshold(450);
+    jobstore1.initialize(null, new SampleSignaler());
+
+    HazelcastJobStore.setHazelcastClient(hazelcast2);
+    HazelcastJobStore jobstore2 = createJobStore("jobstore2");
+    jobstore2.setInstanceId("jobstore2");
+    jobstore2.setShutdownHazelcastOnShutdown(false);
+    jobstore2.setTriggerReleaseThreshold(450);
+    jobstore2.initialize(null, new SampleSignaler());
+
+    JobDetail job = JobBuilder.newJob(MyNoConcurrentJob.class).withIdentity("nonConcurrentJob", "jobGroup1").build();
+    OperableTrigger trigger = buildTrigger("trigger1", "triggerGroup1", job, new Date().getTime(), null,
+        SimpleScheduleBuilder.repeatSecondlyForever(1));
+    trigger.computeFirstFireTime(null);
+    jobstore1.storeJobAndTrigger(job, trigger);
+    long firstFireTime = trigger.getNextFireTime().getTime();
+
+    // node 1 fires the trigger and dies while the job is executing
+    List<OperableTrigger> acquired = jobstore1.acquireNextTriggers(firstFireTime + 150, 1, 0L);
+    assertEquals(acquired.size(), 1);
+    assertEquals(jobstore1.triggersFired(acquired).size(), 1);
+
+    // blocked like on a member while the client runs the job
+    Thread.sleep(1000);
+    assertTrue(jobstore2.acquireNextTriggers(new Date().getTime() + 5000, 10, 0L).isEmpty());
+    client1.getLifecycleService().terminate();
+
+    Thread.sleep(1000);
+
+    // the lease of the fire expired, so node 2 unblocks the trigger
+    List<OperableTrigger> triggers2 = jobstore2.acquireNextTriggers(new Date().getTime() + 5000, 10, 0L);
+    assertEquals(triggers2.size(), 1);
+    assertEquals(triggers2.get(0).getKey(), trigger.getKey());
+  }
 }
@@ -0,0 +1,81 @@
+package com.bikeemotion.quartz.jobstore.hazelcast;
+
+import com.bikeemotion.quartz.AbstractTest;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.quartz.DateBuilder;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+import org.quartz.jobs.NoOpJob;
+import org.quartz.spi.OperableTrigger;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Flight Recorder events of the job store, only built and run by the jfr
+ * profile, on JDK 11 and later.
+ */
+public class HazelcastJobStoreJfrTest extends AbstractTest {
+
+  @BeforeClass
+  public void setUp() {
+
+    hazelcastInstance = createHazelcastInstance("HazelcastJobStoreJfrTest");
+  }
+
+  @AfterClass
+  public void tearDown() {
+
+    hazelcastInstance.shutdown();
+  }
+
+  @Test
+  public void testJfrEvents()
+    throws Exception {
+
+    HazelcastJobStore.setHazelcastClient(hazelcastInstance);
+    HazelcastJobStore jfrJobStore = createJobStore("testJfrEvents");
+    jfrJobStore.setInstanceId("testJfrEvents");
+    jfrJobStore.setShutdownHazelcastOnShutdown(false);
+    jfrJobStore.setJfrEventsEnabled(true);
+    jfrJobStore.initialize(null, new SampleSignaler());
+
+    Path dump = Files.createTempFile("testJfrEvents", ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable("com.bikeemotion.quartz.jobstore.hazelcast.Acquisition");
+      recording.enable("com.bikeemotion.quartz.jobstore.hazelcast.Fire");
+      recording.start();
+
+      long baseFireTime = DateBuilder.newDate().build().getTime();
+      JobDetail newJob = JobBuilder.newJob(NoOpJob.class).withIdentity("job1", "testJfrEvents").build();
+      jfrJobStore.storeJob(newJob, false);
+      OperableTrigger trigger = buildAndComputeTrigger("trigger1", "testJfrEvents", newJob, baseFireTime);
+      jfrJobStore.storeTrigger(trigger, false);
+      List<OperableTrigger> acquired = jfrJobStore.acquireNextTriggers(baseFireTime + 1000, 1, 0L);
+      assertEquals(jfrJobStore.triggersFired(acquired).size(), 1);
+
+      recording.stop();
+      recording.dump(dump);
+    } finally {
+      jfrJobStore.shutdown();
+    }
+
+    List<RecordedEvent> recorded = RecordingFile.readAllEvents(dump);
+    Files.delete(dump);
+    assertTrue(recorded.stream().anyMatch(e -> e.getEventType().getName().endsWith(".Acquisition")
+        && e.getInt("claimed") == 1 && "testJfrEvents".equals(e.getString("instanceId"))));
+    assertTrue(recorded.stream().anyMatch(e -> e.getEventType().getName().endsWith(".Fire")
+        && "testJfrEvents.trigger1".equals(e.getString("triggerKey"))));
+  }
+}